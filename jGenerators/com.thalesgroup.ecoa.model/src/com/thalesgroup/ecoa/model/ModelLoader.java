@@ -4,16 +4,22 @@ package com.thalesgroup.ecoa.model;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
 
 import technology.ecoa.model.componenttype.CTComponentType;
 import technology.ecoa.model.datatype.CTLibrary;
 import technology.ecoa.model.deployment.DEApplication;
 import technology.ecoa.model.implementation.CTImplementation;
 import technology.ecoa.model.assembly.ASAssembly;
+import technology.ecoa.model.assembly.ASInstance;
 
 import com.thalesgroup.softarc.tools.AbstractLogger;
+import com.thalesgroup.softarc.tools.InconsistentModelError;
 import com.thalesgroup.softarc.tools.Requirement;
 
 public class ModelLoader {
@@ -26,7 +32,8 @@ public class ModelLoader {
         this.workspace = workspace;
     }
 
-    private Map<String, Library> libraries = new HashMap<String, Library>();
+    /** Loaded libraries; libraries may be loaded concurrently, see {@link #loadLibrary(String)}. */
+    private final Map<String, Library> libraries = new ConcurrentHashMap<String, Library>();
 
     /**
      * Loads an assembly, indexes the named parts of the assembly model and returns a wrapper to the JAXB class {@link ASAssembly}
@@ -47,7 +54,9 @@ public class ModelLoader {
     }
 
     public Assembly loadAssemblyDeeply(File file) throws IOException {
-        return new Assembly(Models._assembly.load(file, logger), file, this);
+        ASAssembly assembly = Models._assembly.load(file, logger);
+        preloadModels(assembly, ForkJoinPool.commonPool());
+        return new Assembly(assembly, file, this);
     }
 
     public Assembly loadAssemblyDeeply(String name) throws IOException {
@@ -184,13 +193,122 @@ public class ModelLoader {
     public Library loadLibrary(String name) throws IOException {
         Library library = libraries.get(name);
         if (library == null) {
-            library = new Library(name, Models._library.load(workspace.getComponentType(name, true), logger));
-            libraries.put(name, library);
-            library.loadSubLibraries(this);
+            Library loaded = new Library(name, Models._library.load(workspace.getComponentType(name, true), logger));
+            // registered before its sub-libraries are loaded, to stop on circular dependencies; when loaded concurrently by
+            // several threads, the first registered one is kept
+            library = libraries.putIfAbsent(name, loaded);
+            if (library == null) {
+                library = loaded;
+                library.loadSubLibraries(this);
+            }
         }
         return library;
     }
 
+    /**
+     * Parses concurrently the models of the component types and implementations used by the instances of an assembly, and of
+     * all the libraries they use (directly or not), so that they are found in cache when they are loaded afterwards.
+     * <p>
+     * Models are discovered as they are parsed: each parsed model gives the libraries it uses. The order in which models are
+     * loaded afterwards, and their errors, traces and reports, are the same as without preloading: errors are not reported here,
+     * but when the faulty model is loaded.
+     * 
+     * @param assembly
+     *            the assembly whose models are preloaded
+     * @param executor
+     *            the executor of the parsing tasks; the method returns when all of them are completed
+     */
+    public void preloadModels(ASAssembly assembly, Executor executor) {
+        ModelPreloader preloader = new ModelPreloader(executor);
+        if (assembly.getComponentType() != null)
+            preloader.preloadComponentType(assembly.getComponentType());
+        for (ASInstance instance : assembly.getInstance()) {
+            if (instance.getComponentType() != null) {
+                preloader.preloadComponentType(instance.getComponentType());
+                if (instance.getImplementation() != null)
+                    preloader.preloadImplementation(instance.getComponentType(), instance.getImplementation());
+            }
+        }
+        preloader.await();
+    }
+
+    /**
+     * Parsing tasks of {@link ModelLoader#preloadModels(ASAssembly, Executor)}. Each file is submitted only once.
+     */
+    private final class ModelPreloader {
+
+        private final Executor executor;
+        private final Set<File> submitted = ConcurrentHashMap.newKeySet();
+        /** Registers one party per running task, plus the waiting thread. */
+        private final Phaser running = new Phaser(1);
+
+        ModelPreloader(Executor executor) {
+            this.executor = executor;
+        }
+
+        void preloadComponentType(String name) {
+            File file = workspace.getComponentType(name, false);
+            submit(file, () -> {
+                CTComponentType ct = Models._componenttype.preload(file);
+                if (ct != null)
+                    preloadLibraries(new ComponentType(name, ct));
+            });
+        }
+
+        void preloadImplementation(String compName, String implementationName) {
+            File file = workspace.getComponentImpl(compName, implementationName);
+            submit(file, () -> {
+                CTImplementation impl = Models._implementation.preload(file);
+                if (impl != null) {
+                    for (technology.ecoa.model.implementation.MetaData m : impl.getMeta()) {
+                        if (m.getName().equals("usedLibrary"))
+                            preloadLibrary(m.getValue());
+                    }
+                }
+            });
+        }
+
+        void preloadLibrary(String name) {
+            File file = workspace.getComponentType(name, true);
+            submit(file, () -> {
+                CTLibrary lib = Models._library.preload(file);
+                if (lib != null) {
+                    preloadLibraries(new Library(name, lib));
+                    // also libraries declared in metadata, such as "usedLibrary" or "C_usedLibrary"
+                    for (technology.ecoa.model.datatype.MetaData m : lib.getMeta()) {
+                        if (m.getName().equals("usedLibrary") || m.getName().endsWith("_usedLibrary"))
+                            preloadLibrary(m.getValue());
+                    }
+                }
+            });
+        }
+
+        private void preloadLibraries(TypesContainer container) {
+            for (String libraryName : container.getUsedLibraries()) {
+                preloadLibrary(libraryName);
+            }
+        }
+
+        private void submit(File file, Runnable task) {
+            if (!file.isFile() || !submitted.add(file))
+                return;
+            running.register();
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException | InconsistentModelError e) {
+                    // reported when the model is loaded
+                } finally {
+                    running.arriveAndDeregister();
+                }
+            });
+        }
+
+        void await() {
+            running.arriveAndAwaitAdvance();
+        }
+    }
+
     /**
      * Loads an implementation model from componentTypeName and implementationName.
      * 
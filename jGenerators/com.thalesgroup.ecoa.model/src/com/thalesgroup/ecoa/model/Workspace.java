@@ -50,6 +50,14 @@ public class Workspace extends WorkspaceStandard {
         return dir04;
     }
 
+    /**
+     * The record of the model files validated against their XSD schema, shared by all deployments (see
+     * {@link com.thalesgroup.softarc.tools.ValidationCache})
+     */
+    public File getValidationCacheFile() {
+        return new File(getIntegrationDir(), ".validation.cache");
+    }
+
     /**
      * The generation directory corresponding to the current deployment, i.e. 04-Integration/[deploymentname]
      */
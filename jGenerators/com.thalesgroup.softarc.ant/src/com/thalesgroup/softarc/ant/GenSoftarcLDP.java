@@ -2,15 +2,31 @@
 
 package com.thalesgroup.softarc.ant;
 
+import java.util.Map;
+
 import com.thalesgroup.softarc.tools.AbstractAntGeneratorTask;
 import com.thalesgroup.softarc.tools.AbstractGenerator;
 
 public class GenSoftarcLDP extends AbstractAntGeneratorTask {
 
+    static final String NAME = "GenSoftarc";
+
     protected AbstractGenerator newGenerator() throws Throwable {
-        com.thalesgroup.softarc.gen.GenSoftarcLDP genSoftarc = new com.thalesgroup.softarc.gen.GenSoftarcLDP();
-        genSoftarc.setFeatureToggles(getProject().getProperty("gensoftarc.features"));
-        return genSoftarc;
+        return SoftarcServer.newGenerator(NAME, getGeneratorProperties());
+    }
+
+    @Override
+    protected String getGeneratorName() {
+        return NAME;
+    }
+
+    @Override
+    protected Map<String, String> getGeneratorProperties() {
+        Map<String, String> properties = super.getGeneratorProperties();
+        String features = getProject().getProperty(SoftarcServer.PROPERTY_FEATURES);
+        if (features != null)
+            properties.put(SoftarcServer.PROPERTY_FEATURES, features);
+        return properties;
     }
 
     public void setDeployment(String i) {
@@ -7,8 +7,15 @@ import com.thalesgroup.softarc.tools.AbstractGenerator;
 
 public class GenTechnicalAssembly extends AbstractAntGeneratorTask {
 	
+	static final String NAME = "GenTechnicalAssembly";
+
 	protected AbstractGenerator newGenerator() throws Throwable {
-		return new com.thalesgroup.softarc.gen.technicalassembly.GenTechnicalAssembly();
+		return SoftarcServer.newGenerator(NAME, getGeneratorProperties());
+	}
+
+	@Override
+	protected String getGeneratorName() {
+		return NAME;
 	}
 
     public void setDeployment(String i) {
@@ -0,0 +1,88 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.ant;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.thalesgroup.softarc.tools.AbstractGenerator;
+import com.thalesgroup.softarc.tools.GenerationClient;
+import com.thalesgroup.softarc.tools.GenerationServer;
+
+/**
+ * Resident generation server for the SOFTARC generators, and its command line client.
+ *
+ * <pre>
+ * SoftarcServer start                           starts the server (and returns when it is stopped)
+ * SoftarcServer stop                            stops the running server
+ * SoftarcServer status                          prints the status of the running server
+ * SoftarcServer run &lt;generator&gt; [arguments]     executes a generator (GenSoftarc or GenTechnicalAssembly), by the server
+ *                                               if it is running, or else in the current process
+ * </pre>
+ *
+ * While the server is running, the Ant tasks of the generators are executed by it (see {@link GenerationServer}).
+ */
+public class SoftarcServer {
+
+    /** Property (Ant property or Java system property) defining the feature toggles of GenSoftarc. */
+    static final String PROPERTY_FEATURES = "gensoftarc.features";
+
+    static AbstractGenerator newGenerator(String name, Map<String, String> properties) throws Exception {
+        if (name.equals(GenSoftarcLDP.NAME)) {
+            com.thalesgroup.softarc.gen.GenSoftarcLDP genSoftarc = new com.thalesgroup.softarc.gen.GenSoftarcLDP();
+            genSoftarc.setFeatureToggles(properties.get(PROPERTY_FEATURES));
+            return genSoftarc;
+        }
+        if (name.equals(GenTechnicalAssembly.NAME)) {
+            return new com.thalesgroup.softarc.gen.technicalassembly.GenTechnicalAssembly();
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "";
+
+        if (command.equals("start")) {
+            if (GenerationClient.status()) {
+                System.err.println("A generation server is already running.");
+                System.exit(1);
+            }
+            new GenerationServer(SoftarcServer::newGenerator).serve();
+        } else if (command.equals("stop")) {
+            if (!GenerationClient.stop()) {
+                System.err.println("No generation server is running.");
+                System.exit(1);
+            }
+        } else if (command.equals("status")) {
+            if (!GenerationClient.status()) {
+                System.err.println("No generation server is running.");
+                System.exit(1);
+            }
+        } else if (command.equals("run") && args.length > 1) {
+            System.exit(run(args[1], Arrays.copyOfRange(args, 2, args.length)));
+        } else {
+            System.err.println("usage: SoftarcServer start | stop | status | run <generator> [arguments]");
+            System.exit(2);
+        }
+    }
+
+    private static int run(String name, String[] args) throws Exception {
+        Map<String, String> properties = new HashMap<String, String>();
+        String features = System.getProperty(PROPERTY_FEATURES);
+        if (features != null)
+            properties.put(PROPERTY_FEATURES, features);
+
+        Integer retcode = GenerationClient.execute(name, new File("."), properties, args, null);
+        if (retcode != null)
+            return retcode;
+
+        AbstractGenerator generator = newGenerator(name, properties);
+        if (generator == null) {
+            System.err.println("Unknown generator: " + name);
+            return 2;
+        }
+        return generator.execute(args);
+    }
+}
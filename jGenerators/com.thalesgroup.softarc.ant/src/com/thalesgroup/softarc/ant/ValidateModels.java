@@ -0,0 +1,104 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.ant;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.FileSet;
+
+import com.thalesgroup.ecoa.model.Models;
+import com.thalesgroup.ecoa.model.Workspace;
+import com.thalesgroup.softarc.tools.InconsistentModelError;
+import com.thalesgroup.softarc.tools.ValidationCache;
+import com.thalesgroup.softarc.tools.XmlPersistence;
+
+/**
+ * Validates ECOA model files against their XSD schema, chosen according to the extension of each file.
+ * <p>
+ * With a validation cache (attribute <tt>cache</tt>, see {@link ValidationCache}), files which have already been validated with
+ * the same content are not validated again. The generators use the same cache, in <tt>04-Integration</tt>.
+ *
+ * <pre>
+ * &lt;ValidateModels cache="04-Integration/.validation.cache"&gt;
+ *   &lt;fileset dir="01-Components" includes="**&#47;*.comp.xml"/&gt;
+ * &lt;/ValidateModels&gt;
+ * </pre>
+ */
+public class ValidateModels extends Task {
+
+    private final List<FileSet> _filesets = new ArrayList<FileSet>();
+    private File _cache;
+
+    public void setCache(File cache) {
+        _cache = cache;
+    }
+
+    public void addFileset(FileSet fileset) {
+        _filesets.add(fileset);
+    }
+
+    @Override
+    public void execute() throws BuildException {
+        int nbFiles = 0;
+        int nbValidated = 0;
+        int nbErrors = 0;
+        try {
+            ValidationCache cache = _cache == null ? null : new ValidationCache(_cache);
+            try {
+                for (FileSet fileset : _filesets) {
+                    DirectoryScanner scanner = fileset.getDirectoryScanner(getProject());
+                    for (String name : scanner.getIncludedFiles()) {
+                        File file = new File(scanner.getBasedir(), name);
+                        XmlPersistence<?> persistence = getPersistence(file);
+                        if (persistence == null) {
+                            log("Not an ECOA model file: " + file, Project.MSG_WARN);
+                            continue;
+                        }
+                        nbFiles++;
+                        try {
+                            if (persistence.validate(file, cache))
+                                nbValidated++;
+                        } catch (InconsistentModelError e) {
+                            log(e.getMessage(), Project.MSG_ERR);
+                            nbErrors++;
+                        }
+                    }
+                }
+            } finally {
+                if (cache != null)
+                    cache.save();
+            }
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+
+        log(String.format("%d file(s) validated, %d unchanged since their last validation", nbValidated,
+                nbFiles - nbValidated - nbErrors), nbValidated == 0 ? Project.MSG_VERBOSE : Project.MSG_INFO);
+        if (nbErrors != 0)
+            throw new BuildException(nbErrors + " model file(s) are not valid");
+    }
+
+    private static XmlPersistence<?> getPersistence(File file) {
+        String name = file.getName();
+        if (name.endsWith(Workspace.EXTENSION_LIBRARY))
+            return Models._library;
+        if (name.endsWith(Workspace.EXTENSION_COMPONENT))
+            return Models._componenttype;
+        if (name.endsWith(Workspace.EXTENSION_IMPL))
+            return Models._implementation;
+        if (name.endsWith(Workspace.EXTENSION_ASSEMBLY))
+            return Models._assembly;
+        if (name.endsWith(Workspace.EXTENSION_DEPLOYMENT))
+            return Models._deployment;
+        if (name.equals(Workspace.WORKSPACE_FILENAME))
+            return Models._workspace;
+        return null;
+    }
+}
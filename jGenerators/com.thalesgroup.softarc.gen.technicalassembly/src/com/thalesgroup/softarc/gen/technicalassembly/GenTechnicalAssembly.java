@@ -15,6 +15,8 @@ import technology.ecoa.model.assembly.ASAssembly;
 
 import com.thalesgroup.softarc.tools.AbstractGenerator;
 import com.thalesgroup.softarc.tools.ReportStatus;
+import com.thalesgroup.softarc.tools.ValidationCache;
+import com.thalesgroup.softarc.tools.XmlPersistence;
 
 /**
  * This generators transforms an Assembly to a Technical Assembly, i.e an assembly: - without the concept of composite. - where
@@ -76,18 +78,27 @@ public final class GenTechnicalAssembly extends AbstractGenerator {
     public void generate() throws Exception {
         // Load deployment (this will automatically load the assembly)
         File deploymentFile = getArguments().getFirst(ARGUMENT_KEY_DEPLOYMENT);
-        Deployment deploymentModel = modelLoader.loadDeployment(deploymentFile);
-        File assemblyFile = workspace.getAssemblyFile(deploymentModel.getDeployment().getAssembly());
-        Assembly assembly = modelLoader.loadAssemblyDeeply(assemblyFile);
-
-        // Generate technical assembly
-        ASAssembly technicalAssembly = createTechnicalAssembly(assembly, deploymentModel.getDeployment(), assemblyFile);
-
-        // Save technical assembly
-        // REQ-003
-        File outputAssemblyFile = workspace.getTechnicalAssembly();
-        modelLoader.saveAssembly(technicalAssembly, outputAssemblyFile);
-        report(outputAssemblyFile, ReportStatus.CREATED);
+        // the workspace root is needed to find the validation cache, before loading the deployment
+        workspace.initFromDeploymentFile(deploymentFile);
+        ValidationCache validationCache = new ValidationCache(workspace.getValidationCacheFile());
+        XmlPersistence.validationCache = validationCache;
+        try {
+            Deployment deploymentModel = modelLoader.loadDeployment(deploymentFile);
+            File assemblyFile = workspace.getAssemblyFile(deploymentModel.getDeployment().getAssembly());
+            Assembly assembly = modelLoader.loadAssemblyDeeply(assemblyFile);
+
+            // Generate technical assembly
+            ASAssembly technicalAssembly = createTechnicalAssembly(assembly, deploymentModel.getDeployment(), assemblyFile);
+
+            // Save technical assembly
+            // REQ-003
+            File outputAssemblyFile = workspace.getTechnicalAssembly();
+            modelLoader.saveAssembly(technicalAssembly, outputAssemblyFile);
+            report(outputAssemblyFile, ReportStatus.CREATED);
+        } finally {
+            XmlPersistence.validationCache = null;
+            validationCache.save();
+        }
     }
 
     public static void main(String[] args) throws Exception {
@@ -273,6 +273,7 @@ public class SoftarcFormalismDefinition {
         @contains DataAccess[] accesses;
         boolean virtual; // virtual events are generated for data notification and triggers
         long size; // size of (input) serialized parameters, including requestID (for requestResponse) and republishFlag (for data)
+        boolean largePayload; // LDP: parameters sent through slots in shared memory instead of messages (events and data)
         boolean isDocumented;
         String[] doc;
         String packedName; // pour Java
@@ -293,6 +294,7 @@ public class SoftarcFormalismDefinition {
         boolean isWritten;
         long maxversions;
         boolean writeonly;
+        boolean lockFreeRead; // readers copy the current version without lock (seqlock), selected by the implementation
         boolean notify;
         boolean activating;
         long fifoSize;
@@ -575,6 +577,9 @@ public class SoftarcFormalismDefinition {
     abstract class Link {
         long id;
         boolean includeExtern;
+        boolean largePayload; // LDP: parameters of its messages written in slots in shared memory, instead of the messages
+        long payloadSlots; // LDP: number of slots in shared memory, if 'largePayload'
+        long payloadSize; // LDP: size, in bytes, of the parameters in each slot, if 'largePayload'
     }
 
     class EventLink extends Link {
@@ -615,6 +620,17 @@ public class SoftarcFormalismDefinition {
         boolean buildWithAnt;
         boolean buildWithMake;
         boolean buildWithGPR;
+        boolean ringTransport; // LDP only: messages between threads go through rings in shared memory instead of sockets
+                               // (meta 'transport'='ring' in DE model)
+        boolean metrics; // LDP only: runtime metrics of each executable in a named shared-memory segment (meta 'metrics'='true' in
+                         // DE model)
+        boolean asyncLog; // LDP only: messages of SARC_log_* and of component traces written by a logger thread (meta 'log'='async'
+                          // in DE model), instead of the calling threads
+        String logFile; // LDP only: file where the messages are written, instead of stdout and stderr (meta 'logFile' in DE model)
+        long logFileSize; // LDP only: size, in bytes, from which 'logFile' is renamed to 'logFile'.1 and started again (meta
+                          // 'logFileSize' in DE model)
+        boolean hasBatchedThreads; // true if at least one thread has 'isBatched'
+        Link[] payloadLinks; // LDP: links with 'payloadSlots'
 
         long maxPlatformId; // highest value of 'id' in 'platforms'
         long maxThreadId; // highest value of 'id' in 'executables.threads'
@@ -781,8 +797,11 @@ public class SoftarcFormalismDefinition {
                   // 'globalnumber' in Mapping.xml
         String id; // identifier usable in C language, built from executable and thread names
         Executable parent;
-        long stack; // stack size, in bytes, allocated to the thread.
+        long stack; // stack size, in bytes, allocated to the thread (meta 'stackSize' of the task in DE model, 0 for the default)
         long relativePriority; // relative priority of the thread
+        String schedulingPolicy; // SCHED_OTHER (default), SCHED_FIFO or SCHED_RR (meta 'policy' of the task in DE model)
+        long priority; // priority of the thread for policies SCHED_FIFO and SCHED_RR (attribute 'relativePriority'), else 0
+        String[] cpus; // numbers of the CPUs on which the thread may run (meta 'cpus' of the task in DE model), empty for all
         boolean isPrompt; // auto start
         boolean isExternalThread;
         InitObj[] events;
@@ -794,8 +813,16 @@ public class SoftarcFormalismDefinition {
         long maxBufferOutSize; // size of the buffer for sending out parameters of RR responses
         long shmoutglobalsize;
         long bufferInSize; // size of the socket buffer in recv.
+        long ringSize; // size, in bytes, of the ring receiving the messages of the thread (ring transport only)
+        long syncRingSize; // size, in bytes, of the ring receiving the responses of synchronous RRs (ring transport only)
+        long batchSize; // max number of messages received at once (meta 'batchSize' of the task in DE model, 1 by default)
+        boolean isBatched; // true if messages are received and sent by batches (batchSize > 1, socket transport only)
+        long timedMessagesCapacity; // number of timed messages (trigger settings, timeouts) allocated at the start of the thread
         boolean publishesData; // true if it can publish at least one data
         @contains OperationGroup[] sortedOperations;
+        @contains OperationDispatch[] dispatchTable; // operations handled by the instances of the thread, in the order of their ids
+                                                    // (LDP only)
+        long dispatchModulo; // smallest modulo giving distinct remainders for the ids of 'dispatchTable' (LDP only)
         Instance[] instances;
         String packedName; // same as 'name', but without '_'
         boolean hasShmout;
@@ -837,6 +864,7 @@ public class SoftarcFormalismDefinition {
         long shmglobalsize; // total shared memory size occupied by the data versions
         long numberofversions; // total number of version that must be allocated, deducted from the operation 'maxversions'
                               // attribute
+        long poolSize; // number of versions in the pool of the data, for each thread linked to it (LDP)
         long sizeof;
         long size;
         long requestsize; // size of the request for data publication
@@ -1018,6 +1046,8 @@ public class SoftarcFormalismDefinition {
 
     class OperationGroup {
         long reqId;
+        long index; // position of the group in the 'sortedOperations' of its thread (LDP only)
+        String name; // names of the operations of the group, as 'instance.operation' (LDP only)
         OperationLink[] operations;
         boolean isReceivedEvent; // reprise de la valeur commune à toutes les opérations
         boolean isProvidedRequestResponse; // idem
@@ -1026,6 +1056,19 @@ public class SoftarcFormalismDefinition {
         boolean isOnSameTask; //idem
     }
 
+    class OperationDispatch {
+        long operId; // id of the operation, in the messages received by the thread
+        long index; // position of the operation in the dispatch table of the thread, in [1,N] (0 is for the unknown ids)
+        String name; // names of the operations, as 'instance.operation'
+        @contains OperationHandler[] handlers; // in the order of the instances of the thread
+    }
+
+    class OperationHandler {
+        Instance instance;
+        OperationGroup group; // operations of the instance with this id, if the instance is not a timer
+        OperationLink timerEvent; // event sent by the instance, if it is a timer
+    }
+
     // ---------- GENMAIN (après refactoring) ------------
     /*
      * Les classes suivantes sont un remplacement plus simple pour les classes
@@ -12,6 +12,8 @@ import com.thalesgroup.softarc.gen.common.AbstractGenSoftarc;
 import com.thalesgroup.softarc.gen.common.AbstractPass;
 import com.thalesgroup.softarc.gen.common.PassContext;
 import com.thalesgroup.softarc.tools.CommandLineParsingError;
+import com.thalesgroup.softarc.tools.ValidationCache;
+import com.thalesgroup.softarc.tools.XmlPersistence;
 
 public final class GenSoftarcLDP extends AbstractGenSoftarc {
 
@@ -51,10 +53,21 @@ public final class GenSoftarcLDP extends AbstractGenSoftarc {
 
         PassContext context = new PassContext(workspace);
         context.isLDP = true;
-        
-        context.loadFiles();
 
-        super.generate(context, stepClasses);
+        if (isUpToDate(workspace))
+            return;
+
+        ValidationCache validationCache = new ValidationCache(workspace.getValidationCacheFile());
+        XmlPersistence.validationCache = validationCache;
+        try {
+            context.loadFiles();
+
+            super.generate(context, stepClasses);
+            saveBuildCache();
+        } finally {
+            XmlPersistence.validationCache = null;
+            validationCache.save();
+        }
     }
 
     public static final String ARGUMENT_KEY_DEPLOYMENT = "deployment";
@@ -3,13 +3,23 @@
 package com.thalesgroup.softarc.gen.common;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
+import com.thalesgroup.ecoa.model.Workspace;
 import com.thalesgroup.softarc.sf.impl.JsonWriterFormalism;
 import com.thalesgroup.softarc.sf.impl.TextWriter;
 import com.thalesgroup.softarc.sf.impl.XmlWriter;
 import com.thalesgroup.softarc.tools.AbstractGenerator;
+import com.thalesgroup.softarc.tools.BuildCache;
+import com.thalesgroup.softarc.tools.ReportStatus;
+import com.thalesgroup.softarc.tools.Utilities;
 
 /**
  * This class executes a sequence of passes, defined by a collection of classes (stepClasses).
@@ -18,6 +28,15 @@ import com.thalesgroup.softarc.tools.AbstractGenerator;
  * the formalism.
  *
  * In verbose mode, the time taken by each pass is printed out.
+ *
+ * Passes are grouped in waves of independent passes by {@link PassScheduler}, according to the areas of the formalism they read
+ * and write. With feature toggle "parallel", the passes of a same wave (typically generation passes) are executed concurrently.
+ *
+ * With feature toggle "incremental", generation is skipped when its inputs and outputs did not change since the previous one
+ * (see {@link #isUpToDate(Workspace)}).
+ *
+ * With feature toggle "trace" (or in verbose mode), the last state of the formalism is saved at the end of the generation, to
+ * decode the traces of the application.
  */
 public abstract class AbstractGenSoftarc extends AbstractGenerator {
 
@@ -51,7 +70,7 @@ public abstract class AbstractGenSoftarc extends AbstractGenerator {
 
     public void generate(PassContext context, Collection<Class<? extends AbstractPass>> stepClasses) throws Exception {
 
-        boolean verboseMode = _arguments.getFirst(ARGUMENT_KEY_VERBOSE);
+        final boolean verboseMode = _arguments.getFirst(ARGUMENT_KEY_VERBOSE);
         if (verboseMode)
             featureToggles.add("verbose");
         boolean createNew = _arguments.getFirst(ARGUMENT_KEY_CREATE_NEW);
@@ -59,17 +78,25 @@ public abstract class AbstractGenSoftarc extends AbstractGenerator {
             featureToggles.add("createnew");
         context.featureToggles = featureToggles;
 
-        File dumpFile = null;
+        List<AbstractPass> steps = new ArrayList<AbstractPass>();
         try {
             for (Class<? extends AbstractPass> c : stepClasses) {
 
                 AbstractPass step = c.newInstance();
 
-                if (debugOption_skipGeneration && step.isReadOnly())
+                if (debugOption_skipGeneration && step instanceof AbstractGenerationPass)
                     continue;
 
                 step.init(context, this);
+                steps.add(step);
+            }
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new Error(e);
+        }
 
+        PassScheduler.PassRunner runner = new PassScheduler.PassRunner() {
+            @Override
+            public void run(AbstractPass step) throws Exception {
                 if (verboseMode) {
                     info("Pass: %s", step.passName);
                 }
@@ -78,26 +105,120 @@ public abstract class AbstractGenSoftarc extends AbstractGenerator {
 
                 if (verboseMode) {
                     step.info("Pass %s executed in %d ms\n", step.passName, (System.nanoTime() - tPass) / 1000000);
+                }
+            }
+        };
 
-                    if (!step.isReadOnly() && context.workspace.currentDeploymentName != null) {
-                    }
+        // Without feature toggle "parallel", each pass is a wave by itself, and passes are executed in the given order
+        ForkJoinPool pool = null;
+        List<List<AbstractPass>> waves = new ArrayList<List<AbstractPass>>();
+        if (featureToggles.contains("parallel")) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            context.pool = pool;
+            waves = new PassScheduler(steps).getWaves();
+        } else {
+            for (AbstractPass step : steps) {
+                waves.add(Collections.singletonList(step));
+            }
+        }
+
+        File dumpFile = null;
+        try {
+            for (List<AbstractPass> wave : waves) {
 
-                    if (!step.isReadOnly()) {
-                        dumpFile = save(context, "formalism_after_" + step.passName);
+                long tWave = System.nanoTime();
+                if (pool != null && wave.size() > 1) {
+                    PassScheduler.executeConcurrently(wave, runner, pool);
+                    if (verboseMode) {
+                        info("Passes %s executed concurrently in %d ms\n", passNames(wave),
+                                (System.nanoTime() - tWave) / 1000000);
                     }
+                } else {
+                    for (AbstractPass step : wave) {
+                        runner.run(step);
+                    }
+                }
+
+                AbstractPass writer = PassScheduler.getWriter(wave);
+                if (verboseMode && writer != null) {
+                    dumpFile = save(context, "formalism_after_" + writer.passName);
                 }
             }
             if (dumpFile != null) {
                 dumpFile.renameTo(
                         new File(context.workspace.getGenDir(), "formalism" + dumpFile.getName().replaceFirst("\\w*\\.\\w*", "")));
+            } else if (featureToggles.contains("trace")) {
+                // the last state of the formalism is saved to decode the traces of the application (see TraceDecoder)
+                save(context, "formalism");
             }
-        } catch (InstantiationException | IllegalAccessException e) {
-            throw new Error(e);
+        } finally {
+            if (pool != null) {
+                context.pool = null;
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static String passNames(List<AbstractPass> wave) {
+        StringBuilder sb = new StringBuilder();
+        for (AbstractPass step : wave) {
+            if (sb.length() != 0)
+                sb.append(", ");
+            sb.append(step.passName);
+        }
+        return sb.toString();
+    }
+
+    // =========================================================================
+    // Incremental generation (feature toggle "incremental")
+    // =========================================================================
+
+    private static final String BUILD_CACHE_FILENAME = ".gensoftarc.cache";
+
+    /**
+     * With feature toggle "incremental", checks whether the previous generation for the current deployment is up-to-date (see
+     * {@link BuildCache}): if so, its outputs are reported as SKIPPED and true is returned. Otherwise, the record of the inputs
+     * and outputs of the new generation is started (the renderings of templates whose data did not change since the previous
+     * generation being skipped), and false is returned.
+     */
+    protected boolean isUpToDate(Workspace workspace) throws Exception {
+        if (!featureToggles.contains("incremental"))
+            return false;
+
+        BuildCache cache = new BuildCache(new File(workspace.getGenDir(), BUILD_CACHE_FILENAME));
+        cache.setConfiguration(String.format("features=%s verbose=%s createnew=%s", new TreeSet<String>(featureToggles),
+                _arguments.getFirst(ARGUMENT_KEY_VERBOSE), _arguments.getFirst(ARGUMENT_KEY_CREATE_NEW)));
+
+        List<File> outputs = cache.getUpToDateOutputs();
+        if (outputs != null) {
+            info("Inputs unchanged since previous generation: nothing to generate");
+            for (File output : outputs)
+                report(output, ReportStatus.SKIPPED);
+            return true;
+        }
+
+        cache.delete();
+        // Inputs which are not loaded through XmlPersistence (see loaded()): workspace configuration and generator itself
+        cache.addInput(new File(workspace.getRootDir(), Workspace.WORKSPACE_FILENAME));
+        for (Class<?> c : new Class<?>[] { getClass(), AbstractGenerator.class, Workspace.class }) {
+            cache.addToolInput(new File(c.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        }
+        _buildCache = cache;
+        return false;
+    }
+
+    /**
+     * Saves the record of the generation started by {@link #isUpToDate(Workspace)}, if generation was successful.
+     */
+    protected void saveBuildCache() throws IOException {
+        if (_buildCache != null && _nbGenerationErrors.get() == 0) {
+            _buildCache.save();
         }
+        _buildCache = null;
     }
 
     // =========================================================================
-    // Save formalism (in verbose mode)
+    // Save formalism (after each pass in verbose mode, or after the last one)
     // =========================================================================
 
     public File save(PassContext context, String name) throws Exception {
@@ -140,7 +261,7 @@ public abstract class AbstractGenSoftarc extends AbstractGenerator {
 
     @Override
     protected void initialize() throws Exception {
-        String ft = System.getenv("SOFTARC_FEATURES");
+        String ft = Utilities.getenv("SOFTARC_FEATURES");
         if (ft != null) {
             warning("SOFTARC_FEATURES=%s", ft);
             setFeatureToggles(ft);
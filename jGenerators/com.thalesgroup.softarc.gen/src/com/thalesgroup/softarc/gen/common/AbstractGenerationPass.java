@@ -5,7 +5,15 @@ package com.thalesgroup.softarc.gen.common;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.LogRecord;
 
 import com.thalesgroup.softarc.tools.AbstractGenerator;
 import com.thalesgroup.softarc.tools.ReportStatus;
@@ -67,12 +75,88 @@ public abstract class AbstractGenerationPass extends AbstractPass {
         }
     }
 
+    /**
+     * Generation of the files related to a part of the output (e.g. a container), independently from the other parts.
+     */
+    public interface PartGenerator<T> {
+        void generate(T part) throws IOException;
+    }
+
+    /**
+     * Generates the files of each given part. If feature toggle "parallel" is set, the parts are generated concurrently on the
+     * pool of worker threads; in any case, files are reported in the order of the parts, and if the generation of several parts
+     * fails, the error raised by the first of them is rethrown.
+     */
+    public <T> void generateParts(final List<T> parts, final PartGenerator<T> generator) throws IOException {
+        if (context.pool == null || parts.size() < 2) {
+            for (T part : parts) {
+                generator.generate(part);
+            }
+            return;
+        }
+
+        final List<List<LogRecord>> reports = new ArrayList<List<LogRecord>>(Collections.nCopies(parts.size(), null));
+        final Throwable[] failures = new Throwable[parts.size()];
+        final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+
+        for (int i = 0; i < parts.size(); i++) {
+            final int index = i;
+            tasks.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    gen.deferReports();
+                    try {
+                        generator.generate(parts.get(index));
+                    } catch (Throwable t) {
+                        failures[index] = t;
+                    } finally {
+                        reports.set(index, gen.takeDeferredReports());
+                    }
+                }
+            });
+        }
+
+        if (ForkJoinTask.getPool() == context.pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            context.pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+
+        for (int i = 0; i < parts.size(); i++) {
+            gen.issueReports(reports.get(i));
+            Throwable t = failures[i];
+            if (t instanceof IOException)
+                throw (IOException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+        }
+    }
+
     @Override
     public void init(PassContext context, AbstractGenerator gen) {
         super.init(context, gen);
 
     }
 
+    /**
+     * A generation pass only produces files: it never modifies the Formalism.
+     */
+    @Override
+    public final Set<FormalismArea> writes() {
+        return EnumSet.noneOf(FormalismArea.class);
+    }
+
     public final boolean isReadOnly() {
         return true;
     }
@@ -3,6 +3,8 @@
 package com.thalesgroup.softarc.gen.common;
 
 import java.io.File;
+import java.util.EnumSet;
+import java.util.Set;
 
 import com.thalesgroup.softarc.tools.AbstractGenerator;
 import com.thalesgroup.softarc.tools.ReportStatus;
@@ -36,7 +38,40 @@ public abstract class AbstractPass {
     public AbstractGenerator gen;
     public String passName = getClass().getPackage().getName().replace("com.thalesgroup.softarc.gen.", "");
 
+    /**
+     * Areas of the Formalism that this pass reads. By default, a pass is assumed to read the whole Formalism.
+     */
+    public Set<FormalismArea> reads() {
+        return EnumSet.allOf(FormalismArea.class);
+    }
+
+    /**
+     * Areas of the Formalism that this pass modifies. By default, a pass is assumed to modify the whole Formalism.
+     */
+    public Set<FormalismArea> writes() {
+        return EnumSet.allOf(FormalismArea.class);
+    }
+
+    /**
+     * @return true if this pass does not modify the Formalism.
+     */
     public boolean isReadOnly() {
+        return writes().isEmpty();
+    }
+
+    /**
+     * @return true if this pass must be executed after the given pass (which is before this one in the sequence of passes),
+     *         i.e. if one of them modifies an area of the Formalism used by the other one.
+     */
+    public boolean dependsOn(AbstractPass previous) {
+        for (FormalismArea area : previous.writes()) {
+            if (reads().contains(area) || writes().contains(area))
+                return true;
+        }
+        for (FormalismArea area : writes()) {
+            if (previous.reads().contains(area))
+                return true;
+        }
         return false;
     }
 
@@ -0,0 +1,15 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.gen.common;
+
+/**
+ * Coarse partition of the Formalism, used to declare which parts of it are read or modified by a pass (see
+ * {@link AbstractPass#reads()} and {@link AbstractPass#writes()}).
+ */
+public enum FormalismArea {
+
+    COMPONENTS, // System.components, System.predefLib, System.interface: component types, libraries and their types
+    ASSEMBLY, // System.assembly: instances, ports and links
+    MAPPING; // System.mapping: platforms, executables, threads, containers
+
+}
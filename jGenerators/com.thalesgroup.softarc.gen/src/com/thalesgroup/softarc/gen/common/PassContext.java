@@ -6,6 +6,7 @@ import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import technology.ecoa.model.deployment.DEApplication;
 
@@ -24,6 +25,10 @@ public class PassContext {
     public Map<String, Object> args = new HashMap<String, Object>();
     public HashSet<String> featureToggles = new HashSet<String>();
     public boolean isLDP;
+    /**
+     * Pool of worker threads available to the passes when feature toggle "parallel" is set, null otherwise.
+     */
+    public ForkJoinPool pool;
     
     public PassContext(Workspace workspace) {
         this.workspace = workspace;
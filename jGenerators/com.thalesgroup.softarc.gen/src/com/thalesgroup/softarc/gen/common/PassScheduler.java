@@ -0,0 +1,115 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.gen.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.LogRecord;
+
+/**
+ * Splits a sequence of passes into successive waves, based on the areas of the Formalism read and written by each pass (see
+ * {@link AbstractPass#dependsOn(AbstractPass)}).
+ * <p>
+ * All the passes of a wave are independent from each other, and depend only on passes of previous waves: they can be executed
+ * concurrently. A wave contains at most one pass modifying the Formalism, so that the dump of the Formalism done in verbose mode
+ * after such a pass is still meaningful.
+ */
+class PassScheduler {
+
+    interface PassRunner {
+        void run(AbstractPass pass) throws Exception;
+    }
+
+    private final List<List<AbstractPass>> waves = new ArrayList<List<AbstractPass>>();
+
+    PassScheduler(List<AbstractPass> passes) {
+        int[] levels = new int[passes.size()];
+
+        for (int i = 0; i < passes.size(); i++) {
+            AbstractPass pass = passes.get(i);
+
+            int level = 0;
+            for (int j = 0; j < i; j++) {
+                if (pass.dependsOn(passes.get(j)))
+                    level = Math.max(level, levels[j] + 1);
+            }
+            if (!pass.isReadOnly()) {
+                while (level < waves.size() && getWriter(waves.get(level)) != null)
+                    level++;
+            }
+
+            levels[i] = level;
+            while (waves.size() <= level)
+                waves.add(new ArrayList<AbstractPass>());
+            waves.get(level).add(pass);
+        }
+    }
+
+    List<List<AbstractPass>> getWaves() {
+        return waves;
+    }
+
+    /**
+     * @return the pass of the wave that modifies the Formalism, or null if the wave contains only read-only passes.
+     */
+    static AbstractPass getWriter(List<AbstractPass> wave) {
+        for (AbstractPass pass : wave) {
+            if (!pass.isReadOnly())
+                return pass;
+        }
+        return null;
+    }
+
+    /**
+     * Executes all the passes of a wave on the given pool, and waits for their completion. Generated files are reported in the
+     * order of the wave. If some passes fail, the error raised by the first of them (in the order of the wave) is rethrown, so
+     * that error reporting does not depend on thread scheduling.
+     */
+    static void executeConcurrently(final List<AbstractPass> wave, final PassRunner runner, ForkJoinPool pool)
+            throws Exception {
+        final Throwable[] failures = new Throwable[wave.size()];
+        final List<List<LogRecord>> reports = new ArrayList<List<LogRecord>>(Collections.nCopies(wave.size(), null));
+        final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+
+        for (int i = 0; i < wave.size(); i++) {
+            final int index = i;
+            tasks.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    AbstractPass pass = wave.get(index);
+                    pass.gen.deferReports();
+                    try {
+                        runner.run(pass);
+                    } catch (Throwable t) {
+                        failures[index] = t;
+                    } finally {
+                        reports.set(index, pass.gen.takeDeferredReports());
+                    }
+                }
+            });
+        }
+
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        for (int i = 0; i < wave.size(); i++) {
+            wave.get(i).gen.issueReports(reports.get(i));
+            Throwable t = failures[i];
+            if (t instanceof Exception)
+                throw (Exception) t;
+            if (t instanceof Error)
+                throw (Error) t;
+        }
+    }
+}
@@ -591,6 +591,24 @@ public class ImportComponent extends AbstractPass {
                     component.getTriggers().add(trig);
                 }
             }
+            for (technology.ecoa.model.implementation.MetaData m : ci.getMeta()) {
+                if (m.getName().equals("lockFreeRead")) {
+                    OperationData data = null;
+                    for (OperationData d : component.getReadData()) {
+                        if (d.getName().equals(m.getValue())) {
+                            data = d;
+                            break;
+                        }
+                    }
+                    if (data == null) {
+                        errorModel(
+                                "cannot resolve read data '%s' for meta 'lockFreeRead' in implementation '%s' of component type '%s'",
+                                m.getValue(), implName, typeName);
+                    } else {
+                        data.setLockFreeRead(true);
+                    }
+                }
+            }
             computeNamesForComponentOrLibrary(component);
            
             importUsedLibraries(component, new ComponentType(typeName, ct));
@@ -7,6 +7,7 @@ import java.util.Comparator;
 
 import com.thalesgroup.ecoa.model.ComponentType;
 import com.thalesgroup.ecoa.model.Language;
+import com.thalesgroup.ecoa.model.ModelLoader;
 import com.thalesgroup.ecoa.model.Models;
 import com.thalesgroup.softarc.gen.common.languageHandler.CLanguageHandler;
 import com.thalesgroup.softarc.sf.Assembly;
@@ -66,6 +67,11 @@ public class ImportComponentsCore extends ImportComponent {
         QSystem sys = new QSystem();
         context.system = sys;
 
+        // models are parsed in advance (concurrently if generation has a pool of threads), and then imported in the order of
+        // the instances
+        new ModelLoader(context.workspace).preloadModels(context.ASFILE,
+                context.pool != null ? context.pool : Runnable::run);
+
         // TR-SARC-GEN-REQ-099
         for (ASInstance i : context.ASFILE.getInstance()) {
             importComponent(i.getComponentType(), i.getImplementation());
@@ -6,13 +6,26 @@ import java.util.HashMap;
 import java.util.Iterator;
 
 import com.thalesgroup.softarc.gen.common.AbstractPass;
+import com.thalesgroup.softarc.gen.common.FormalismArea;
 import com.thalesgroup.softarc.gen.common.UniqueList;
 import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
 import com.thalesgroup.softarc.sf.Component;
 import com.thalesgroup.softarc.sf.TypeDefinition;
 
 public class CTypes extends AbstractPass {
 
+    @Override
+    public Set<FormalismArea> reads() {
+        return EnumSet.of(FormalismArea.COMPONENTS);
+    }
+
+    @Override
+    public Set<FormalismArea> writes() {
+        return EnumSet.of(FormalismArea.COMPONENTS);
+    }
+
     @Override
     public void execute() throws IOException {
 
@@ -6,13 +6,21 @@ import java.io.File;
 
 import com.thalesgroup.ecoa.model.Language;
 import com.thalesgroup.softarc.gen.common.AbstractGenerationPass;
+import com.thalesgroup.softarc.gen.common.FormalismArea;
 
 import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
 
 import com.thalesgroup.softarc.sf.Component;
 
 public class GenInitialize extends AbstractGenerationPass {
 
+    @Override
+    public Set<FormalismArea> reads() {
+        return EnumSet.of(FormalismArea.COMPONENTS);
+    }
+
     FilePathResolver fpr = new FilePathResolver();
 
     // =========================================================================
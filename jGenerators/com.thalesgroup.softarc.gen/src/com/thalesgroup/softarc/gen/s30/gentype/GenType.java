@@ -6,18 +6,27 @@ import java.io.File;
 
 import com.thalesgroup.ecoa.model.Language;
 import com.thalesgroup.softarc.gen.common.AbstractGenerationPass;
+import com.thalesgroup.softarc.gen.common.FormalismArea;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.EnumSet;
+import java.util.Set;
 
 import com.thalesgroup.softarc.sf.Component;
 import com.thalesgroup.softarc.sf.OperationRequestResponse;
 import com.thalesgroup.softarc.sf.TypeDefinition;
+import com.thalesgroup.softarc.tools.Utilities;
 
 public class GenType extends AbstractGenerationPass {
 
+    @Override
+    public Set<FormalismArea> reads() {
+        return EnumSet.of(FormalismArea.COMPONENTS);
+    }
+
     protected boolean generateJavaInterfaces = false;
     FilePathResolver fpr = new FilePathResolver();
 
@@ -68,7 +77,7 @@ public class GenType extends AbstractGenerationPass {
         else if (component.getIsRustComponent()) {
             generateFileFromTemplate(component, KindOfFile.COMPONENT_TYPES_HEADER_FILE, "component_types");
             generateFileFromTemplate(component, KindOfFile.COMPONENT_TYPES_CARGO_FILE, "cargo_types", "SOFTARC_HOME",
-                    System.getenv("SOFTARC_HOME"));
+                    Utilities.getenv("SOFTARC_HOME"));
         }
         // ADA, C, C++ types generation -----------------------
         else {
@@ -127,7 +136,7 @@ public class GenType extends AbstractGenerationPass {
             generateFileFromTemplate(component, KindOfFile.COMPONENT_ICONTAINER_FILE, "component_interface");
             generateFileFromTemplate(component, KindOfFile.COMPONENT_SOURCE_FILE, "component_source");
             generateFileFromTemplate(component, KindOfFile.COMPONENT_TYPES_CARGO_FILE, "cargo_types", "SOFTARC_HOME",
-                    System.getenv("SOFTARC_HOME"));
+                    Utilities.getenv("SOFTARC_HOME"));
 
             break;
 
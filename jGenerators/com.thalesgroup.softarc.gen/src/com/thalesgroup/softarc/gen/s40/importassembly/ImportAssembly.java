@@ -24,6 +24,7 @@ import technology.ecoa.model.assembly.ASOpRefWrite;
 import technology.ecoa.model.assembly.ASRequestResponseLink;
 import technology.ecoa.model.assembly.ASWhenCondition;
 import technology.ecoa.model.deployment.EStartMode;
+import technology.ecoa.model.deployment.MetaData;
 
 import com.thalesgroup.softarc.sf.Assembly;
 import com.thalesgroup.softarc.sf.Component;
@@ -466,6 +467,52 @@ public class ImportAssembly extends AbstractPass {
 
         m.setAutoStart(context.DEFILE.getStartMode() != EStartMode.NONE);
         m.setFastStart(context.DEFILE.getStartMode() == EStartMode.FAST);
+
+        // Transport of the messages between threads: Unix sockets (default), or rings in shared memory
+        String transport = "socket";
+        String metrics = "false";
+        String log = "sync";
+        String logFileSize = "10485760";
+        for (MetaData meta : context.DEFILE.getMeta()) {
+            if (meta.getName().equals("transport")) {
+                transport = meta.getValue();
+            } else if (meta.getName().equals("metrics")) {
+                metrics = meta.getValue();
+            } else if (meta.getName().equals("log")) {
+                log = meta.getValue();
+            } else if (meta.getName().equals("logFile")) {
+                m.setLogFile(meta.getValue());
+            } else if (meta.getName().equals("logFileSize")) {
+                logFileSize = meta.getValue();
+            }
+        }
+        if (transport.equals("ring")) {
+            info("Threads communicate through rings in shared memory");
+            m.setRingTransport(true);
+        } else if (!transport.equals("socket")) {
+            errorModel("unknown transport '%s' in deployment (allowed values: 'socket', 'ring')", transport);
+        }
+
+        // Runtime metrics of the executables, in shared memory
+        if (metrics.equals("true")) {
+            info("Runtime metrics are written in shared memory");
+            m.setMetrics(true);
+        } else if (!metrics.equals("false")) {
+            errorModel("invalid value '%s' of meta 'metrics' in deployment (allowed values: 'true', 'false')", metrics);
+        }
+
+        // Log of the executables: written by the calling threads (default), or by a logger thread of each executable
+        if (log.equals("async")) {
+            info("The log is written by a logger thread");
+            m.setAsyncLog(true);
+        } else if (!log.equals("sync")) {
+            errorModel("invalid value '%s' of meta 'log' in deployment (allowed values: 'sync', 'async')", log);
+        }
+        try {
+            m.setLogFileSize(Long.parseLong(logFileSize));
+        } catch (NumberFormatException e) {
+            errorModel("invalid value '%s' of meta 'logFileSize' in deployment (a number of bytes is expected)", logFileSize);
+        }
     }
 
 }
@@ -6,7 +6,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 
 import com.thalesgroup.softarc.gen.common.AbstractPass;
+import com.thalesgroup.softarc.gen.common.FormalismArea;
 import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
 import com.thalesgroup.softarc.sf.Assembly;
 import com.thalesgroup.softarc.sf.DataLink;
 import com.thalesgroup.softarc.sf.DataLinkElement;
@@ -28,6 +31,16 @@ import com.thalesgroup.softarc.sf.VariantField;
 
 public class CheckSignatures extends AbstractPass {
 
+    @Override
+    public Set<FormalismArea> reads() {
+        return EnumSet.of(FormalismArea.COMPONENTS, FormalismArea.ASSEMBLY);
+    }
+
+    @Override
+    public Set<FormalismArea> writes() {
+        return EnumSet.noneOf(FormalismArea.class);
+    }
+
     private ArrayList<String> problems = new ArrayList<>();
 
     @Override
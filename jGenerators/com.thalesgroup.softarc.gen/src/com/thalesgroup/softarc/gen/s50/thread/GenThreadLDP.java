@@ -36,12 +36,12 @@ public class GenThreadLDP extends AbstractPass {
     }
 
     /**
-     * Check max size for an operation
+     * Check max size for an operation (except for events and data written in shared memory)
      */
     private void checkOperationSize() {
         for (Component cmp : context.system.getComponents()) {
             for (Operation op : cmp.getOperations())
-                if (op.getSize() > SARC_LDP_MAX_OPERATION_SIZE)
+                if (op.getSize() > SARC_LDP_MAX_OPERATION_SIZE && !op.getLargePayload())
                     errorModel("Size of parameters of operation %s (%d kb) exceed LDP limitation (%d kb)", op.toString(),
                             op.getSize() / 1024, SARC_LDP_MAX_OPERATION_SIZE / 1024);
         }
@@ -7,6 +7,7 @@ import java.util.Map;
 
 import java.io.IOException;
 import com.thalesgroup.softarc.gen.s50.thread.sizing.OperationSizer;
+import com.thalesgroup.softarc.gen.s50.thread.sizing.PayloadSizer;
 import com.thalesgroup.softarc.sf.Assembly;
 import com.thalesgroup.softarc.sf.DataLink;
 import com.thalesgroup.softarc.sf.DataLinkElement;
@@ -116,11 +117,16 @@ public class OperationManager {
         return OPERATION_HEADER_SIZE + Math.max(operationCtxt.in.raw_size, operationCtxt.out.raw_size);
     }
 
+    // Large parameters of events and data are written in shared memory, and only their descriptor is sent
+
     private long bufferSizeEvent(OperationContext operationCtxt) {
-        return OPERATION_HEADER_SIZE + operationCtxt.in.raw_size;
+        return OPERATION_HEADER_SIZE + PayloadSizer.message_size(operationCtxt.in.raw_size);
     }
 
     private long bufferSizeData(OperationContext operationCtxt) {
+        if (PayloadSizer.is_large(operationCtxt.data.raw_size)) {
+            return OPERATION_HEADER_SIZE + PayloadSizer.message_size(operationCtxt.data.raw_size);
+        }
         return OPERATION_HEADER_SIZE + operationCtxt.in.raw_size;
     }
 
@@ -5,13 +5,18 @@ package com.thalesgroup.softarc.gen.s50.thread;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.thalesgroup.softarc.gen.common.AbstractPass;
 import com.thalesgroup.softarc.gen.common.IdAllocator;
+import com.thalesgroup.softarc.gen.s50.thread.sizing.PayloadSizer;
 import com.thalesgroup.softarc.gen.s50.thread.sizing.RequestQueueSizer;
+import com.thalesgroup.softarc.gen.s50.thread.sizing.RingSizer;
 import com.thalesgroup.softarc.gen.s50.thread.sizing.VrSetSizer;
 import com.thalesgroup.softarc.sf.Assembly;
 import com.thalesgroup.softarc.sf.DataLink;
@@ -45,6 +50,7 @@ import technology.ecoa.model.deployment.DEDeployedInstance;
 import technology.ecoa.model.deployment.DEExecutable;
 import technology.ecoa.model.deployment.DETask;
 import technology.ecoa.model.deployment.Endianness;
+import technology.ecoa.model.deployment.MetaData;
 
 public class ThreadManagerLDP {
 
@@ -380,7 +386,7 @@ public class ThreadManagerLDP {
                     if (oper != null) {
                         fifosize = receiver.getFifoSize();
                         request_sizer.add_request(
-                                eventLink.getId(), oper.in.raw_size, (long) fifosize);
+                                eventLink.getId(), PayloadSizer.message_size(oper.in.raw_size), (long) fifosize);
                     }
                 }
             }
@@ -490,6 +496,8 @@ public class ThreadManagerLDP {
 
                     thread.getReplies().addAll(reply_sizer.get_constraints());
 
+                    computeTimedMessagesCapacity(thread);
+
                     if (maxBufferOutSize > 0) {
                         thread.setMaxBufferOutSize(maxBufferOutSize);
                         thread.setHasBufferOut(true);
@@ -507,6 +515,10 @@ public class ThreadManagerLDP {
                 }
 
                 computeSocketOutBuffer(executable);
+
+                if (mapping.getRingTransport()) {
+                    computeRingSizes(executable);
+                }
             }
 
             // generate DataVersions for requests (events and services)
@@ -559,6 +571,10 @@ public class ThreadManagerLDP {
                         generator.errorModel("operation %s not found in operationsContexts !!", dataLink.getId());
                         return; // to avoid Java warning
                     }
+                    // versions of the pool of each thread: the versions above, and the
+                    // version where an update received from another thread is written
+                    long poolSize = count + 1;
+
                     if (dataLink.getDirect()) {
                         // Direct dataLink is explicitely managed with a single version.
                         count = 1;
@@ -571,6 +587,7 @@ public class ThreadManagerLDP {
                     dataversion.setXmlID(
                             "dataversion:" + platform.getName() + '/' + dataLink.getId());
                     dataversion.setNumberofversions(count);
+                    dataversion.setPoolSize(poolSize);
 
                     dataversion.setSizeof(oper.data.sizeof);
                     dataversion.setSize(oper.data.raw_size);
@@ -580,6 +597,8 @@ public class ThreadManagerLDP {
                 }
             }
         }
+
+        computePayloads();
     }
 
     boolean checkSizingOverflow() {
@@ -670,8 +689,93 @@ public class ThreadManagerLDP {
         // rattachement à l'exécutable dont il dépend
         binary.getThreads().add(thread);
 
+        // réception et émission des messages par lots
+        thread.setBatchSize(1);
+        // ordonnancement : politique, priorité, pile, CPUs autorisés
+        thread.setSchedulingPolicy("SCHED_OTHER");
+        for (MetaData meta : task.getMeta()) {
+            if (meta.getName().equals("batchSize")) {
+                try {
+                    thread.setBatchSize(Long.parseLong(meta.getValue()));
+                } catch (NumberFormatException e) {
+                    thread.setBatchSize(0);
+                }
+                if (thread.getBatchSize() < 1) {
+                    generator.errorModel("invalid batchSize '%s' for task %s (shall be a positive integer)", meta.getValue(),
+                            task.getName());
+                    thread.setBatchSize(1);
+                }
+            } else if (meta.getName().equals("policy")) {
+                switch (meta.getValue()) {
+                case "OTHER":
+                case "FIFO":
+                case "RR":
+                    thread.setSchedulingPolicy("SCHED_" + meta.getValue());
+                    break;
+                default:
+                    generator.errorModel("invalid policy '%s' for task %s (shall be OTHER, FIFO or RR)", meta.getValue(),
+                            task.getName());
+                }
+            } else if (meta.getName().equals("stackSize")) {
+                try {
+                    thread.setStack(Long.parseLong(meta.getValue()));
+                } catch (NumberFormatException e) {
+                    thread.setStack(-1);
+                }
+                if (thread.getStack() < 0) {
+                    generator.errorModel("invalid stackSize '%s' for task %s (shall be a number of bytes)", meta.getValue(),
+                            task.getName());
+                    thread.setStack(0);
+                }
+            } else if (meta.getName().equals("cpus")) {
+                parseCpus(thread, meta.getValue(), task);
+            }
+        }
+        if (thread.getBatchSize() > 1 && !mapping.getRingTransport()) {
+            thread.setIsBatched(true);
+            mapping.setHasBatchedThreads(true);
+        }
+
+        // la priorité relative n'a de sens que pour les politiques temps réel
+        if (task.getRelativePriority() != null) {
+            thread.setRelativePriority(task.getRelativePriority());
+        }
+        if (!thread.getSchedulingPolicy().equals("SCHED_OTHER")) {
+            thread.setPriority(Math.max(1, thread.getRelativePriority()));
+            if (thread.getPriority() > 99) {
+                generator.errorModel("invalid relativePriority %d for task %s (shall be in [1,99] with policy %s)",
+                        thread.getPriority(), task.getName(), thread.getSchedulingPolicy());
+                thread.setPriority(99);
+            }
+        }
+
         return thread;
     }
+
+    // Liste des CPUs d'une tâche, de la forme "0-3,8"
+
+    private void parseCpus(Thread thread, String value, DETask task) throws IOException {
+        for (String range : value.split(",")) {
+            String[] bounds = range.trim().split("-", 2);
+            try {
+                long first = Long.parseLong(bounds[0].trim());
+                long last = bounds.length == 1 ? first : Long.parseLong(bounds[1].trim());
+                if (first < 0 || last < first || last >= 1024) {
+                    throw new NumberFormatException();
+                }
+                for (long cpu = first; cpu <= last; cpu++) {
+                    if (!thread.getCpus().contains(Long.toString(cpu))) {
+                        thread.getCpus().add(Long.toString(cpu));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                generator.errorModel("invalid cpus '%s' for task %s (shall be a list of CPU numbers or ranges, e.g. 0-3,8)",
+                        value, task.getName());
+                thread.getCpus().clear();
+                return;
+            }
+        }
+    }
     
 
     private void computeSocketOutBuffer(Executable exec) {
@@ -680,14 +784,14 @@ public class ThreadManagerLDP {
     	for (EventLink eventLink : assembly.getEventLinks()) {
 			OperationContext oper = operationsContexts.get(eventLink.getId());
     		for(EventLinkReceiver receiver : eventLink.getReceivers()) {
-    			bufferSize += oper.in.raw_size * receiver.getFifoSize();
+    			bufferSize += PayloadSizer.message_size(oper.in.raw_size) * receiver.getFifoSize();
     		}
     	}
     	
     	for (DataLink dataLink : assembly.getDataLinks()) {
     		for(DataLinkElement receiver : dataLink.getReaders()) {
     			OperationContext oper = operationsContexts.get(dataLink.getId());
-    			bufferSize += oper.data.raw_size * dataLink.getThreadsLinked().size();
+    			bufferSize += PayloadSizer.message_size(oper.data.raw_size) * dataLink.getThreadsLinked().size();
     		}
     	}
 
@@ -703,6 +807,143 @@ public class ThreadManagerLDP {
     }
     
 
+    // Size of the header of messages (operation id, request id...), as in OperationManager
+    private static final long OPERATION_HEADER_SIZE = 16;
+
+    // Dimensionnement des anneaux de réception des threads (transport "ring"),
+    // à partir des requêtes et réponses dimensionnées par finalizeMapping()
+
+    private void computeRingSizes(Executable exec) {
+        long nbInstances = assembly.getInstances().size();
+
+        for (Thread thread : exec.getThreads()) {
+            RingSizer ring_sizer = new RingSizer();
+            RingSizer sync_ring_sizer = new RingSizer();
+
+            // Events, requests and asynchronous responses
+            for (Instance instance : thread.getInstances()) {
+                for (Request request : instance.getRequests()) {
+                    ring_sizer.add_messages(OPERATION_HEADER_SIZE + request.getParameterSize(), request.getCapacity());
+                }
+                // Settings and cancellations of triggers
+                ring_sizer.add_messages(OPERATION_HEADER_SIZE, 2 * instance.getTriggers().size());
+            }
+
+            // Published data (versions and notifications)
+            for (DataLink dataLink : assembly.getDataLinks()) {
+                long count = 0;
+                for (DataLinkElement reader : dataLink.getReaders()) {
+                    if (reader.getPort().getInstance().getThread() == thread) {
+                        count += Math.max(1, reader.getPort().getData().getMaxversions());
+                    }
+                }
+                OperationContext oper = operationsContexts.get(dataLink.getId());
+                if (oper != null) {
+                    ring_sizer.add_messages(OPERATION_HEADER_SIZE + PayloadSizer.message_size(oper.data.raw_size), count);
+                }
+            }
+
+            // Life cycle commands and state changes of all instances
+            ring_sizer.add_messages(OPERATION_HEADER_SIZE, 4 * nbInstances);
+
+            // Responses of synchronous requests
+            for (Request reply : thread.getReplies()) {
+                sync_ring_sizer.add_messages(OPERATION_HEADER_SIZE + reply.getParameterSize(), reply.getCapacity());
+            }
+
+            thread.setRingSize(ring_sizer.get_size());
+            thread.setSyncRingSize(sync_ring_sizer.get_size());
+        }
+    }
+
+    // Minimal number of timed messages of a thread
+    private static final long MIN_TIMED_MESSAGES_CAPACITY = 16;
+
+    // Dimensionnement du pool des messages datés d'un thread (armements des triggers
+    // et timeouts des requêtes asynchrones), à partir des requêtes dimensionnées
+    // par finalizeMapping() : au plus un message daté par requête en attente.
+
+    private void computeTimedMessagesCapacity(Thread thread) {
+        long capacity = 0;
+
+        for (Instance instance : thread.getInstances()) {
+            Set<Long> timedRequestIds = new HashSet<Long>();
+
+            for (TriggerInstance trig : instance.getTriggers()) {
+                timedRequestIds.add(trig.getRequestId());
+            }
+            for (RequestResponseLink serviceLink : assembly.getRequestResponseLinks()) {
+                RequestResponseLinkReceiver client = serviceLink.getClient();
+                OperationRequestResponse operation = client.getPort().getRequestResponse();
+                if (client.getPort().getInstance() == instance && operation.getIsAsynchronous() && operation.getIsTimed()) {
+                    // id of the callback
+                    timedRequestIds.add(serviceLink.getId() + 1);
+                }
+            }
+            for (Request request : instance.getRequests()) {
+                if (timedRequestIds.contains(request.getId())) {
+                    capacity += request.getCapacity();
+                }
+            }
+        }
+
+        thread.setTimedMessagesCapacity(Math.max(MIN_TIMED_MESSAGES_CAPACITY, capacity));
+    }
+
+    // Dimensionnement des slots en mémoire partagée des liens dont les paramètres
+    // sont trop gros pour circuler dans les messages (événements et données) :
+    // un slot n'est libéré que lorsque tous les threads destinataires ont traité
+    // son message.
+
+    private void computePayloads() {
+        for (EventLink eventLink : assembly.getEventLinks()) {
+            OperationContext oper = operationsContexts.get(eventLink.getId());
+            if (oper != null && PayloadSizer.is_large(oper.in.raw_size)) {
+                Map<ThreadBase, Long> pending = new HashMap<ThreadBase, Long>();
+                for (EventLinkReceiver receiver : eventLink.getReceivers()) {
+                    pending.merge(receiver.getPort().getInstance().getThread(), receiver.getFifoSize(), Long::sum);
+                    receiver.getPort().getEvent().setLargePayload(true);
+                }
+                for (EventLinkSender sender : eventLink.getSenders()) {
+                    sender.getPort().getEvent().setLargePayload(true);
+                }
+
+                PayloadSizer payload_sizer = new PayloadSizer();
+                pending.values().forEach(payload_sizer::add_destination);
+                payload_sizer.add_producers(eventLink.getSenders().size());
+
+                eventLink.setLargePayload(true);
+                eventLink.setPayloadSlots(payload_sizer.get_slots());
+                eventLink.setPayloadSize(oper.in.raw_size);
+                mapping.getPayloadLinks().add(eventLink);
+            }
+        }
+
+        for (DataLink dataLink : assembly.getDataLinks()) {
+            OperationContext oper = operationsContexts.get(dataLink.getId());
+            if (oper != null && PayloadSizer.is_large(oper.data.raw_size)) {
+                Map<ThreadBase, Long> pending = new HashMap<ThreadBase, Long>();
+                for (DataLinkElement reader : dataLink.getReaders()) {
+                    pending.merge(reader.getPort().getInstance().getThread(),
+                            Math.max(1, reader.getPort().getData().getMaxversions()), Long::sum);
+                    reader.getPort().getData().setLargePayload(true);
+                }
+                for (DataLinkElement writer : dataLink.getWriters()) {
+                    writer.getPort().getData().setLargePayload(true);
+                }
+
+                PayloadSizer payload_sizer = new PayloadSizer();
+                pending.values().forEach(payload_sizer::add_destination);
+                payload_sizer.add_producers(dataLink.getWriters().size());
+
+                dataLink.setLargePayload(true);
+                dataLink.setPayloadSlots(payload_sizer.get_slots());
+                dataLink.setPayloadSize(oper.data.raw_size);
+                mapping.getPayloadLinks().add(dataLink);
+            }
+        }
+    }
+
     private String checkThreadName(String name) {
         return name;
     }
@@ -0,0 +1,69 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.gen.s50.thread.sizing;
+
+// Classe utilitaire pour déterminer le nombre de slots en mémoire partagée
+// d'un lien dont les paramètres sont trop gros pour circuler dans les
+// messages (module sarc_payload) : seul un descripteur du slot circule.
+//
+// Le scénario pour déterminer le nombre de slots d'un lien est le suivant :
+//
+//  if (PayloadSizer.is_large (raw_size)) {
+//    ps = new PayloadSizer();
+//    ps.add_destination (count1);
+//     ...
+//    ps.add_destination (countN);
+//    ps.add_producers (nb_senders);
+//
+//    nb_slots = ps.get_slots ();
+//  }
+
+public class PayloadSizer {
+    // Minimal size, in bytes, of the parameters of a message for them to be written in a slot
+    private static final long min_payload_size = 64 * 1024;
+
+    // Size, in bytes, of the descriptor of a slot (index and generation), sent instead of the parameters
+    private static final long descriptor_size = 8;
+
+    // Maximum number of messages which could be buffered by a destination thread
+    private long max_pending = 0;
+
+    // Number of threads which could write parameters in a slot at the same time
+    private long producers = 0;
+
+    /**
+     * @return True if parameters of 'raw_size' bytes shall be written in a slot instead of the message.
+     */
+    public static boolean is_large(long raw_size) {
+        return raw_size >= min_payload_size;
+    }
+
+    /**
+     * @return Size, in bytes, of the parameters actually sent in a message for parameters of 'raw_size' bytes.
+     */
+    public static long message_size(long raw_size) {
+        return is_large(raw_size) ? descriptor_size : raw_size;
+    }
+
+    /**
+     * Take into account a destination thread, which could buffer 'p_count' messages of the link.
+     */
+    public void add_destination(long p_count) {
+        max_pending = Math.max(max_pending, p_count);
+    }
+
+    /**
+     * Take into account 'p_count' senders of the link.
+     */
+    public void add_producers(long p_count) {
+        producers += p_count;
+    }
+
+    /**
+     * @return Number of slots: a slot is only free when all the destination threads have handled its message, so there shall
+     *         be one for each message buffered by the slowest one, one for the message it is handling, and one for each sender.
+     */
+    public long get_slots() {
+        return max_pending + 1 + producers;
+    }
+}
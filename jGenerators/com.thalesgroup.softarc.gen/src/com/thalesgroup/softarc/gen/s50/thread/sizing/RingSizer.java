@@ -0,0 +1,54 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.gen.s50.thread.sizing;
+
+// Classe utilitaire pour déterminer la taille d'un anneau de messages géré
+// par le module sarc_ring (transport "ring" entre les threads).
+//
+// Le scénario pour déterminer la taille d'un anneau est le suivant :
+//
+//  rs = new RingSizer();
+//  rs.add_messages (size1, count1);
+//   ...
+//  rs.add_messages (sizeN, countN);
+//
+//  allocated_size = rs.get_size ();
+
+public class RingSizer {
+    // Size, in bytes, of SARC_RingRecord MW type (header of each message)
+    private static final long record_header_size = 8;
+
+    // Alignment, in bytes, of the messages in the ring
+    private static final long record_alignment = 8;
+
+    // Minimal size, in bytes, of a ring
+    private static final long min_size = 64 * 1024;
+
+    // Sum of the sizes of all the messages that could be buffered
+    private long size = 0;
+
+    // Size of the biggest message
+    private long max_record_size = 0;
+
+    /**
+     * Take into account a kind of messages. 'p_size' is the size of one message (including the operation header), 'p_count' the
+     * maximum number of such messages that could be buffered.
+     */
+    public void add_messages(long p_size, long p_count) {
+        if (p_count > 0) {
+            long record_size = (record_header_size + p_size + record_alignment - 1) / record_alignment * record_alignment;
+            size += record_size * p_count;
+            max_record_size = Math.max(max_record_size, record_size);
+        }
+    }
+
+    /**
+     * @return Size of the ring, in bytes: a power of 2, big enough for all the messages, and for the biggest one whatever the
+     *         position where it is written.
+     */
+    public long get_size() {
+        long result = Math.max(min_size, Math.max(size, 2 * max_record_size));
+
+        return Long.highestOneBit(result - 1) << 1;
+    }
+}
@@ -39,6 +39,40 @@ public class TypeSizer {
         type.setAlignment(result.alignment);
         type.setSize(result.raw_size);
         type.setSizeof(result.sizeof);
+
+        computeCopyability(type);
+    }
+
+    // Détermine si les valeurs du type peuvent être sérialisées par une
+    // simple copie (memcpy) de leur représentation en mémoire : il faut que
+    // le type ne contienne aucun octet de bourrage, ni aucun élément de
+    // taille variable (tableau, liste, map, chaîne).
+
+    private static void computeCopyability(TypeDefinition type) {
+        boolean isCompact = false;
+        boolean isByteOrderNeutral = false;
+
+        if (type.getIsSimple() || type.getIsEnum()) {
+            isCompact = type.getBaseType().getIsCompact();
+            isByteOrderNeutral = type.getBaseType().getIsByteOrderNeutral();
+        } else if (type.getIsPredef()) {
+            isCompact = true;
+            isByteOrderNeutral = type.getSize() == 1;
+        } else if (type.getIsFixedArray()) {
+            isCompact = type.getBaseType().getIsCompact();
+            isByteOrderNeutral = type.getBaseType().getIsByteOrderNeutral();
+        } else if (type.getIsRecord()) {
+            isCompact = type.getSize() == type.getSizeof();
+            isByteOrderNeutral = true;
+            for (Parameter field : type.getFields()) {
+                isCompact &= field.getType().getIsCompact();
+                isByteOrderNeutral &= field.getType().getIsByteOrderNeutral();
+            }
+        }
+
+        type.setIsCompact(isCompact);
+        type.setIsByteOrderNeutral(isCompact && isByteOrderNeutral);
+        type.setMaySerializeWithCopy(isCompact);
     }
 
     // Dimensionne un tableau de taille fixe
@@ -125,9 +159,19 @@ public class TypeSizer {
         item.add_field(value);
         item.finalize();
 
+        // followed by a hash index of the items, with at least twice as many
+        // slots as items (a power of 2), see sarc_map.c
+        long nb_slots = 1;
+        while (nb_slots < 2 * capacity) {
+            nb_slots *= 2;
+        }
+
         map.alignment = 8;
-        map.add_array(7 + capacity, uint32);
+        map.add_array(9 + capacity, uint32);
         map.add_array(capacity, item);
+        if (capacity > 0) {
+            map.add_array(nb_slots, uint32);
+        }
         map.finalize();
 
         // Insert map inside more global type
@@ -23,7 +23,9 @@ import com.thalesgroup.softarc.sf.LinkedInstanceData;
 import com.thalesgroup.softarc.sf.Mapping;
 import com.thalesgroup.softarc.sf.Operation;
 import com.thalesgroup.softarc.sf.OperationData;
+import com.thalesgroup.softarc.sf.OperationDispatch;
 import com.thalesgroup.softarc.sf.OperationGroup;
+import com.thalesgroup.softarc.sf.OperationHandler;
 import com.thalesgroup.softarc.sf.OperationLink;
 import com.thalesgroup.softarc.sf.OperationsMap;
 import com.thalesgroup.softarc.sf.OperationsMapEntry;
@@ -38,7 +40,9 @@ import com.thalesgroup.softarc.sf.impl.QContainer;
 import com.thalesgroup.softarc.sf.impl.QDataConnection;
 import com.thalesgroup.softarc.sf.impl.QLinkedInstance;
 import com.thalesgroup.softarc.sf.impl.QLinkedInstanceData;
+import com.thalesgroup.softarc.sf.impl.QOperationDispatch;
 import com.thalesgroup.softarc.sf.impl.QOperationGroup;
+import com.thalesgroup.softarc.sf.impl.QOperationHandler;
 import com.thalesgroup.softarc.sf.impl.QOperationsMap;
 import com.thalesgroup.softarc.sf.impl.QOperationsMapEntry;
 
@@ -160,21 +164,114 @@ public class ContainersCore extends AbstractPass {
                 if (!instance.getWrittenDataLinks().isEmpty()) {
                     thread.setPublishesData(true);
                 }
+            }
 
-                // Merge instance-specific operation groups into thread-level operation groups
+            // Merge instance-specific operation groups into thread-level operation groups
+            for (Instance instance : thread.getInstances()) {
+                for (OperationGroup instanceOpGroup : instance.getSortedOperations()) {
+                    OperationGroup threadOpGroup = findOperationGroup(instanceOpGroup.getReqId(),
+                            instanceOpGroup.getOperations().get(0), threadSortedOperationsMap);
+                    threadOpGroup.getOperations().addAll(instanceOpGroup.getOperations());
+                }
+            }
+            thread.getSortedOperations().addAll(threadSortedOperationsMap.values());
+
+            // Number the groups of the thread, in the order of their ids; the groups of its instances share these numbers
+            long index = 0;
+            for (OperationGroup threadOpGroup : thread.getSortedOperations()) {
+                LinkedHashSet<String> names = new LinkedHashSet<>();
+                for (OperationLink operation : threadOpGroup.getOperations()) {
+                    names.add(operation.getParent().getName() + '.' + operation.getPort().getOperation().getName());
+                }
+                threadOpGroup.setIndex(index++);
+                threadOpGroup.setName(String.join(",", names));
+            }
+            for (Instance instance : thread.getInstances()) {
                 for (OperationGroup instanceOpGroup : instance.getSortedOperations()) {
+                    OperationGroup threadOpGroup = threadSortedOperationsMap.get(instanceOpGroup.getReqId());
+                    instanceOpGroup.setIndex(threadOpGroup.getIndex());
+                    instanceOpGroup.setName(threadOpGroup.getName());
+                }
+            }
+        }
+    }
 
-                    long reqId = instanceOpGroup.getReqId();
-                    OperationGroup threadOpGroup = threadSortedOperationsMap.get(reqId);
-                    if (threadOpGroup == null) {
-                        threadOpGroup = new QOperationGroup();
-                        threadOpGroup.setReqId(reqId);
-                        threadSortedOperationsMap.put(reqId, threadOpGroup);
+    /**
+     * Number densely the operations handled by the instances of each thread, in the order of their ids, for the dispatch table of
+     * the thread. An operation is handled by all the instances of the thread having an operation group with its id, or a timer
+     * event with its id.
+     */
+    void createDispatchTables(Executable exec) {
+        for (Thread thread : exec.getThreads()) {
+            TreeMap<Long, OperationDispatch> dispatchMap = new TreeMap<>();
+
+            for (Instance instance : thread.getInstances()) {
+                if (instance.getType().getIsTimer()) {
+                    for (OperationLink eventLink : instance.getSentEventLinks()) {
+                        OperationHandler handler = new QOperationHandler();
+                        handler.setInstance(instance);
+                        handler.setTimerEvent(eventLink);
+                        findOperationDispatch(eventLink.getCallbackId(), dispatchMap).getHandlers().add(handler);
+                    }
+                } else {
+                    for (OperationGroup instanceOpGroup : instance.getSortedOperations()) {
+                        OperationHandler handler = new QOperationHandler();
+                        handler.setInstance(instance);
+                        handler.setGroup(instanceOpGroup);
+                        findOperationDispatch(instanceOpGroup.getReqId(), dispatchMap).getHandlers().add(handler);
                     }
-                    threadOpGroup.getOperations().addAll(instanceOpGroup.getOperations());
                 }
             }
+            thread.getDispatchTable().addAll(dispatchMap.values());
+
+            // index 0 is reserved for the ids which are not handled by the thread
+            long index = 1;
+            for (OperationDispatch dispatch : thread.getDispatchTable()) {
+                LinkedHashSet<String> names = new LinkedHashSet<>();
+                for (OperationHandler handler : dispatch.getHandlers()) {
+                    if (handler.getTimerEvent() != null) {
+                        names.add(handler.getInstance().getName() + '.' + handler.getTimerEvent().getEvent().getName());
+                    } else {
+                        names.add(handler.getGroup().getName());
+                    }
+                }
+                dispatch.setIndex(index++);
+                dispatch.setName(String.join(",", names));
+            }
+            thread.setDispatchModulo(computeDispatchModulo(dispatchMap.keySet()));
+        }
+    }
+
+    /**
+     * The operations are looked up in the dispatch table by the remainder of their id, which must be distinct for all of them. The
+     * smallest modulo is searched from the number of ids; it is at most the greatest id + 1.
+     */
+    private long computeDispatchModulo(Set<Long> ids) {
+        long modulo = Math.max(ids.size(), 1);
+        while (true) {
+            HashSet<Long> remainders = new HashSet<>();
+            boolean distinct = true;
+            for (long id : ids) {
+                if (!remainders.add(id % modulo)) {
+                    distinct = false;
+                    break;
+                }
+            }
+            if (distinct) {
+                return modulo;
+            }
+            modulo++;
+        }
+    }
+
+    private OperationDispatch findOperationDispatch(long operId, TreeMap<Long, OperationDispatch> dispatchMap) {
+        OperationDispatch dispatch = dispatchMap.get(operId);
+        if (dispatch == null) {
+            dispatch = new QOperationDispatch();
+            dispatch.setOperId(operId);
+            dispatchMap.put(operId, dispatch);
         }
+        return dispatch;
     }
 
     private OperationGroup findOperationGroup(long reqId, OperationLink operation,
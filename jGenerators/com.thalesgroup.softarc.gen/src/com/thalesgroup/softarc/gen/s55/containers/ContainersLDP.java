@@ -39,6 +39,8 @@ public class ContainersLDP extends ContainersCore {
         context.system.getMapping().setGlobalExecutable(exec);
 
         createSortedOperationsForInstances(exec.getInstances());
+        createSortedOperationsForThreads(exec);
+        createDispatchTables(exec);
 
         for (Platform platform : context.system.getMapping().getPlatforms()) {
             for (Executable e : platform.getExecutables()) {
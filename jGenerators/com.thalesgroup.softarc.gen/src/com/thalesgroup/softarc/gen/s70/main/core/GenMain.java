@@ -3,17 +3,19 @@
 package com.thalesgroup.softarc.gen.s70.main.core;
 
 import com.thalesgroup.softarc.gen.common.AbstractGenerationPass;
+import com.thalesgroup.softarc.gen.common.FormalismArea;
 import com.thalesgroup.softarc.sf.*;
 import com.thalesgroup.softarc.sf.Thread;
-import com.thalesgroup.softarc.tools.Utilities;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class GenMain extends AbstractGenerationPass {
 	
@@ -25,6 +27,15 @@ public class GenMain extends AbstractGenerationPass {
     FilepathResolver fpr;
     Mapping mapping;
 
+    /**
+     * The templates of the executables, threads and containers follow the mapping, the instances and their links in the
+     * assembly, and the component types (entry points, libraries, types). Like all generation passes, it writes nothing.
+     */
+    @Override
+    public Set<FormalismArea> reads() {
+        return EnumSet.of(FormalismArea.COMPONENTS, FormalismArea.ASSEMBLY, FormalismArea.MAPPING);
+    }
+
     @Override
     public void execute() throws IOException {
 
@@ -45,7 +56,14 @@ public class GenMain extends AbstractGenerationPass {
                 "sarc_launcher.c",
                 "sarc_task.c",
                 "sarc_pinfo.c",
-                "sarc_map.c" })
+                "sarc_map.c",
+                "sarc_ring.c",
+                "sarc_batch.c",
+                "sarc_event_loop.c",
+                "sarc_data_pool.c",
+                "sarc_payload.c",
+                "sarc_metrics.c",
+                "sarc_tracer.c" })
             //@formatter:on
             generateFile(new File(gendir, (file.endsWith(".h") ? INC_GEN_DIR : SRC_GEN_DIR) + file), TEMPLATE_CORE_DIR + file);
 
@@ -72,17 +90,20 @@ public class GenMain extends AbstractGenerationPass {
     // Executable-level files generation
     // =========================================================================
 
-    private void generateExecutableGlobal(Executable execWrap) throws IOException {
-        Map<String, Object> attributes = new HashMap<String, Object>();
-        attributes.put("exec", execWrap);
+    private void generateExecutableGlobal(final Executable execWrap) throws IOException {
 
         // Component threads routines
-        for (Thread thread : execWrap.getThreads()) {
-
-            attributes.put("thread", thread);
-            generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.EXEC_THREAD_SOURCE_FILE, thread), "core",
-            		null , "execThreadBody");
-        }
+        generateParts(execWrap.getThreads(), new PartGenerator<Thread>() {
+            @Override
+            public void generate(Thread thread) throws IOException {
+                Map<String, Object> attributes = new HashMap<String, Object>();
+                attributes.put("exec", execWrap);
+                attributes.put("thread", thread);
+                attributes.put("mapping", mapping);
+                generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.EXEC_THREAD_SOURCE_FILE, thread), "core",
+                		null , "execThreadBody");
+            }
+        });
 
     }
 
@@ -90,72 +111,78 @@ public class GenMain extends AbstractGenerationPass {
     // Component-level files generation
     // =========================================================================
 
-    private void generateAllForComponents(Executable execWrap) throws IOException {
-        Map<String, Object> attributes = new HashMap<String, Object>();
-
-        for (Container container : execWrap.getContainers()) {
+    private void generateAllForComponents(final Executable execWrap) throws IOException {
 
-            String apiVariant = container.getComponent().getApiVariant();
-            
-            attributes.put("container", container);
-            attributes.put("options", this.options);
+        // Each container is generated independently from the others (concurrently with feature toggle "parallel")
+        generateParts(execWrap.getContainers(), new PartGenerator<Container>() {
+            @Override
+            public void generate(Container container) throws IOException {
+                generateForContainer(execWrap, container);
+            }
+        });
+    }
 
-            // Component instance
-            generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_FACADE_FILE, container),
-                    "core", null, "facade");
-            
-            generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_INSTANCE_SOURCE_FILE, container),
-                    "core", apiVariant, "instanceBody");
+    private void generateForContainer(Executable execWrap, Container container) throws IOException {
+        Map<String, Object> attributes = new HashMap<String, Object>();
 
-            // Component container
-            // Necessary attribute for Triggers
-            List<List<Long>> liTrigId = getPendingRequestIds(container);
-            attributes.put("triggerPendingRequestIds", liTrigId);
-            attributes.put("mapping", mapping);
-            generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_CONTAINER_SOURCE_FILE, container),
-                    "core", apiVariant, "container");
-            attributes.remove("mapping");
-            attributes.remove("triggerPendingRequestIds");
-            attributes.remove("componentInstanceList");
-            
-            attributes.remove("options");
-            attributes.remove("operationsMap");
-
-            // Timer specific case
-            if (container.getComponent().getIsTimer()) {
-                if (!"SOFTARC_C".equals(apiVariant))
-                    errorModel("Periodic trigger components must have APIType='SOFTARC_C' but %s has APIType='%s'", container.getComponent().toString(), apiVariant);
-                // Timer body
-                generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_TIMER_SOURCE_FILE, container),
-                        "core", apiVariant, "timerBody");
+        String apiVariant = container.getComponent().getApiVariant();
+        
+        attributes.put("container", container);
+        attributes.put("options", this.options);
+
+        // Component instance
+        generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_FACADE_FILE, container),
+                "core", null, "facade");
+        
+        generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_INSTANCE_SOURCE_FILE, container),
+                "core", apiVariant, "instanceBody");
+
+        // Component container
+        // Necessary attribute for Triggers
+        List<List<Long>> liTrigId = getPendingRequestIds(container);
+        attributes.put("triggerPendingRequestIds", liTrigId);
+        attributes.put("mapping", mapping);
+        generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_CONTAINER_SOURCE_FILE, container),
+                "core", apiVariant, "container");
+        attributes.remove("mapping");
+        attributes.remove("triggerPendingRequestIds");
+        attributes.remove("componentInstanceList");
+        
+        attributes.remove("options");
+        attributes.remove("operationsMap");
+
+        // Timer specific case
+        if (container.getComponent().getIsTimer()) {
+            if (!"SOFTARC_C".equals(apiVariant))
+                errorModel("Periodic trigger components must have APIType='SOFTARC_C' but %s has APIType='%s'", container.getComponent().toString(), apiVariant);
+            // Timer body
+            generateFileFromTemplate(attributes, fpr.getFilePath(KindOfFile.COMPONENT_TIMER_SOURCE_FILE, container),
+                    "core", apiVariant, "timerBody");
+        }
+        // Supervisor specific case
+        if (container.getComponent().getIsSupervisor()) {
+            if (container.getComponent().getIsEcoa()) {
+                errorModel("Language C_ECOA is not allowed for SUPERVISOR component %s", container.getComponent()
+                        .getTypeName());
             }
-            // Supervisor specific case
-            if (container.getComponent().getIsSupervisor()) {
-                if (container.getComponent().getIsEcoa()) {
-                    errorModel("Language C_ECOA is not allowed for SUPERVISOR component %s", container.getComponent()
-                            .getTypeName());
-                }
-                attributes.clear();
-                attributes.put("componentType", container.getComponent());
-
-                attributes.put("mapping", mapping);
+            attributes.clear();
+            attributes.put("componentType", container.getComponent());
 
-                    generateFileFromTemplate(attributes,
-                            fpr.getFilePath(KindOfFile.COMPONENT_SUPERVISOR_CONSTANTS_HEADER_FILE, container.getComponent()),
-                            "core", apiVariant, "supervisorConstantsHeader");
-                attributes.remove("mapping");
+            attributes.put("mapping", mapping);
 
-                // TODO déplacer vers GenType
-                attributes.put("exec", execWrap);
+                generateFileFromTemplate(attributes,
+                        fpr.getFilePath(KindOfFile.COMPONENT_SUPERVISOR_CONSTANTS_HEADER_FILE, container.getComponent()),
+                        "core", apiVariant, "supervisorConstantsHeader");
+            attributes.remove("mapping");
 
-                generateExampleFileFromTemplate(attributes,
-                        fpr.getFilePath(KindOfFile.COMPONENT_SUPERVISOR_CHANGE_SOURCE_FILE, container.getComponent()),
-                        "supervisor", apiVariant, "onStateChangeBody");
-                attributes.remove("exec");
-            } // End of Supervisor specific case
+            // TODO déplacer vers GenType
+            attributes.put("exec", execWrap);
 
-            attributes.clear();
-        }
+            generateExampleFileFromTemplate(attributes,
+                    fpr.getFilePath(KindOfFile.COMPONENT_SUPERVISOR_CHANGE_SOURCE_FILE, container.getComponent()),
+                    "supervisor", apiVariant, "onStateChangeBody");
+            attributes.remove("exec");
+        } // End of Supervisor specific case
     }
 
     private List<List<Long>> getPendingRequestIds(Container container) {
@@ -204,6 +231,6 @@ public class GenMain extends AbstractGenerationPass {
         final InputStream stream = getClass().getClassLoader().getResourceAsStream(resourcePath);
         if (stream == null)
             throw new Error("Cannot load resource: " + resourcePath);
-        report(file, Utilities.createFileFromStream(file, stream));
+        createFileFromStream(file, stream);
     }
 }
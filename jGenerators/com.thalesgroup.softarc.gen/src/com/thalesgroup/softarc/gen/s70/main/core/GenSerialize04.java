@@ -6,8 +6,11 @@ import java.io.File;
 import java.util.LinkedHashSet;
 
 import com.thalesgroup.softarc.gen.common.AbstractGenerationPass;
+import com.thalesgroup.softarc.gen.common.FormalismArea;
 
 import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
 import com.thalesgroup.softarc.sf.Component;
 
 /**
@@ -17,6 +20,11 @@ import com.thalesgroup.softarc.sf.Component;
  */
 public class GenSerialize04 extends AbstractGenerationPass {
 
+    @Override
+    public Set<FormalismArea> reads() {
+        return EnumSet.of(FormalismArea.COMPONENTS, FormalismArea.MAPPING);
+    }
+
     FilepathResolver fpr;
 
     @Override
@@ -8,13 +8,20 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.thalesgroup.softarc.gen.common.AbstractGenerationPass;
+import com.thalesgroup.softarc.gen.common.FormalismArea;
 import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
 
 import com.thalesgroup.softarc.tools.ReportStatus;
-import com.thalesgroup.softarc.tools.Utilities;
 
 public class GenBuildLDP extends AbstractGenerationPass {
 
+    @Override
+    public Set<FormalismArea> reads() {
+        return EnumSet.of(FormalismArea.COMPONENTS);
+    }
+
     @Override
     public void execute() throws IOException {
 
@@ -36,6 +43,6 @@ public class GenBuildLDP extends AbstractGenerationPass {
         if (file.exists())
             report(file, ReportStatus.PRESERVED);
         else
-            report(file, Utilities.createFileFromStream(file, getClass().getClassLoader().getResourceAsStream(resourcePath)));
+            createFileFromStream(file, getClass().getClassLoader().getResourceAsStream(resourcePath));
     }
 }
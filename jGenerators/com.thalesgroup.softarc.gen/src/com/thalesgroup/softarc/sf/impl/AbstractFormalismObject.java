@@ -55,7 +55,7 @@ public class AbstractFormalismObject {
     }
 
     static boolean isReference(Field f) {
-        return ((f.getModifiers() & Modifier.PROTECTED) == 0);
+        return f.getAnnotation(contains.class) == null;
     }
 
     static Class<?> getSimpleType(Field f) {
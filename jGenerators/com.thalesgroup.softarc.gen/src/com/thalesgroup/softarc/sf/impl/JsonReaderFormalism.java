@@ -0,0 +1,156 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.sf.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.thalesgroup.softarc.sf.System;
+import com.thalesgroup.softarc.tools.json.JsonReader;
+
+/**
+ * Reader of a dump of the formalism written by {@link JsonWriterFormalism}, e.g. the file 'formalism.json' saved by GenSoftarc at
+ * the end of the generation, to exploit the formalism outside of GenSoftarc.
+ *
+ * The contained objects are created with their classes Q*, and the references are resolved after the whole dump is read, by
+ * their names as written in the dump (i.e. their 'xmlID', 'name' or 'id'), among the objects of the type of the reference.
+ * References to objects which are not identified in the dump (i.e. without any of these fields, or with an undefined 'xmlID')
+ * remain null.
+ */
+public class JsonReaderFormalism {
+
+    private static final String IMPL_PREFIX = JsonReaderFormalism.class.getPackage().getName() + ".Q";
+
+    /** References to resolve, once all the objects are created */
+    private static class Reference {
+        final AbstractFormalismObject object;
+        final Field field;
+        final Object names; // a String, or a List of Strings
+
+        Reference(AbstractFormalismObject object, Field field, Object names) {
+            this.object = object;
+            this.field = field;
+            this.names = names;
+        }
+    }
+
+    private final List<Reference> references = new ArrayList<>();
+    private final Map<String, List<AbstractFormalismObject>> objectsByName = new HashMap<>();
+
+    /**
+     * Reads a dump of the whole formalism, from its root object.
+     */
+    public static System read(File file) throws IOException {
+        Object json;
+        try (BufferedReader in = new BufferedReader(new FileReader(file), 32 * 1024)) {
+            json = new JsonReader(in).read();
+        }
+        if (!(json instanceof Map)) {
+            throw new IOException(file + " is not a dump of the formalism");
+        }
+        JsonReaderFormalism reader = new JsonReaderFormalism();
+        System system = (System) reader.readObject(asMap(json), System.class);
+        reader.resolveReferences();
+        return system;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object json) {
+        return (Map<String, Object>) json;
+    }
+
+    private AbstractFormalismObject readObject(Map<String, Object> json, Class<?> type) throws IOException {
+        AbstractFormalismObject obj;
+        try {
+            obj = (AbstractFormalismObject) Class.forName(IMPL_PREFIX + type.getSimpleName()).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("cannot create an object of type " + type.getSimpleName(), e);
+        }
+
+        // the fields which are not in the dump keep their default value
+        for (Field f : obj.getObjectFields()) {
+            Object value = json.get(f.getName());
+            if (value != null) {
+                try {
+                    readField(obj, f, value);
+                } catch (IllegalAccessException | ClassCastException e) {
+                    throw new IOException("invalid value of field " + type.getSimpleName() + "." + f.getName(), e);
+                }
+            }
+        }
+
+        objectsByName.computeIfAbsent(obj.toString(), k -> new ArrayList<>()).add(obj);
+        return obj;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readField(AbstractFormalismObject obj, Field f, Object value) throws IOException, IllegalAccessException {
+        final Class<?> type = AbstractFormalismObject.getSimpleType(f);
+
+        if (type.isInterface()) {
+            if (AbstractFormalismObject.isReference(f)) {
+                references.add(new Reference(obj, f, value));
+            } else if (AbstractFormalismObject.isMultiple(f)) {
+                List<Object> list = (List<Object>) f.get(obj);
+                for (Object element : (List<Object>) value) {
+                    list.add(readObject(asMap(element), type));
+                }
+            } else {
+                f.set(obj, readObject(asMap(value), type));
+            }
+        } else if (AbstractFormalismObject.isMultiple(f)) {
+            List<Object> list = (List<Object>) f.get(obj);
+            for (Object element : (List<Object>) value) {
+                list.add(type == Long.class ? (Object) ((Number) element).longValue() : (Object) element.toString());
+            }
+        } else if (type == long.class || type == Long.class) {
+            f.set(obj, ((Number) value).longValue());
+        } else if (type == boolean.class) {
+            f.set(obj, (Boolean) value);
+        } else {
+            f.set(obj, value.toString());
+        }
+    }
+
+    private AbstractFormalismObject find(String name, Class<?> type) {
+        if (name.equals("UNDEFINED")) {
+            return null;
+        }
+        for (AbstractFormalismObject candidate : objectsByName.getOrDefault(name, new ArrayList<>())) {
+            if (type.isInstance(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resolveReferences() throws IOException {
+        for (Reference r : references) {
+            final Class<?> type = AbstractFormalismObject.getSimpleType(r.field);
+            try {
+                if (AbstractFormalismObject.isMultiple(r.field)) {
+                    List<Object> list = (List<Object>) r.field.get(r.object);
+                    for (Object name : (List<Object>) r.names) {
+                        AbstractFormalismObject target = find(name.toString(), type);
+                        if (target != null) {
+                            list.add(target);
+                        }
+                    }
+                } else {
+                    r.field.set(r.object, find(r.names.toString(), type));
+                }
+            } catch (IllegalAccessException | ClassCastException e) {
+                throw new IOException("invalid reference in field " + r.field.getName(), e);
+            }
+        }
+        references.clear();
+    }
+}
@@ -2,10 +2,10 @@
 
 package com.thalesgroup.softarc.sf.impl;
 
-//import java.lang.annotation.Retention;
-//import java.lang.annotation.RetentionPolicy;
-//
-//@Retention(RetentionPolicy.RUNTIME)
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@Retention(RetentionPolicy.RUNTIME)
 
 public @interface contains {
 
@@ -0,0 +1,152 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.types;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.thalesgroup.softarc.sf.Parameter;
+import com.thalesgroup.softarc.sf.TypeDefinition;
+import com.thalesgroup.softarc.sf.VariantField;
+
+/**
+ * Reader of values serialized by the generated C code (functions *_serialize), e.g. the parameters of the messages recorded in
+ * the trace of an application (see {@link TraceDecoder}).
+ *
+ * The bytes are read in the order of the given buffer (the native order, unless SARC_SERIAL_BYTE_SWAP is defined). The sizes of
+ * arrays and strings are uint32.
+ */
+public class BinaryValueReader extends AbstractValueReader {
+
+    private ByteBuffer buffer;
+
+    public BinaryValueReader() {
+        super(false);
+    }
+
+    /**
+     * Reads a value of the given type, from the current position of the buffer, which is moved after the value.
+     */
+    public Value read(ByteBuffer input, TypeDefinition type) throws SyntaxError {
+        buffer = input;
+        try {
+            return read(type);
+        } catch (BufferUnderflowException e) {
+            error("value of type %s is truncated", type.getName());
+            return null;
+        }
+    }
+
+    private int readSize(TypeDefinition type, long maxSize) throws SyntaxError {
+        long size = buffer.getInt() & 0xFFFFFFFFL;
+        if (size > maxSize) {
+            error("invalid size %d for type %s (max : %d)", size, type.getName(), maxSize);
+        }
+        return (int) size;
+    }
+
+    @Override
+    protected Value readInteger(TypeDefinition type) throws SyntaxError {
+        switch (type.getName()) {
+        case "int8":
+            return new IntegerValue(type, buffer.get());
+        case "uint8":
+            return new IntegerValue(type, buffer.get() & 0xFFL);
+        case "int16":
+            return new IntegerValue(type, buffer.getShort());
+        case "uint16":
+            return new IntegerValue(type, buffer.getShort() & 0xFFFFL);
+        case "int32":
+            return new IntegerValue(type, buffer.getInt());
+        case "uint32":
+            return new IntegerValue(type, buffer.getInt() & 0xFFFFFFFFL);
+        case "int64":
+        case "uint64":
+            return new IntegerValue(type, buffer.getLong());
+        default:
+            error("Cannot read type %s", type.getName());
+            return null;
+        }
+    }
+
+    @Override
+    protected Value readBoolean(TypeDefinition type) throws SyntaxError {
+        return new IntegerValue(type, buffer.get() & 0xFFL);
+    }
+
+    @Override
+    protected Value readCharacter(TypeDefinition type) throws SyntaxError {
+        return new IntegerValue(type, buffer.get() & 0xFFL);
+    }
+
+    @Override
+    protected Value readFloat(TypeDefinition type) throws SyntaxError {
+        return new FloatValue(type, buffer.getFloat());
+    }
+
+    @Override
+    protected Value readDouble(TypeDefinition type) throws SyntaxError {
+        return new DoubleValue(type, buffer.getDouble());
+    }
+
+    @Override
+    protected Value readEnum(TypeDefinition type) throws SyntaxError {
+        long num = read(type.getRealType()).toIntegerKey();
+        EnumerationValue v = TypeSystem.getEnumWrapper(type).mapNumberKey.get(num);
+        if (v == null)
+            error("invalid enum value for %s: %d", type, num);
+        return v;
+    }
+
+    @Override
+    protected Value readArray(TypeDefinition type, int minSize, int maxSize) throws SyntaxError {
+        int size = minSize == maxSize ? maxSize : readSize(type, maxSize);
+        ArrayValue a = new ArrayValue(type, size);
+        for (int i = 0; i < size; i++) {
+            a.v[i] = read(type.getBaseType());
+        }
+        return a;
+    }
+
+    @Override
+    protected Value readRecord(TypeDefinition type) throws SyntaxError {
+        RecordValue r = new RecordValue(type);
+        int i = 0;
+        for (Parameter field : type.getFields()) {
+            r.fields[i++] = read(field.getType());
+        }
+        return r;
+    }
+
+    @Override
+    protected Value readVariant(TypeDefinition type) throws SyntaxError {
+        VariantValue vv = new VariantValue(type);
+        TypeDefinition selectType = type.getBaseType();
+        vv.selector = read(selectType);
+        long selectorKey = vv.selector.toIntegerKey();
+        int i = 0;
+        for (Parameter field : type.getFields()) {
+            vv.fields[i++] = read(field.getType());
+        }
+        Parameter union = type.getDefaultUnionField();
+        for (VariantField unionfield : type.getUnionFields()) {
+            if (selectorKey == ValueReader.parseValue(unionfield.getWhen(), selectType).toIntegerKey()) {
+                union = unionfield;
+                break;
+            }
+        }
+        if (union != null) {
+            vv.union = read(union.getType());
+            vv.unionName = union.getName();
+        }
+        return vv;
+    }
+
+    @Override
+    protected Value readString(TypeDefinition type) throws SyntaxError {
+        byte[] bytes = new byte[readSize(type, type.getLength())];
+        buffer.get(bytes);
+        return new StringValue(type, new String(bytes, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,339 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.types;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.thalesgroup.softarc.sf.Executable;
+import com.thalesgroup.softarc.sf.Instance;
+import com.thalesgroup.softarc.sf.OperationGroup;
+import com.thalesgroup.softarc.sf.OperationLink;
+import com.thalesgroup.softarc.sf.Parameter;
+import com.thalesgroup.softarc.sf.Thread;
+import com.thalesgroup.softarc.sf.impl.JsonReaderFormalism;
+
+/**
+ * Decoder of the trace of the messages handled by the tasks of an LDP application (see sarc_tracer.c).
+ *
+ * <p>
+ * The trace is read in the shared-memory segment '/dev/shm/sarc_trace_&lt;deployment&gt;', and decoded with the formalism of the
+ * application, saved by the generator in '04-Integration/&lt;deployment&gt;/formalism.json' (with feature toggle "trace", or in
+ * verbose mode): each record is printed with its date, its task, its operation, the instance which handled it, and its
+ * parameters (or their first bytes, which are recorded in the trace).
+ *
+ * <pre>
+ * java -cp $SOFTARC_HOME/jGenerators/bin com.thalesgroup.softarc.types.TraceDecoder &lt;deployment&gt; &lt;formalism.json&gt;
+ * java -cp $SOFTARC_HOME/jGenerators/bin com.thalesgroup.softarc.types.TraceDecoder &lt;deployment&gt; on|off
+ * </pre>
+ *
+ * The second form starts or stops the recording, while the application is running. The segment is kept after the end of the
+ * application, until its next start.
+ */
+public class TraceDecoder {
+
+    private static final int MAGIC = 0x54524143;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RING_HEADER_SIZE = 64;
+    private static final int ENABLED_OFFSET = 28;
+
+    // Fields of a record (SARC_TracerRecord)
+    private static final int SEQ = 0;
+    private static final int TIME = 8;
+    private static final int TASK = 16;
+    private static final int OPER_ID = 20;
+    private static final int INSTANCE = 24;
+    private static final int SIZE = 28;
+    private static final int PAYLOAD = 32;
+
+    // Messages of the runtime (see SARC_OP_* in sarc_ldp_internal.h)
+    private static final int OP_LIFECYCLE_COMMAND = 33;
+    private static final int OP_LIFECYCLE_INFO = 34;
+    private static final int OP_REQUEST_REPONSE_TIMEOUT = 35;
+    private static final int OP_TIMED_MESSAGE = 36;
+
+    private final ByteBuffer _segment;
+    private final String _application;
+    private final int _pid;
+    private final int _nbTasks;
+    private final int _nbRecords;
+    private final int _recordSize;
+    private final int _payloadSize;
+    private final long _startTime;
+
+    private final Map<Long, Thread> _threads = new HashMap<>();
+    private final Map<Long, Instance> _instances = new HashMap<>();
+
+    /**
+     * Maps the trace segment of an application.
+     *
+     * @param file the segment (in /dev/shm)
+     * @param write true to map it for writing (to start or stop the recording)
+     * @throws IOException if the file cannot be mapped, or is not a trace segment of a supported version
+     */
+    public TraceDecoder(File file, boolean write) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, write ? "rw" : "r"); FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            _segment = buffer.order(ByteOrder.nativeOrder());
+        }
+        if (_segment.capacity() < HEADER_SIZE || _segment.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a trace segment, or it is not initialized yet");
+        }
+        if (_segment.getInt(4) != VERSION) {
+            throw new IOException(file + ": unsupported version " + _segment.getInt(4));
+        }
+        _nbTasks = _segment.getInt(8);
+        _nbRecords = _segment.getInt(12);
+        _recordSize = _segment.getInt(16);
+        _payloadSize = _segment.getInt(20);
+        _pid = _segment.getInt(24);
+        _startTime = _segment.getLong(32);
+        _application = getName(40, 24);
+    }
+
+    private String getName(int offset, int size) {
+        int length = 0;
+        while (length < size && _segment.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = _segment.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int ringOffset(int task) {
+        return HEADER_SIZE + task * (RING_HEADER_SIZE + _nbRecords * _recordSize);
+    }
+
+    /**
+     * Starts or stops the recording.
+     */
+    public void enable(boolean enabled) {
+        _segment.putInt(ENABLED_OFFSET, enabled ? 1 : 0);
+    }
+
+    /**
+     * Reads the formalism of the application, to decode its records.
+     */
+    public void setFormalism(com.thalesgroup.softarc.sf.System system) {
+        for (Executable exec : system.getMapping().getExecutables()) {
+            for (Thread thread : exec.getThreads()) {
+                _threads.put(thread.getIdNo(), thread);
+            }
+        }
+        for (Instance instance : system.getAssembly().getInstances()) {
+            _instances.put(instance.getIdNo(), instance);
+        }
+    }
+
+    /**
+     * @return the offsets of the valid records of all the tasks, by date
+     */
+    private List<Integer> getRecords() {
+        List<Integer> records = new ArrayList<>();
+        for (int task = 0; task < _nbTasks; task++) {
+            int ring = ringOffset(task);
+            long head = _segment.getLong(ring);
+            for (long position = Math.max(0, head - _nbRecords); position < head; position++) {
+                int record = ring + RING_HEADER_SIZE + (int) (position & (_nbRecords - 1)) * _recordSize;
+                // a record which is being written, or already overwritten, has another sequence number
+                if (_segment.getLong(record + SEQ) == position + 1) {
+                    records.add(record);
+                }
+            }
+        }
+        records.sort(Comparator.comparingLong(record -> _segment.getLong(record + TIME)));
+        return records;
+    }
+
+    /**
+     * Prints the records of the trace.
+     */
+    public void print(PrintStream out) {
+        out.printf("application %s (pid %d), recording %s%n", _application, _pid,
+                _segment.getInt(ENABLED_OFFSET) != 0 ? "enabled" : "disabled");
+        out.printf("  %14s %-20s %6s %-40s %-20s %8s  %s%n", "time (ms)", "task", "id", "operation", "instance", "size",
+                "parameters");
+        for (int record : getRecords()) {
+            // the record is copied, as it can be overwritten meanwhile by the application
+            ByteBuffer copy = ByteBuffer.allocate(_recordSize).order(_segment.order());
+            for (int i = 0; i < _recordSize; i++) {
+                copy.put(i, _segment.get(record + i));
+            }
+            if (copy.getLong(SEQ) == _segment.getLong(record + SEQ)) {
+                printRecord(out, copy);
+            }
+        }
+    }
+
+    private void printRecord(PrintStream out, ByteBuffer record) {
+        long time = record.getLong(TIME);
+        long task = record.getInt(TASK) & 0xFFFFFFFFL;
+        int operId = record.getInt(OPER_ID);
+        Instance instance = _instances.get((long) record.getInt(INSTANCE));
+        long size = record.getInt(SIZE) & 0xFFFFFFFFL;
+        Thread thread = _threads.get(task);
+
+        // parameters recorded in the trace: the message, after its operation id
+        int length = (int) Math.min(Math.max(size - 4, 0), _payloadSize);
+        ByteBuffer payload = ByteBuffer.allocate(length).order(record.order());
+        for (int i = 0; i < length; i++) {
+            payload.put(i, record.get(PAYLOAD + i));
+        }
+
+        String operation;
+        String parameters;
+        OperationGroup group = findGroup(thread, instance, operId);
+        OperationLink link = findTimerLink(instance, operId);
+        if (group != null && !group.getOperations().isEmpty()) {
+            operation = group.getName();
+            parameters = decode(group, payload, length < size - 4);
+        } else if (link != null) {
+            operation = instance.getName() + "." + link.getEvent().getName();
+            parameters = "";
+        } else {
+            operation = getRuntimeOperation(operId);
+            parameters = operation.startsWith("?") ? "" : decodeRuntime(operId, payload);
+        }
+
+        out.printf("  %14.3f %-20s %6d %-40s %-20s %8d  %s%n", (time - _startTime) / 1e6,
+                thread == null ? "task " + task : thread.getName(), operId, operation,
+                instance == null ? "-" : instance.getName(), size, parameters);
+    }
+
+    private static OperationGroup findGroup(Thread thread, Instance instance, int operId) {
+        Collection<OperationGroup> groups = instance != null ? instance.getSortedOperations()
+                : thread != null ? thread.getSortedOperations() : new ArrayList<OperationGroup>();
+        for (OperationGroup group : groups) {
+            if (group.getReqId() == operId) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    private static OperationLink findTimerLink(Instance instance, int operId) {
+        if (instance != null && instance.getType() != null && instance.getType().getIsTimer()) {
+            for (OperationLink link : instance.getSentEventLinks()) {
+                if (link.getCallbackId() == operId && link.getEvent() != null) {
+                    return link;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getRuntimeOperation(int operId) {
+        switch (operId) {
+        case OP_LIFECYCLE_COMMAND:
+            return "(lifecycle command)";
+        case OP_LIFECYCLE_INFO:
+            return "(lifecycle info)";
+        case OP_REQUEST_REPONSE_TIMEOUT:
+            return "(request-response timeout)";
+        case OP_TIMED_MESSAGE:
+            return "(timed message)";
+        default:
+            return "?";
+        }
+    }
+
+    private String decodeRuntime(int operId, ByteBuffer payload) {
+        if ((operId == OP_LIFECYCLE_COMMAND || operId == OP_LIFECYCLE_INFO) && payload.capacity() >= 8) {
+            Instance instance = _instances.get((long) payload.getInt(0));
+            return String.format("instance=%s %s=%d", instance == null ? payload.getInt(0) : instance.getName(),
+                    operId == OP_LIFECYCLE_COMMAND ? "command" : "state", payload.getInt(4));
+        }
+        return hex(payload);
+    }
+
+    /**
+     * Decodes the parameters of a message, according to the kind of the operation (all the links of a group have the same
+     * parameters).
+     */
+    private String decode(OperationGroup group, ByteBuffer payload, boolean truncated) {
+        OperationLink link = group.getOperations().get(0);
+        if (link.getDataLink() != null && link.getDataLink().getLargePayload()
+                || link.getEventLink() != null && link.getEventLink().getLargePayload()) {
+            return "(in a slot of shared memory)";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        BinaryValueReader reader = new BinaryValueReader();
+        try {
+            if (group.getIsReceivedEvent() && link.getEvent() != null) {
+                decodeParameters(sb, reader, payload, link.getEvent().getInParameters());
+            } else if (group.getIsDataRead() && link.getData() != null) {
+                sb.append(new ValueWriter().write(reader.read(payload, link.getData().getType())));
+            } else if (group.getIsProvidedRequestResponse() && link.getRequestResponse() != null) {
+                sb.append("request ").append(payload.getInt() & 0xFFFFFFFFL);
+                decodeParameters(sb, reader, payload, link.getRequestResponse().getInParameters());
+            } else if (group.getIsRequiredRequestResponse() && link.getRequestResponse() != null) {
+                sb.append("response ").append(payload.getInt() & 0xFFFFFFFFL);
+                decodeParameters(sb, reader, payload, link.getRequestResponse().getOutParameters());
+            } else {
+                return hex(payload);
+            }
+        } catch (Exception e) {
+            // the recorded bytes end in the middle of a parameter, or do not match the formalism
+            return sb.append(sb.length() == 0 ? "" : " ").append(truncated ? "..." : "(" + e.getMessage() + ")").toString();
+        }
+        return truncated ? sb.append(" ...").toString() : sb.toString();
+    }
+
+    private static void decodeParameters(StringBuilder sb, BinaryValueReader reader, ByteBuffer payload,
+            Collection<Parameter> parameters) throws Exception {
+        for (Parameter p : parameters) {
+            if (sb.length() != 0) {
+                sb.append(' ');
+            }
+            sb.append(p.getName()).append('=');
+            sb.append(new ValueWriter().write(reader.read(payload, p.getType())));
+        }
+    }
+
+    private static String hex(ByteBuffer payload) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < payload.capacity(); i++) {
+            sb.append(String.format("%02x", payload.get(i)));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: TraceDecoder <deployment> <formalism.json>");
+            System.err.println("       TraceDecoder <deployment> on|off");
+            System.exit(2);
+        }
+        File file = new File(args[0]);
+        if (!file.isFile()) {
+            file = new File("/dev/shm/sarc_trace_" + args[0]);
+        }
+
+        if (args[1].equals("on") || args[1].equals("off")) {
+            new TraceDecoder(file, true).enable(args[1].equals("on"));
+        } else {
+            TraceDecoder decoder = new TraceDecoder(file, false);
+            decoder.setFormalism(JsonReaderFormalism.read(new File(args[1])));
+            decoder.print(System.out);
+        }
+    }
+}
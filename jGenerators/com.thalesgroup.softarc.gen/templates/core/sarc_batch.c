@@ -0,0 +1,120 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+/* Reception and emission of messages by batches, for tasks of the socket
+   transport which have a batch size greater than 1.
+
+   A batched task receives up to 'batch size' messages per system call,
+   and while it processes them, the messages it sends are stored in its
+   send batch, which is flushed (with a single system call) when it is
+   full, before the task waits for the response of a synchronous request,
+   and after the processing of the received messages. */
+
+#define _GNU_SOURCE
+#include "sarc_ldp.h"
+
+__thread SARC_SendBatch *SARC_current_send_batch = NULL;
+
+int
+SARC_receive_batch (int socket, void *buffers, SARC_uint32 buffer_size, SARC_uint32 count, SARC_uint32 * sizes)
+{
+  struct mmsghdr msgs[count];
+  struct iovec iovs[count];
+  int nb_msg;
+
+  for (SARC_uint32 i = 0; i < count; i++)
+    {
+      iovs[i].iov_base = (SARC_char8 *) buffers + i * buffer_size;
+      iovs[i].iov_len = buffer_size;
+      memset (&msgs[i].msg_hdr, 0, sizeof (struct msghdr));
+      msgs[i].msg_hdr.msg_iov = &iovs[i];
+      msgs[i].msg_hdr.msg_iovlen = 1;
+    }
+
+  /* The socket is ready (see sarc_event_loop.c): do not wait */
+  nb_msg = recvmmsg (socket, msgs, count, MSG_DONTWAIT, NULL);
+
+  for (int i = 0; i < nb_msg; i++)
+    {
+      sizes[i] = msgs[i].msg_len;
+    }
+  return nb_msg;
+}
+
+ssize_t
+SARC_send_batch_add (SARC_SendBatch * batch, SARC_int32 task, const struct sockaddr_un *addr, const void *message,
+                     SARC_uint32 size)
+{
+  if (batch->count == SARC_SEND_BATCH_MAX_MESSAGES || batch->used + size > SARC_SEND_BATCH_DATA_SIZE)
+    {
+      SARC_send_batch_flush (batch);
+    }
+  if (size > SARC_SEND_BATCH_DATA_SIZE)
+    {
+      /* too big to be batched */
+      return sendto (SARC_socket_out, message, size, 0, (const struct sockaddr *) addr, sizeof (struct sockaddr_un));
+    }
+
+  SARC_BatchedMessage *m = &batch->messages[batch->count++];
+  m->task = task;
+  m->addr = addr;
+  m->offset = batch->used;
+  m->size = size;
+  memcpy (batch->data + batch->used, message, size);
+  /* keep messages aligned */
+  batch->used += (size + 7) & ~7U;
+  return size;
+}
+
+void
+SARC_send_batch_flush (SARC_SendBatch * batch)
+{
+  if (batch == NULL || batch->count == 0)
+    return;
+
+  struct mmsghdr msgs[SARC_SEND_BATCH_MAX_MESSAGES];
+  struct iovec iovs[SARC_SEND_BATCH_MAX_MESSAGES];
+  SARC_uint32 sent = 0;
+
+  for (SARC_uint32 i = 0; i < batch->count; i++)
+    {
+      iovs[i].iov_base = batch->data + batch->messages[i].offset;
+      iovs[i].iov_len = batch->messages[i].size;
+      memset (&msgs[i].msg_hdr, 0, sizeof (struct msghdr));
+      msgs[i].msg_hdr.msg_name = (void *) batch->messages[i].addr;
+      msgs[i].msg_hdr.msg_namelen = sizeof (struct sockaddr_un);
+      msgs[i].msg_hdr.msg_iov = &iovs[i];
+      msgs[i].msg_hdr.msg_iovlen = 1;
+    }
+
+  while (sent < batch->count)
+    {
+      int err = sendmmsg (SARC_socket_out, msgs + sent, batch->count - sent, 0);
+      if (err > 0)
+        {
+          sent += err;
+          continue;
+        }
+
+      /* The first message not sent is skipped, and the following ones are sent */
+      const SARC_BatchedMessage *m = &batch->messages[sent];
+      if (errno == EAGAIN)
+        {
+          /* As for a message sent immediately: the name of the operation is
+             not known here, but its link id is the head of the message */
+          SARC_DeserializationContext sarc_deserial_ctxt;
+          SARC_int32 oper_id = 0;
+          SARC_char8 description[64];
+
+          SARC_serial_start_deserialize (&sarc_deserial_ctxt, batch->data + m->offset, m->size);
+          SARC_int32_deserialize (&sarc_deserial_ctxt, &oper_id);
+          snprintf (description, sizeof (description), "batched message of operation link %d", oper_id);
+          SARC_error_raise (SARC_ERROR_FIFOSIZE_OVERFLOW, -1, m->task, description);
+          abort ();
+        }
+      SARC_log_error ("sendmmsg: message to task '%s' not sent: %s", SARC_table_name_of_task[m->task], strerror (errno));
+      sent++;
+    }
+
+  batch->count = 0;
+  batch->used = 0;
+}
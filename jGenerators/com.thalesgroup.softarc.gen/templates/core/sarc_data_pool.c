@@ -0,0 +1,205 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+/* Versions of versioned data.
+
+   Each thread linked to a data has a pool of versions of this data,
+   allocated statically by the generated code, and sized from the
+   'maxversions' of the readers and writers of the data: getting a
+   reader or a writer, releasing, publishing or receiving a new value
+   needs no dynamic allocation.
+
+   Versions are reference-counted: the current version of the data is
+   referenced by the data itself, and by each reader handle on it, which
+   shares it without any copy. A version returns to its pool when its last
+   reference is released. If the pool is exhausted nevertheless (e.g. after
+   the reset of a component which did not release its handles), versions
+   are allocated out of the pool, with a warning; they are kept for reuse
+   and never freed.
+
+   The pool is protected by a spinlock, which is only contended when
+   external components access the data from their own threads, and only
+   held for a few instructions. A thread which cannot take it spins for a
+   bounded number of attempts, then yields the processor, so that a
+   holder preempted on the same processor can release it.
+
+   Readers of data operations selected with the implementation meta
+   'lockFreeRead' do not take this lock: they copy the current version in
+   their own buffer, and retry if a publication occurred meanwhile (as for
+   a seqlock), so that they never block writers. This is safe because the
+   memory of a version is never freed, and because a replaced version is
+   only reused once the sequence of the publication which replaced it has
+   been incremented. */
+
+#include "sarc_ldp.h"
+#include <sched.h>
+
+#define SARC_DATA_HEADER(version) ((SARC_DataVersionHeader *) (version) - 1)
+
+/* Number of attempts to take the lock before yielding the processor */
+#define SARC_DATA_POOL_SPINS 100
+
+#if defined(__x86_64__) || defined(__i386__)
+#define SARC_DATA_POOL_PAUSE() __builtin_ia32_pause ()
+#elif defined(__aarch64__) || defined(__arm__)
+#define SARC_DATA_POOL_PAUSE() __asm__ __volatile__ ("yield")
+#else
+#define SARC_DATA_POOL_PAUSE() __atomic_signal_fence (__ATOMIC_SEQ_CST)
+#endif
+
+static void
+SARC_data_pool_lock (SARC_op_data * data)
+{
+  SARC_uint32 spins = 0;
+
+  while (__atomic_exchange_n (&data->lock, 1, __ATOMIC_ACQUIRE))
+    {
+      while (__atomic_load_n (&data->lock, __ATOMIC_RELAXED))
+        {
+          if (++spins < SARC_DATA_POOL_SPINS)
+            SARC_DATA_POOL_PAUSE ();
+          else
+            {
+              spins = 0;
+              sched_yield ();
+            }
+        }
+    }
+}
+
+static void
+SARC_data_pool_unlock (SARC_op_data * data)
+{
+  __atomic_store_n (&data->lock, 0, __ATOMIC_RELEASE);
+}
+
+/* Decrements the references of a version, and makes it free if there is no more (lock taken) */
+static void
+SARC_data_pool_unref (SARC_op_data * data, SARC_DataVersionHeader * header)
+{
+  if (--header->refs == 0)
+    {
+      if (header->index == SARC_NONE)
+        {
+          *(void **) (header + 1) = data->free_extra_versions;
+          data->free_extra_versions = header + 1;
+        }
+      else
+        data->free_versions[data->nb_free++] = header->index;
+    }
+}
+
+void *
+SARC_data_pool_acquire (SARC_op_data * data, SARC_boolean8 copy_current)
+{
+  SARC_DataVersionHeader *header = NULL;
+  void *current = NULL;
+  SARC_uint32 index = SARC_NONE;
+
+  SARC_data_pool_lock (data);
+  if (data->nb_free > 0)
+    index = data->free_versions[--data->nb_free];
+  else if (data->nb_used < data->capacity)
+    index = data->nb_used++;
+
+  if (index != SARC_NONE)
+    {
+      header = (SARC_DataVersionHeader *) (data->versions + (SARC_uint64) index * data->version_words);
+      header->refs = 1;
+      header->index = index;
+    }
+  else if (data->free_extra_versions != NULL)
+    {
+      header = SARC_DATA_HEADER (data->free_extra_versions);
+      data->free_extra_versions = *(void **) data->free_extra_versions;
+      header->refs = 1;
+    }
+  else if (!data->exhausted)
+    {
+      data->exhausted = SARC_TRUE;
+      SARC_log_warning ("more than %u versions of a data in a task", data->capacity);
+    }
+
+  /* The current version is shared while it is copied out of the lock */
+  if (copy_current && data->current_value != NULL)
+    {
+      current = data->current_value;
+      SARC_DATA_HEADER (current)->refs++;
+    }
+  SARC_data_pool_unlock (data);
+
+  if (header == NULL)
+    {
+      header = malloc (data->version_words * sizeof (SARC_uint64));
+      if (header != NULL)
+        {
+          header->refs = 1;
+          header->index = SARC_NONE;
+        }
+    }
+
+  if (current != NULL)
+    {
+      if (header != NULL)
+        memcpy (header + 1, current, (data->version_words - 1) * sizeof (SARC_uint64));
+      SARC_data_pool_release (data, current);
+    }
+
+  return header == NULL ? NULL : header + 1;
+}
+
+void *
+SARC_data_pool_share (SARC_op_data * data)
+{
+  void *current;
+
+  SARC_data_pool_lock (data);
+  current = data->current_value;
+  if (current != NULL)
+    SARC_DATA_HEADER (current)->refs++;
+  SARC_data_pool_unlock (data);
+
+  return current;
+}
+
+void
+SARC_data_pool_release (SARC_op_data * data, const void *version)
+{
+  if (version == NULL)
+    return;
+
+  SARC_data_pool_lock (data);
+  SARC_data_pool_unref (data, SARC_DATA_HEADER (version));
+  SARC_data_pool_unlock (data);
+}
+
+void
+SARC_data_pool_publish (SARC_op_data * data, void *version)
+{
+  void *previous;
+
+  SARC_data_pool_lock (data);
+  previous = data->current_value;
+  __atomic_store_n (&data->current_value, version, __ATOMIC_RELEASE);
+  /* before the previous version may be reused */
+  __atomic_store_n (&data->sequence, data->sequence + 1, __ATOMIC_RELEASE);
+  if (previous != NULL)
+    SARC_data_pool_unref (data, SARC_DATA_HEADER (previous));
+  SARC_data_pool_unlock (data);
+}
+
+SARC_boolean8
+SARC_data_pool_read (SARC_op_data * data, void *buffer)
+{
+  for (;;)
+    {
+      SARC_uint32 sequence = __atomic_load_n (&data->sequence, __ATOMIC_ACQUIRE);
+      void *current = __atomic_load_n (&data->current_value, __ATOMIC_ACQUIRE);
+
+      if (current == NULL)
+        return SARC_FALSE;
+      memcpy (buffer, current, (data->version_words - 1) * sizeof (SARC_uint64));
+      __atomic_thread_fence (__ATOMIC_ACQUIRE);
+      if (__atomic_load_n (&data->sequence, __ATOMIC_RELAXED) == sequence)
+        return SARC_TRUE;
+    }
+}
@@ -1,18 +1,397 @@
 /* Copyright (c) 2025 THALES -- All rights reserved */
 
+/* Log of the platform (SARC_log_*) and of the components (traces).
+
+   By default, the log is synchronous: each message is written by the
+   calling thread, in a single write to stdout or stderr.
+
+   With the meta 'log'='async' of the deployment, each thread formats its
+   messages in its own bounded ring of records (allocated at its first
+   message), without any lock nor system call, and a logger thread of each
+   executable writes them. Each ring has a single producer (its thread)
+   and a single consumer (the logger thread), which sleeps on a futex when
+   all the rings are empty, and is signaled only when it is actually
+   waiting. A message which does not fit in the ring of its thread is
+   dropped, and counted: the logger writes the number of dropped messages
+   of each thread, when it finds it has changed. The remaining messages
+   are written at the exit of the process.
+
+   Errors (messages on stderr) are written synchronously nevertheless,
+   after the messages waiting in the rings, so that they are not lost
+   when the process aborts after them (see SARC_error_raise).
+
+   With the meta 'logFile' of the deployment, the messages are written in
+   this file instead of stdout and stderr; when it reaches 'logFileSize'
+   bytes, it is renamed to '<logFile>.1' and started again. */
+
+#define _GNU_SOURCE
 #include "sarc_ldp.h"
 
+#include <fcntl.h>
+#include <limits.h>
+#include <sys/stat.h>
+#include <sys/syscall.h>
+#include <linux/futex.h>
+
+/* Size of a record, including its header: longer messages take several records */
+#define SARC_LOG_RECORD_SIZE 128
+#define SARC_LOG_RECORD_TEXT (SARC_LOG_RECORD_SIZE - 2 * sizeof (SARC_uint32))
+/* Number of records of the ring of each thread (power of 2) */
+#define SARC_LOG_RING_RECORDS 512
+/* Number of threads of an executable which may have a ring (the others write their messages synchronously) */
+#define SARC_LOG_MAX_RINGS 128
+/* Size of the buffer where the logger thread gathers the messages to write */
+#define SARC_LOG_BUFFER_SIZE 65536
+
+typedef struct
+{
+  SARC_uint32 stream;           /* SARC_LogStream */
+  SARC_uint32 length;           /* length of the message, in its first record only */
+  char text[SARC_LOG_RECORD_TEXT];
+} SARC_LogRecord;
+
+typedef struct
+{
+  SARC_uint64 head __attribute__ ((aligned (64)));      /* written by the logger thread */
+  SARC_uint64 reported;         /* number of dropped messages already reported by the logger thread */
+  SARC_uint64 tail __attribute__ ((aligned (64)));      /* written by the thread of the ring */
+  SARC_uint64 dropped;          /* number of dropped messages, written by the thread of the ring */
+  SARC_uint32 thread;           /* kernel id of the thread of the ring */
+  SARC_LogRecord records[SARC_LOG_RING_RECORDS] __attribute__ ((aligned (64)));
+} SARC_LogRing;
+
+static SARC_boolean8 SARC_log_async = SARC_FALSE;
+static const char *SARC_log_file = NULL;
+static SARC_uint64 SARC_log_file_size = 0;
+static int SARC_log_fd = -1;
+static pthread_mutex_t SARC_log_file_mutex = PTHREAD_MUTEX_INITIALIZER;
+
+/* Rings of the threads of the current process, and state of its logger thread */
+static SARC_LogRing *SARC_log_rings[SARC_LOG_MAX_RINGS];
+static SARC_uint32 SARC_log_nb_rings = 0;
+static SARC_uint32 SARC_log_generation = 0;
+static SARC_uint32 SARC_log_signal = 0;
+static SARC_uint32 SARC_log_waiting = 0;
+static pthread_mutex_t SARC_log_drain_mutex = PTHREAD_MUTEX_INITIALIZER;
+
+/* Ring of the current thread, valid if it was allocated in the current generation (i.e. process) */
+static __thread SARC_LogRing *SARC_log_ring = NULL;
+static __thread SARC_uint32 SARC_log_ring_generation = 0;
+
+/* Starts a new log file, after renaming the current one (unless another process did it) */
+static void
+SARC_log_rotate (void)
+{
+  struct stat current;
+  struct stat named;
+  char backup[PATH_MAX];
+
+  if (fstat (SARC_log_fd, &current) < 0 || (SARC_uint64) current.st_size < SARC_log_file_size)
+    return;
+  if (stat (SARC_log_file, &named) == 0 && named.st_ino == current.st_ino)
+    {
+      snprintf (backup, sizeof (backup), "%s.1", SARC_log_file);
+      rename (SARC_log_file, backup);
+    }
+  close (SARC_log_fd);
+  SARC_log_fd = open (SARC_log_file, O_WRONLY | O_CREAT | O_APPEND | O_CLOEXEC, 0644);
+}
+
+/* Writes messages to their destination */
+static void
+SARC_log_output (SARC_LogStream stream, const char *text, size_t length)
+{
+  if (SARC_log_fd >= 0)
+    {
+      pthread_mutex_lock (&SARC_log_file_mutex);
+      if (write (SARC_log_fd, text, length) < 0)
+        {
+          /* the message is lost, as with a full terminal */
+        }
+      if (SARC_log_file_size != 0)
+        SARC_log_rotate ();
+      pthread_mutex_unlock (&SARC_log_file_mutex);
+    }
+  else
+    {
+      FILE *file = stream == SARC_LOG_STDERR ? stderr : stdout;
+      fwrite (text, 1, length, file);
+      fflush (file);
+    }
+}
+
+/* Returns the ring of the current thread, allocated at its first message, or NULL if there is none */
+static SARC_LogRing *
+SARC_log_get_ring (void)
+{
+  SARC_uint32 generation = __atomic_load_n (&SARC_log_generation, __ATOMIC_ACQUIRE);
+  SARC_uint32 index;
+
+  if (SARC_log_ring != NULL && SARC_log_ring_generation == generation)
+    return SARC_log_ring;
+
+  SARC_log_ring = NULL;
+  SARC_log_ring_generation = generation;
+  index = __atomic_fetch_add (&SARC_log_nb_rings, 1, __ATOMIC_RELAXED);
+  if (index >= SARC_LOG_MAX_RINGS)
+    return NULL;
+  if (posix_memalign ((void **) &SARC_log_ring, 64, sizeof (SARC_LogRing)) != 0)
+    {
+      SARC_log_ring = NULL;
+      return NULL;
+    }
+  memset (SARC_log_ring, 0, sizeof (SARC_LogRing));
+  SARC_log_ring->thread = syscall (SYS_gettid);
+  __atomic_store_n (&SARC_log_rings[index], SARC_log_ring, __ATOMIC_RELEASE);
+  return SARC_log_ring;
+}
+
+/* Copies a message in the ring of the current thread, and wakes up the logger thread if needed */
+static void
+SARC_log_push (SARC_LogRing * ring, SARC_LogStream stream, const char *text, size_t length)
+{
+  SARC_uint64 tail = ring->tail;
+  SARC_uint64 count = (length + SARC_LOG_RECORD_TEXT - 1) / SARC_LOG_RECORD_TEXT;
+
+  if (tail + count - __atomic_load_n (&ring->head, __ATOMIC_ACQUIRE) > SARC_LOG_RING_RECORDS)
+    {
+      __atomic_store_n (&ring->dropped, ring->dropped + 1, __ATOMIC_RELAXED);
+      return;
+    }
+  for (SARC_uint64 i = 0; i < count; i++)
+    {
+      SARC_LogRecord *record = &ring->records[(tail + i) & (SARC_LOG_RING_RECORDS - 1)];
+      size_t offset = i * SARC_LOG_RECORD_TEXT;
+      size_t part = length - offset < SARC_LOG_RECORD_TEXT ? length - offset : SARC_LOG_RECORD_TEXT;
+
+      record->stream = stream;
+      record->length = i == 0 ? length : 0;
+      memcpy (record->text, text + offset, part);
+    }
+  /* all the records of the message are committed at once */
+  __atomic_store_n (&ring->tail, tail + count, __ATOMIC_RELEASE);
+
+  __atomic_thread_fence (__ATOMIC_SEQ_CST);
+  if (__atomic_load_n (&SARC_log_waiting, __ATOMIC_RELAXED))
+    {
+      __atomic_add_fetch (&SARC_log_signal, 1, __ATOMIC_RELEASE);
+      syscall (SYS_futex, &SARC_log_signal, FUTEX_WAKE, 1, NULL, NULL, 0);
+    }
+}
+
+/* Writes the messages of all the rings (logger thread, or exit of the process), and returns their number */
+static SARC_uint32
+SARC_log_drain (void)
+{
+  static char buffer[SARC_LOG_BUFFER_SIZE];
+  SARC_uint32 nb_rings = __atomic_load_n (&SARC_log_nb_rings, __ATOMIC_RELAXED);
+  SARC_uint32 nb_messages = 0;
+  SARC_LogStream stream = SARC_LOG_STDOUT;
+  size_t fill = 0;
+
+  if (nb_rings > SARC_LOG_MAX_RINGS)
+    nb_rings = SARC_LOG_MAX_RINGS;
+
+  pthread_mutex_lock (&SARC_log_drain_mutex);
+  for (SARC_uint32 r = 0; r < nb_rings; r++)
+    {
+      SARC_LogRing *ring = __atomic_load_n (&SARC_log_rings[r], __ATOMIC_ACQUIRE);
+      SARC_uint64 head;
+      SARC_uint64 tail;
+      SARC_uint64 dropped;
+
+      if (ring == NULL)
+        continue;
+      head = ring->head;
+      tail = __atomic_load_n (&ring->tail, __ATOMIC_ACQUIRE);
+      while (head != tail)
+        {
+          /* the records of a message follow each other in the ring; they are gathered
+             with the messages of the same stream in the buffer */
+          SARC_LogRecord *record = &ring->records[head & (SARC_LOG_RING_RECORDS - 1)];
+          size_t length = record->length;
+
+          if (fill != 0 && record->stream != stream)
+            {
+              SARC_log_output (stream, buffer, fill);
+              fill = 0;
+            }
+          stream = record->stream;
+          for (size_t offset = 0; offset < length; offset += SARC_LOG_RECORD_TEXT)
+            {
+              size_t part = length - offset < SARC_LOG_RECORD_TEXT ? length - offset : SARC_LOG_RECORD_TEXT;
+
+              record = &ring->records[head & (SARC_LOG_RING_RECORDS - 1)];
+              if (fill + part > sizeof (buffer))
+                {
+                  SARC_log_output (stream, buffer, fill);
+                  fill = 0;
+                }
+              memcpy (buffer + fill, record->text, part);
+              fill += part;
+              head++;
+            }
+          __atomic_store_n (&ring->head, head, __ATOMIC_RELEASE);
+          nb_messages++;
+        }
+
+      dropped = __atomic_load_n (&ring->dropped, __ATOMIC_RELAXED);
+      if (dropped != ring->reported)
+        {
+          char warning[128];
+          int length = snprintf (warning, sizeof (warning),
+                                 "WARNING : %llu messages of the log of thread %u were dropped (its ring is full)\n",
+                                 (unsigned long long) (dropped - ring->reported), ring->thread);
+          if (fill != 0)
+            SARC_log_output (stream, buffer, fill);
+          fill = 0;
+          SARC_log_output (SARC_LOG_STDOUT, warning, length);
+          ring->reported = dropped;
+        }
+    }
+  if (fill != 0)
+    SARC_log_output (stream, buffer, fill);
+  pthread_mutex_unlock (&SARC_log_drain_mutex);
+  return nb_messages;
+}
+
+static void *
+SARC_log_routine (void *arg __attribute__ ((unused)))
+{
+  for (;;)
+    {
+      SARC_uint32 signal = __atomic_load_n (&SARC_log_signal, __ATOMIC_ACQUIRE);
+
+      if (SARC_log_drain () != 0)
+        continue;
+
+      __atomic_store_n (&SARC_log_waiting, 1, __ATOMIC_RELAXED);
+      __atomic_thread_fence (__ATOMIC_SEQ_CST);
+      if (SARC_log_drain () == 0)
+        {
+          /* dropped messages are reported even if no message follows them */
+          struct timespec period = { 1, 0 };
+          syscall (SYS_futex, &SARC_log_signal, FUTEX_WAIT, signal, &period, NULL, 0);
+        }
+      __atomic_store_n (&SARC_log_waiting, 0, __ATOMIC_RELAXED);
+    }
+  return NULL;
+}
+
+static void
+SARC_log_flush (void)
+{
+  SARC_log_drain ();
+}
+
+void
+SARC_log_start (void)
+{
+  pthread_t thread;
+
+  if (!SARC_log_async)
+    return;
+
+  /* the locks may have been taken by threads of the parent process, which do not exist in the child,
+     and the rings inherited from the parent process are written by its own logger thread */
+  pthread_mutex_init (&SARC_log_drain_mutex, NULL);
+  pthread_mutex_init (&SARC_log_file_mutex, NULL);
+  __atomic_store_n (&SARC_log_nb_rings, 0, __ATOMIC_RELAXED);
+  memset (SARC_log_rings, 0, sizeof (SARC_log_rings));
+  __atomic_add_fetch (&SARC_log_generation, 1, __ATOMIC_RELEASE);
+
+  if (pthread_create (&thread, NULL, SARC_log_routine, NULL) != 0)
+    {
+      SARC_log_async = SARC_FALSE;
+      SARC_log_warning ("the log is synchronous: pthread_create: %s", strerror (errno));
+      errno = 0;
+      return;
+    }
+  pthread_detach (thread);
+  pthread_setname_np (thread, "SARC_logger");
+}
+
+void
+SARC_log_configure (SARC_boolean8 async, const char *file, SARC_uint64 file_size)
+{
+  if (file != NULL && file[0] != '\0')
+    {
+      SARC_log_fd = open (file, O_WRONLY | O_CREAT | O_APPEND | O_CLOEXEC, 0644);
+      if (SARC_log_fd < 0)
+        {
+          SARC_log_warning ("the log is written on stdout and stderr: open(%s): %s", file, strerror (errno));
+          errno = 0;
+        }
+      SARC_log_file = file;
+      SARC_log_file_size = file_size;
+    }
+  SARC_log_async = async;
+  if (async)
+    {
+      SARC_log_start ();
+      atexit (SARC_log_flush);
+    }
+}
+
+void
+SARC_log_vprint (SARC_LogStream stream, const char *prefix, const char *suffix,
+                 const char *sarc_format, va_list sarc_args)
+{
+  char message[1024];
+  char *text = message;
+  size_t prefix_length = strlen (prefix);
+  size_t suffix_length = strlen (suffix);
+  size_t length;
+  int n;
+  va_list sarc_args_copy;
+  SARC_LogRing *ring;
+
+  /* the message is formatted in a local buffer, or allocated if it is too long */
+  va_copy (sarc_args_copy, sarc_args);
+  n = vsnprintf (NULL, 0, sarc_format, sarc_args_copy);
+  va_end (sarc_args_copy);
+  if (n < 0)
+    return;
+  length = prefix_length + n + suffix_length;
+  if (length >= sizeof (message) && (text = malloc (length + 1)) == NULL)
+    return;
+  memcpy (text, prefix, prefix_length);
+  vsnprintf (text + prefix_length, n + 1, sarc_format, sarc_args);
+  memcpy (text + prefix_length + n, suffix, suffix_length);
+
+  /* a message bigger than a whole ring is written synchronously, as well as an error, after the previous messages */
+  if (SARC_log_async && stream == SARC_LOG_STDERR)
+    {
+      SARC_log_drain ();
+      SARC_log_output (stream, text, length);
+    }
+  else if (!SARC_log_async || length > SARC_LOG_RING_RECORDS * SARC_LOG_RECORD_TEXT || (ring = SARC_log_get_ring ()) == NULL)
+    SARC_log_output (stream, text, length);
+  else
+    SARC_log_push (ring, stream, text, length);
+
+  if (text != message)
+    free (text);
+}
+
+void
+SARC_log_print (SARC_LogStream stream, const char *sarc_format, ...)
+{
+  va_list sarc_args;
+
+  va_start (sarc_args, sarc_format);
+  SARC_log_vprint (stream, "", "", sarc_format, sarc_args);
+  va_end (sarc_args);
+}
+
 void
 SARC_log_info (const char *sarc_format, ...)
 {
   va_list sarc_args;
 
-  printf ("INFO : ");
   va_start (sarc_args, sarc_format);
-  vprintf (sarc_format, sarc_args);
+  SARC_log_vprint (SARC_LOG_STDOUT, "INFO : ", "\n", sarc_format, sarc_args);
   va_end (sarc_args);
-  putc ('\n', stdout);
-  fflush (stdout);
 }
 
 void
@@ -20,12 +399,9 @@ SARC_log_warning (const char *sarc_format, ...)
 {
   va_list sarc_args;
 
-  printf ("WARNING : ");
   va_start (sarc_args, sarc_format);
-  vprintf (sarc_format, sarc_args);
+  SARC_log_vprint (SARC_LOG_STDOUT, "WARNING : ", "\n", sarc_format, sarc_args);
   va_end (sarc_args);
-  putc ('\n', stdout);
-  fflush (stdout);
 }
 
 void
@@ -33,24 +409,31 @@ SARC_log_error (const char *sarc_format, ...)
 {
   va_list sarc_args;
 
-  fprintf (stderr, "ERROR: ");
   va_start (sarc_args, sarc_format);
-  vfprintf (stderr, sarc_format, sarc_args);
+  SARC_log_vprint (SARC_LOG_STDERR, "ERROR: ", "\n", sarc_format, sarc_args);
   va_end (sarc_args);
-  putc ('\n', stderr);
-  fflush (stderr);
 }
 
 void
 SARC_error_raise (SARC_ErrorCode code, SARC_int32 i1,
                   SARC_int32 i2, const SARC_char8 * s1)
 {
+  const SARC_uint32 current_task = SARC_task_get_index ();
+
+  if (code == SARC_ERROR_FIFOSIZE_OVERFLOW && i1 < 0)
+    {
+      /* instance not known (message sent by batch, see sarc_batch.c) */
+      SARC_log_error ("possible fifoSize overflow when sending %s to task '%s' (from task '%s')",
+                      s1, SARC_table_name_of_task[i2],
+                      current_task < SARC_MAX_NB_TASK ? SARC_table_name_of_task[current_task] : "main");
+      return;
+    }
   if (code == SARC_ERROR_FIFOSIZE_OVERFLOW)
     {
-      fprintf (stderr,
-               "ERROR: possible fifoSize overflow when sending operation '%s.%s' to task '%s'\n",
-               SARC_table_name_of_instance[i1], s1,
-               SARC_table_name_of_task[i2]);
+      SARC_log_error ("possible fifoSize overflow when sending operation '%s.%s' to task '%s' (from task '%s')",
+                      SARC_table_name_of_instance[i1], s1,
+                      SARC_table_name_of_task[i2],
+                      current_task < SARC_MAX_NB_TASK ? SARC_table_name_of_task[current_task] : "main");
       return;
     }
   SARC_log_error (s1);
@@ -0,0 +1,133 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+/* Event loop of the tasks of the socket transport.
+
+   Each task waits in a single epoll_wait for all its descriptors (its
+   sockets) and for the date of its next timed message, which is given by
+   a timerfd armed at this absolute date (CLOCK_MONOTONIC, the clock of
+   SARC_get_local_time). The timer is only re-armed when the date of the
+   next timed message changes, so that waiting needs no other system
+   call, and timed messages are handled as soon as they expire. */
+
+#include "sarc_ldp.h"
+
+#include <sys/epoll.h>
+#include <sys/timerfd.h>
+
+void
+SARC_event_loop_initialize (SARC_EventLoop * loop)
+{
+  loop->epoll_fd = epoll_create1 (EPOLL_CLOEXEC);
+  if (loop->epoll_fd < 0)
+    {
+      perror ("epoll_create1");
+      abort ();
+    }
+  loop->timer_fd = timerfd_create (CLOCK_MONOTONIC, TFD_NONBLOCK | TFD_CLOEXEC);
+  if (loop->timer_fd < 0)
+    {
+      perror ("timerfd_create");
+      abort ();
+    }
+  loop->deadline = 0;
+  loop->nb_ready = 0;
+  loop->detect_blocking = SARC_FALSE;
+  loop->blocked = SARC_FALSE;
+  SARC_event_loop_add (loop, loop->timer_fd);
+}
+
+void
+SARC_event_loop_add (SARC_EventLoop * loop, int fd)
+{
+  struct epoll_event event;
+
+  memset (&event, 0, sizeof (event));
+  event.events = EPOLLIN;
+  event.data.fd = fd;
+  if (epoll_ctl (loop->epoll_fd, EPOLL_CTL_ADD, fd, &event) < 0)
+    {
+      perror ("epoll_ctl");
+      abort ();
+    }
+}
+
+/* Arms the timer at 'deadline', or disarms it if 'deadline' is 0 */
+static void
+SARC_event_loop_set_deadline (SARC_EventLoop * loop, SARC_int64 deadline)
+{
+  struct itimerspec spec;
+
+  if (deadline == loop->deadline)
+    return;
+
+  memset (&spec, 0, sizeof (spec));
+  if (deadline != 0)
+    {
+      spec.it_value.tv_sec = deadline / 1000000000LL;
+      spec.it_value.tv_nsec = deadline % 1000000000LL;
+      /* a null date would disarm the timer */
+      if (spec.it_value.tv_sec == 0 && spec.it_value.tv_nsec == 0)
+        spec.it_value.tv_nsec = 1;
+    }
+  if (timerfd_settime (loop->timer_fd, TFD_TIMER_ABSTIME, &spec, NULL) < 0)
+    {
+      perror ("timerfd_settime");
+      return;
+    }
+  loop->deadline = deadline;
+}
+
+void
+SARC_event_loop_wait (SARC_EventLoop * loop, SARC_int64 deadline)
+{
+  struct epoll_event events[SARC_EVENT_LOOP_MAX_EVENTS];
+  int nb_events;
+
+  SARC_event_loop_set_deadline (loop, deadline);
+
+  /* a wait blocks if nothing is ready yet */
+  nb_events = loop->detect_blocking ? epoll_wait (loop->epoll_fd, events, SARC_EVENT_LOOP_MAX_EVENTS, 0) : 0;
+  loop->blocked = loop->detect_blocking && nb_events <= 0;
+  if (nb_events <= 0)
+    {
+      do
+        {
+          nb_events = epoll_wait (loop->epoll_fd, events, SARC_EVENT_LOOP_MAX_EVENTS, -1);
+        }
+      while (nb_events < 0 && errno == EINTR);
+    }
+
+  if (nb_events < 0)
+    {
+      perror ("epoll_wait");
+      nb_events = 0;
+    }
+
+  loop->nb_ready = 0;
+  for (int i = 0; i < nb_events; i++)
+    {
+      if (events[i].data.fd == loop->timer_fd)
+        {
+          /* acknowledge the expiration: the timer is now disarmed */
+          SARC_uint64 expirations;
+          if (read (loop->timer_fd, &expirations, sizeof (expirations)) < 0 && errno != EAGAIN)
+            perror ("read(timerfd)");
+          loop->deadline = 0;
+        }
+      else
+        {
+          loop->ready[loop->nb_ready++] = events[i].data.fd;
+        }
+    }
+}
+
+SARC_boolean8
+SARC_event_loop_is_ready (const SARC_EventLoop * loop, int fd)
+{
+  for (SARC_uint32 i = 0; i < loop->nb_ready; i++)
+    {
+      if (loop->ready[i] == fd)
+        return SARC_TRUE;
+    }
+  return SARC_FALSE;
+}
@@ -20,6 +20,7 @@ SARC_launcher ()
       puts ("  Reset    <component>");
       puts ("  Stop     <component>");
       puts ("  Shutdown <component>");
+      puts ("  Trace    on|off     : start or stop the recording of the messages in the trace");
       puts ("  Quit");
       puts ("");
       puts ("<component> is the instance id, or '*' for all instances.");
@@ -81,6 +82,16 @@ SARC_launcher ()
               printf ("End of wait\n");
             }
         }
+      else if (strcasecmp (optype, "Trace") == 0)
+        {
+          sscanf (linec, "%12s %128s", optype, secondattr);
+          if (strcasecmp (secondattr, "on") == 0)
+            SARC_tracer_enable (SARC_TRUE);
+          else if (strcasecmp (secondattr, "off") == 0)
+            SARC_tracer_enable (SARC_FALSE);
+          else
+            printf ("Invalid argument of Trace: %s\n", secondattr);
+        }
       else
         {
           argc = sscanf (linec, "%12s %128s", optype, secondattr);
@@ -22,6 +22,7 @@
 /** Max size (in bytes) for the total size of the parameters of an operation (event, data, request or response) */
 #define SARC_LDP_MAX_OPERATION_SIZE 256*1024
 
+/** Min timeout (in us) of a wait in a ring (transport "ring") */
 #define SARC_MIN_TIMEOUT 300 //in us
 
 
@@ -67,13 +68,97 @@ extern const char *SARC_table_name_of_life_cycle_shift[8];
 
 /* ===========================================================================
  * Simplified serialization API (without context, no error handling)
+ *
+ * Serialized values are in the byte order of the platform, unless
+ * SARC_SERIAL_BYTE_SWAP is defined (at compilation of all the executables of
+ * the application), in which case their bytes are swapped. This needs
+ * serialization code generated without "noByteSwap" (see serializeSource).
  * ======================================================================== */
 
-void SARC_serial_copy_or_swap_2bytes (void *dest, const void *src);
+static inline void
+SARC_serial_copy_or_swap_2bytes (void *dest, const void *src)
+{
+#ifdef SARC_SERIAL_BYTE_SWAP
+  SARC_uint16 _v;
+
+  memcpy (&_v, src, 2);
+  _v = __builtin_bswap16 (_v);
+  memcpy (dest, &_v, 2);
+#else
+  memcpy (dest, src, 2);
+#endif
+}
 
-void SARC_serial_copy_or_swap_4bytes (void *dest, const void *src);
+static inline void
+SARC_serial_copy_or_swap_4bytes (void *dest, const void *src)
+{
+#ifdef SARC_SERIAL_BYTE_SWAP
+  SARC_uint32 _v;
+
+  memcpy (&_v, src, 4);
+  _v = __builtin_bswap32 (_v);
+  memcpy (dest, &_v, 4);
+#else
+  memcpy (dest, src, 4);
+#endif
+}
 
-void SARC_serial_copy_or_swap_8bytes (void *dest, const void *src);
+static inline void
+SARC_serial_copy_or_swap_8bytes (void *dest, const void *src)
+{
+#ifdef SARC_SERIAL_BYTE_SWAP
+  SARC_uint64 _v;
+
+  memcpy (&_v, src, 8);
+  _v = __builtin_bswap64 (_v);
+  memcpy (dest, &_v, 8);
+#else
+  memcpy (dest, src, 8);
+#endif
+}
+
+/* Bulk versions, for 'count' consecutive values: a single memcpy, or a
+   loop which the compiler can vectorize (the values are copied with memcpy,
+   as they are not aligned in the buffer) */
+
+static inline void
+SARC_serial_copy_or_swap_array_2bytes (void *dest, const void *src, SARC_MwSize count)
+{
+#ifdef SARC_SERIAL_BYTE_SWAP
+  for (SARC_MwSize _i = 0; _i < count; _i++)
+    {
+      SARC_serial_copy_or_swap_2bytes ((char *) dest + _i * 2, (const char *) src + _i * 2);
+    }
+#else
+  memcpy (dest, src, count * 2);
+#endif
+}
+
+static inline void
+SARC_serial_copy_or_swap_array_4bytes (void *dest, const void *src, SARC_MwSize count)
+{
+#ifdef SARC_SERIAL_BYTE_SWAP
+  for (SARC_MwSize _i = 0; _i < count; _i++)
+    {
+      SARC_serial_copy_or_swap_4bytes ((char *) dest + _i * 4, (const char *) src + _i * 4);
+    }
+#else
+  memcpy (dest, src, count * 4);
+#endif
+}
+
+static inline void
+SARC_serial_copy_or_swap_array_8bytes (void *dest, const void *src, SARC_MwSize count)
+{
+#ifdef SARC_SERIAL_BYTE_SWAP
+  for (SARC_MwSize _i = 0; _i < count; _i++)
+    {
+      SARC_serial_copy_or_swap_8bytes ((char *) dest + _i * 8, (const char *) src + _i * 8);
+    }
+#else
+  memcpy (dest, src, count * 8);
+#endif
+}
 
 
 
@@ -106,17 +191,54 @@ void
 SARC_serial_check_serialize (SARC_SerializationContext * s,
                              const SARC_char8 * name);
 
-void
-SARC_serial_serialize_1byte (SARC_SerializationContext * s, const void *src);
+static inline void
+SARC_serial_serialize_1byte (SARC_SerializationContext * s, const void *src)
+{
+  s->buffer[s->pos] = *(const SARC_char8 *) src;
+  s->pos += 1;
+}
 
-void
-SARC_serial_serialize_2bytes (SARC_SerializationContext * s, const void *src);
+static inline void
+SARC_serial_serialize_2bytes (SARC_SerializationContext * s, const void *src)
+{
+  SARC_serial_copy_or_swap_2bytes (s->buffer + s->pos, src);
+  s->pos += 2;
+}
 
-void
-SARC_serial_serialize_4bytes (SARC_SerializationContext * s, const void *src);
+static inline void
+SARC_serial_serialize_4bytes (SARC_SerializationContext * s, const void *src)
+{
+  SARC_serial_copy_or_swap_4bytes (s->buffer + s->pos, src);
+  s->pos += 4;
+}
 
-void
-SARC_serial_serialize_8bytes (SARC_SerializationContext * s, const void *src);
+static inline void
+SARC_serial_serialize_8bytes (SARC_SerializationContext * s, const void *src)
+{
+  SARC_serial_copy_or_swap_8bytes (s->buffer + s->pos, src);
+  s->pos += 8;
+}
+
+static inline void
+SARC_serial_serialize_array_2bytes (SARC_SerializationContext * s, const void *src, SARC_MwSize count)
+{
+  SARC_serial_copy_or_swap_array_2bytes (s->buffer + s->pos, src, count);
+  s->pos += count * 2;
+}
+
+static inline void
+SARC_serial_serialize_array_4bytes (SARC_SerializationContext * s, const void *src, SARC_MwSize count)
+{
+  SARC_serial_copy_or_swap_array_4bytes (s->buffer + s->pos, src, count);
+  s->pos += count * 4;
+}
+
+static inline void
+SARC_serial_serialize_array_8bytes (SARC_SerializationContext * s, const void *src, SARC_MwSize count)
+{
+  SARC_serial_copy_or_swap_array_8bytes (s->buffer + s->pos, src, count);
+  s->pos += count * 8;
+}
 
 /* ===========================================================================
  * Deserialization
@@ -154,17 +276,75 @@ void
 SARC_serial_check_deserialize (SARC_DeserializationContext * s,
                                const SARC_char8 * name);
 
-void
-SARC_serial_deserialize_1byte (SARC_DeserializationContext * s, void *dest);
+/* Result of the handling of a message by the instances of a task */
+typedef struct
+{
+  /** Id of the instance which handled the message, or -1 */
+  SARC_int32 trace_instance;
+  /** Index of the operation in the metrics of the links of the task, or -1 */
+  SARC_int32 metrics_link;
+} SARC_DispatchResult;
+
+/* Handler of an operation by the instances of a task, in the dispatch table generated for the task;
+ * it receives the message positioned after its operation id */
+typedef void (*SARC_OperationHandler) (SARC_DeserializationContext sarc_deserial_ctxt, SARC_int32 oper_id,
+                                       SARC_DispatchResult * result);
+
+/* Entry of the dispatch table of a task */
+typedef struct
+{
+  SARC_int32 oper_id;
+  SARC_OperationHandler handler;
+} SARC_DispatchEntry;
 
-void
-SARC_serial_deserialize_2bytes (SARC_DeserializationContext * s, void *dest);
+static inline void
+SARC_serial_deserialize_1byte (SARC_DeserializationContext * s, void *dest)
+{
+  *(SARC_char8 *) dest = s->buffer[s->pos];
+  s->pos += 1;
+}
 
-void
-SARC_serial_deserialize_4bytes (SARC_DeserializationContext * s, void *dest);
+static inline void
+SARC_serial_deserialize_2bytes (SARC_DeserializationContext * s, void *dest)
+{
+  SARC_serial_copy_or_swap_2bytes (dest, s->buffer + s->pos);
+  s->pos += 2;
+}
 
-void
-SARC_serial_deserialize_8bytes (SARC_DeserializationContext * s, void *dest);
+static inline void
+SARC_serial_deserialize_4bytes (SARC_DeserializationContext * s, void *dest)
+{
+  SARC_serial_copy_or_swap_4bytes (dest, s->buffer + s->pos);
+  s->pos += 4;
+}
+
+static inline void
+SARC_serial_deserialize_8bytes (SARC_DeserializationContext * s, void *dest)
+{
+  SARC_serial_copy_or_swap_8bytes (dest, s->buffer + s->pos);
+  s->pos += 8;
+}
+
+static inline void
+SARC_serial_deserialize_array_2bytes (SARC_DeserializationContext * s, void *dest, SARC_MwSize count)
+{
+  SARC_serial_copy_or_swap_array_2bytes (dest, s->buffer + s->pos, count);
+  s->pos += count * 2;
+}
+
+static inline void
+SARC_serial_deserialize_array_4bytes (SARC_DeserializationContext * s, void *dest, SARC_MwSize count)
+{
+  SARC_serial_copy_or_swap_array_4bytes (dest, s->buffer + s->pos, count);
+  s->pos += count * 4;
+}
+
+static inline void
+SARC_serial_deserialize_array_8bytes (SARC_DeserializationContext * s, void *dest, SARC_MwSize count)
+{
+  SARC_serial_copy_or_swap_array_8bytes (dest, s->buffer + s->pos, count);
+  s->pos += count * 8;
+}
 
 
 /* ===========================================================================
@@ -464,20 +644,82 @@ SARC_trace_error (SARC_TraceLevel level, SARC_uint32 id,
  *=============================================================================*/
 
 
+/* Versions of data (see sarc_data_pool.c) */
+
+/** Header of each version of a data */
+typedef struct
+{
+  /** Number of references to the version (current version, handles) */
+  SARC_uint32 refs;
+  /** Index of the version in its pool, or SARC_NONE if it has been allocated out of the pool */
+  SARC_uint32 index;
+} SARC_DataVersionHeader;
+
 typedef struct
 {
+  /** Current (last published) version, or NULL */
   void *current_value;
   SARC_int32 ref;
+  /** Incremented by each publication, for the readers without lock */
+  SARC_uint32 sequence;
+  /** Protects the pool and the current version (not taken by the readers without lock) */
+  SARC_uint32 lock;
+  /** Number of versions of the pool */
+  SARC_uint32 capacity;
+  /** Size of each version, in 64-bit words, including its header */
+  SARC_uint32 version_words;
+  /** Number of versions of the pool which have already been used */
+  SARC_uint32 nb_used;
+  /** Number of used versions which are free again (in 'free_versions') */
+  SARC_uint32 nb_free;
+  /** The pool has already been exhausted (a warning has been logged) */
+  SARC_boolean8 exhausted;
+  SARC_uint64 *versions;
+  SARC_uint32 *free_versions;
+  /** Free versions allocated out of the pool (never freed), linked by their first word */
+  void *free_extra_versions;
 } SARC_op_data;
 
-typedef struct SARC_timed_message
+/* Timed messages (see sarc_timed_message.c) */
+
+/** Max size (in bytes) of the payload of a timed message (timeout of a request-response, or setting of a trigger) */
+#define SARC_TIMED_MESSAGE_MAX_SIZE 16
+
+typedef struct
 {
-  SARC_char8 *message;
-  SARC_uint32 size;
+  /** Date (local time, in ns) at which the message shall be processed */
   SARC_int64 ts;
-  struct SARC_timed_message *next;
+  /** Order of addition, for messages of the same date */
+  SARC_uint64 sequence;
+  /** Key of the message */
+  SARC_uint32 oper_id;
+  SARC_uint32 request_id;
+  /** Position in the heap, or SARC_NONE if the node is free */
+  SARC_uint32 heap_index;
+  /** Next node in the same bucket of the hash table, or in the pool of free nodes */
+  SARC_uint32 next;
+  SARC_uint32 size;
+  SARC_char8 message[SARC_TIMED_MESSAGE_MAX_SIZE] __attribute__ ((aligned (8)));
 } SARC_timed_message;
 
+typedef struct
+{
+  /** Number of nodes */
+  SARC_uint32 capacity;
+  /** Number of pending messages (in the heap) */
+  SARC_uint32 count;
+  /** First free node, or SARC_NONE */
+  SARC_uint32 free;
+  /** Number of buckets of the hash table (a power of 2) */
+  SARC_uint32 nb_buckets;
+  SARC_uint64 sequence;
+  SARC_timed_message *nodes;
+  /** Indexes of the nodes of pending messages, as a binary heap ordered by date */
+  SARC_uint32 *heap;
+  /** First node of each bucket, or SARC_NONE */
+  SARC_uint32 *buckets;
+} SARC_TimedMessages;
+
 /**
  * Deferred services caller characteristics
  */
@@ -510,13 +752,239 @@ typedef struct
   SARC_uint32 head;
 } SARC_Pinfo;
 
+/* Runtime metrics, in a named shared-memory segment (see sarc_metrics.c) */
+#define SARC_METRICS_MAGIC 0x53415243   /* "SARC" */
+#define SARC_METRICS_VERSION 1
+#define SARC_METRICS_NAME_SIZE 56
+/** Bucket 0 counts the durations under 256 ns, bucket i the durations in [2^(i+7), 2^(i+8)[ ns, the last one all the longer ones */
+#define SARC_METRICS_NB_BUCKETS 29
+
+typedef struct
+{
+  SARC_uint32 magic;
+  SARC_uint32 version;
+  SARC_uint32 nb_tasks;
+  SARC_uint32 nb_links;
+  /** Sizes of SARC_TaskMetrics and SARC_LinkMetrics, in bytes */
+  SARC_uint32 task_size;
+  SARC_uint32 link_size;
+  SARC_uint32 nb_buckets;
+  SARC_uint32 pid;
+  /** Local time (in ns) at the creation of the segment */
+  SARC_int64 start_time;
+  char executable[24];
+} SARC_MetricsHeader;
+
+/* Counters of a task, written only by the task itself */
+typedef struct
+{
+  SARC_uint32 task;
+  /** Number of links of the task, whose metrics follow those of the previous tasks */
+  SARC_uint32 nb_links;
+  char name[SARC_METRICS_NAME_SIZE];
+  /** Iterations of the main loop of the task */
+  SARC_uint64 loops __attribute__ ((aligned (64)));
+  SARC_uint64 received;
+  SARC_uint64 dispatched;
+  /** Size of the received messages */
+  SARC_uint64 bytes;
+  /** Highest number of bytes waiting in the queue of the task (with sockets, estimated as the size of the
+      messages received since the task last blocked, since the queued bytes of a Unix socket are charged to its senders) */
+  SARC_uint64 queue_high_water;
+  /** Number of pending timed messages, and its highest value */
+  SARC_uint64 timed_backlog;
+  SARC_uint64 timed_high_water;
+} SARC_TaskMetrics;
+
+/* Counters of an operation link handled by a task, written only by the task */
+typedef struct
+{
+  SARC_uint32 oper_id;
+  SARC_uint32 task;
+  char name[SARC_METRICS_NAME_SIZE];
+  SARC_uint64 calls __attribute__ ((aligned (64)));
+  /** Total and maximal durations of the handling of the operation, in ns */
+  SARC_uint64 total_time;
+  SARC_uint64 max_time;
+  SARC_uint64 histogram[SARC_METRICS_NB_BUCKETS];
+} SARC_LinkMetrics;
+
+/* Descriptions of the tasks of an executable and of their links, generated */
+typedef struct
+{
+  SARC_uint32 oper_id;
+  const char *name;
+} SARC_MetricsLinkDescription;
+
+typedef struct
+{
+  SARC_uint32 task;
+  const char *name;
+  SARC_uint32 nb_links;
+  const SARC_MetricsLinkDescription *links;
+} SARC_MetricsTaskDescription;
+
+/* Trace of the messages handled by the tasks, in a named shared-memory segment (see sarc_tracer.c) */
+#define SARC_TRACER_MAGIC 0x54524143    /* "TRAC" */
+#define SARC_TRACER_VERSION 1
+#define SARC_TRACER_PAYLOAD_SIZE 96
+/** Number of records of each task, unless it is set by the environment variable SARC_TRACE */
+#define SARC_TRACER_DEFAULT_RECORDS 1024
+
+typedef struct
+{
+  SARC_uint32 magic;
+  SARC_uint32 version;
+  SARC_uint32 nb_tasks;
+  /** Number of records of the ring of each task (a power of 2) */
+  SARC_uint32 nb_records;
+  /** Sizes of SARC_TracerRecord and of its payload, in bytes */
+  SARC_uint32 record_size;
+  SARC_uint32 payload_size;
+  SARC_uint32 pid;
+  /** Messages are recorded only while it is not 0; it may be changed by an external tool */
+  SARC_uint32 enabled;
+  /** Local time (in ns) at the creation of the segment */
+  SARC_int64 start_time;
+  char application[24];
+} SARC_TracerHeader;
+
+/* Record of a message, written only by the task which handles it */
+typedef struct
+{
+  /** Position of the record in the ring of its task plus 1, or its bitwise complement while it is written */
+  SARC_uint64 seq;
+  /** Local time (in ns) at the start of the handling of the message */
+  SARC_int64 time;
+  SARC_uint32 task;
+  SARC_int32 oper_id;
+  /** Id of the instance which handled the message, or -1 */
+  SARC_int32 instance;
+  /** Size of the whole message */
+  SARC_uint32 size;
+  /** First bytes of the message after the operation id */
+  SARC_char8 payload[SARC_TRACER_PAYLOAD_SIZE];
+} SARC_TracerRecord;
+
+typedef struct
+{
+  /** Number of records started in the ring since its creation */
+  SARC_uint64 head __attribute__ ((aligned (64)));
+  SARC_TracerRecord records[] __attribute__ ((aligned (64)));
+} SARC_TracerRing;
+
 /* Tasks */
 typedef struct
 {
   SARC_boolean8 is_started;
   pthread_t thread;
+  /** Scheduling policy (SCHED_OTHER, SCHED_FIFO or SCHED_RR) */
+  int policy;
+  /** Priority, for policies SCHED_FIFO and SCHED_RR */
+  int priority;
+  /** Size of the stack, in bytes, or 0 for the default size */
+  size_t stack_size;
+  /** Numbers of the CPUs on which the task may run (all if 'nb_cpus' is 0) */
+  const SARC_uint16 *cpus;
+  SARC_uint32 nb_cpus;
+  /** Metrics of the task and of its links, if they are enabled */
+  SARC_TaskMetrics *metrics;
+  SARC_LinkMetrics *link_metrics;
+  /** Ring of the trace of the messages of the task, if the trace segment exists */
+  SARC_TracerRing *tracer;
 } SARC_Task;
 
+/* Batches of sent messages (see sarc_batch.c) */
+#define SARC_SEND_BATCH_MAX_MESSAGES 64
+#define SARC_SEND_BATCH_DATA_SIZE (64*1024)
+
+typedef struct
+{
+  /** Index of the destination task */
+  SARC_int32 task;
+  const struct sockaddr_un *addr;
+  SARC_uint32 offset;
+  SARC_uint32 size;
+} SARC_BatchedMessage;
+
+typedef struct
+{
+  SARC_uint32 count;
+  SARC_uint32 used;
+  SARC_BatchedMessage messages[SARC_SEND_BATCH_MAX_MESSAGES];
+  SARC_char8 data[SARC_SEND_BATCH_DATA_SIZE] __attribute__ ((aligned (8)));
+} SARC_SendBatch;
+
+/* Rings of messages (transport "ring", see sarc_ring.c) */
+typedef struct
+{
+  /** Length of the record in the ring (header included); 0 until the record is committed */
+  SARC_uint32 length;
+  /** Size of the message, which follows the header */
+  SARC_uint32 size;
+} SARC_RingRecord;
+
+typedef struct
+{
+  /** Position of the next record to be reserved by producers */
+  SARC_uint64 tail __attribute__ ((aligned (64)));
+  /** Position of the next record to be read by the consumer */
+  SARC_uint64 head __attribute__ ((aligned (64)));
+  /** Size of the ring minus 1 (the size is a power of 2) */
+  SARC_uint64 mask;
+  /** Futex word, incremented by producers to wake up the consumer */
+  SARC_uint32 signal;
+  /** True while the consumer is waiting */
+  SARC_uint32 waiting;
+  SARC_char8 data[] __attribute__ ((aligned (64)));
+} SARC_Ring;
+
+/* Payloads of large messages in shared memory (see sarc_payload.c) */
+typedef struct
+{
+  /** Number of destination tasks which have not handled the message yet; 0 if the slot is free */
+  SARC_uint32 refs;
+  /** Incremented each time the slot is acquired, to detect stale descriptors */
+  SARC_uint32 generation;
+  /** Size of the serialized parameters */
+  SARC_uint32 size;
+  /** Index of the slot in its region */
+  SARC_uint32 index;
+  SARC_char8 data[] __attribute__ ((aligned (8)));
+} SARC_PayloadSlot;
+
+typedef struct
+{
+  /** Operation id of the messages whose parameters are written in the slots */
+  SARC_uint32 oper_id;
+  SARC_uint32 nb_slots;
+  /** Size of each slot, header included */
+  SARC_uint64 slot_size;
+  /** Index of the slot where the search of a free slot starts */
+  SARC_uint32 next;
+  SARC_char8 slots[] __attribute__ ((aligned (64)));
+} SARC_Payloads;
+
+/* Event loop of a task (transport "socket", see sarc_event_loop.c) */
+#define SARC_EVENT_LOOP_MAX_EVENTS 8
+
+typedef struct
+{
+  /** epoll instance, where all the descriptors of the task are registered */
+  int epoll_fd;
+  /** timerfd, armed at the date of the next timed message of the task */
+  int timer_fd;
+  /** Date (local time, in ns) at which the timer is armed, or 0 if it is disarmed */
+  SARC_int64 deadline;
+  /** Descriptors ready after the last wait */
+  SARC_uint32 nb_ready;
+  int ready[SARC_EVENT_LOOP_MAX_EVENTS];
+  /** If true, a wait tells whether it blocked, at the cost of one more system call when it blocks */
+  SARC_boolean8 detect_blocking;
+  /** True if the last wait blocked (only if 'detect_blocking') */
+  SARC_boolean8 blocked;
+} SARC_EventLoop;
+
 
 /*=============================================================================
  * Helper functions
@@ -534,7 +1002,16 @@ void SARC_init_task_index (void);
 
 SARC_int32 SARC_task_start (SARC_uint32 _id, void (*routine));
 
-SARC_uint32 SARC_task_get_index (void);
+/** Index of the task of the calling thread, set at the start of the routine of the task (SARC_NO_TASK in the other threads) */
+extern __thread SARC_uint32 SARC_current_task_index;
+
+void SARC_task_set_current (SARC_uint32 _id);
+
+static inline SARC_uint32
+SARC_task_get_index (void)
+{
+  return SARC_current_task_index;
+}
 
 void
 SARC_gen_handle_lifecycle_command (int instanceId,
@@ -555,22 +1032,185 @@ void SARC_log_warning (const char *sarc_format, ...);
 
 void SARC_log_error (const char *sarc_format, ...);
 
-struct timeval SARC_timed_message_get_next_deadline (SARC_timed_message **
-                                                     head);
+/* Destination of a message of the log (unless it is written in a file) */
+typedef enum
+{
+  SARC_LOG_STDOUT = 1,
+  SARC_LOG_STDERR = 2
+} SARC_LogStream;
+
+/** Writes a message in the log: 'prefix', the formatted message, then 'suffix' (see sarc_error.c) */
+void SARC_log_vprint (SARC_LogStream stream, const char *prefix, const char *suffix,
+                      const char *sarc_format, va_list sarc_args);
+
+/** Writes a message in the log, as printf */
+void SARC_log_print (SARC_LogStream stream, const char *sarc_format, ...);
+
+/** Selects the mode of the log (synchronous, or asynchronous with a logger thread) and its file (NULL or empty for stdout and stderr) */
+void SARC_log_configure (SARC_boolean8 async, const char *file, SARC_uint64 file_size);
+
+/** Starts the logger thread of a forked executable, if the log is asynchronous */
+void SARC_log_start (void);
+
+void SARC_timed_messages_initialize (SARC_TimedMessages * tm, SARC_uint32 capacity);
 
 void
-SARC_timed_message_add (SARC_timed_message ** head, const void *message,
-                        SARC_uint32 size, SARC_int64 ts);
+SARC_timed_messages_add (SARC_TimedMessages * tm, const void *message,
+                         SARC_uint32 size, SARC_int64 ts);
 
-SARC_timed_message*
-SARC_timed_message_delete (SARC_timed_message ** head,
-                           SARC_timed_message * message_to_delete);
+/** Date of the first pending message, or 0 if there is none */
+SARC_int64 SARC_timed_messages_next_deadline (const SARC_TimedMessages * tm);
+
+/** Removes the first pending message, if its date is not after 'now', and copies it in 'message' */
+SARC_boolean8
+SARC_timed_messages_pop_expired (SARC_TimedMessages * tm, SARC_int64 now,
+                                 void *message, SARC_uint32 * size);
+
+/** Removes all the pending messages with the given key, and returns their number */
+SARC_uint32
+SARC_timed_messages_cancel (SARC_TimedMessages * tm, SARC_uint32 oper_id,
+                            SARC_uint32 request_id);
 
 SARC_int64 SARC_get_local_time ();
 
-int SARC_timed_message_trigger_sendto (SARC_int32 oper_id, SARC_int64 timeout,
-                                       const struct sockaddr_un *addr);
+/** Returns a version of the data owned by the caller, initialized with the current version if 'copy_current' */
+void *SARC_data_pool_acquire (SARC_op_data * data, SARC_boolean8 copy_current);
+
+/** Returns the current version of the data, shared with the caller (read-only), or NULL if there is none */
+void *SARC_data_pool_share (SARC_op_data * data);
+
+/** Releases the reference of the caller to a version returned by acquire or share (may be NULL) */
+void SARC_data_pool_release (SARC_op_data * data, const void *version);
+
+/** Makes a version returned by acquire the current version, with the reference of the caller */
+void SARC_data_pool_publish (SARC_op_data * data, void *version);
+
+/** Copies the current version of the data in 'buffer' without lock, or returns SARC_FALSE if there is none */
+SARC_boolean8 SARC_data_pool_read (SARC_op_data * data, void *buffer);
+
+int SARC_timed_message_trigger_send (SARC_int32 oper_id, SARC_int64 timeout,
+                                     SARC_int32 task);
+
+/** Batch where the messages sent by the current task are stored, or NULL if they are sent immediately */
+extern __thread SARC_SendBatch *SARC_current_send_batch;
+
+int SARC_receive_batch (int socket, void *buffers, SARC_uint32 buffer_size,
+                        SARC_uint32 count, SARC_uint32 * sizes);
+
+ssize_t SARC_send_batch_add (SARC_SendBatch * batch, SARC_int32 task, const struct sockaddr_un *addr,
+                             const void *message, SARC_uint32 size);
+
+void SARC_send_batch_flush (SARC_SendBatch * batch);
+
+SARC_Ring *SARC_ring_create (SARC_uint64 size);
+
+ssize_t SARC_ring_push (SARC_Ring * ring, const void *message, SARC_uint32 size);
+
+ssize_t SARC_ring_receive (SARC_Ring * ring, void *buffer, SARC_uint32 size,
+                           const struct timeval *timeout);
+
+/** Creates a region of 'nb_slots' slots of 'max_size' bytes, shared with forked executables */
+SARC_Payloads *SARC_payloads_create (SARC_uint32 oper_id, SARC_uint32 nb_slots, SARC_uint64 max_size);
+
+/** Returns a free slot, referenced by 'nb_receivers' tasks, or NULL if there is none */
+SARC_PayloadSlot *SARC_payload_acquire (SARC_Payloads * payloads, SARC_uint32 nb_receivers);
+
+/** Sends the descriptor of the slot (with 'size' bytes of parameters) to a task, as SARC_send_to_task */
+ssize_t SARC_payload_send (SARC_Payloads * payloads, SARC_PayloadSlot * slot, SARC_uint32 size, SARC_int32 task);
+
+/** Reads a descriptor from 's', and makes 's' deserialize the slot; returns the slot, or NULL if the descriptor is invalid */
+SARC_PayloadSlot *SARC_payload_receive (SARC_Payloads * payloads, SARC_DeserializationContext * s);
+
+/** Releases the reference of the calling task to a slot */
+void SARC_payload_release (SARC_PayloadSlot * slot);
+
+/** Frees a slot which has not been sent */
+void SARC_payload_discard (SARC_PayloadSlot * slot);
+
+void SARC_event_loop_initialize (SARC_EventLoop * loop);
+
+void SARC_event_loop_add (SARC_EventLoop * loop, int fd);
+
+/** Waits until a descriptor is ready, or until 'deadline' (local time, in ns; 0 for none) */
+void SARC_event_loop_wait (SARC_EventLoop * loop, SARC_int64 deadline);
+
+SARC_boolean8 SARC_event_loop_is_ready (const SARC_EventLoop * loop, int fd);
+
+/** Creates the metrics segment of an executable, and attaches their metrics to its tasks */
+void SARC_metrics_create (const char *executable, const SARC_MetricsTaskDescription * tasks, SARC_uint32 nb_tasks);
+
+/** Number of bytes waiting in a ring */
+SARC_uint64 SARC_metrics_ring_level (const SARC_Ring * ring);
+
+/* Counters are only written by their task: they need no atomic
+   read-modify-write, only atomic stores for the readers of the segment */
+static inline void
+SARC_metrics_add (SARC_uint64 * counter, SARC_uint64 value)
+{
+  __atomic_store_n (counter, *counter + value, __ATOMIC_RELAXED);
+}
+
+static inline void
+SARC_metrics_set (SARC_uint64 * counter, SARC_uint64 value)
+{
+  __atomic_store_n (counter, value, __ATOMIC_RELAXED);
+}
+
+static inline void
+SARC_metrics_max (SARC_uint64 * counter, SARC_uint64 value)
+{
+  if (value > *counter)
+    __atomic_store_n (counter, value, __ATOMIC_RELAXED);
+}
+
+static inline void
+SARC_metrics_record_call (SARC_LinkMetrics * link, SARC_int64 duration)
+{
+  SARC_uint64 d = duration > 0 ? (SARC_uint64) duration : 0;
+  SARC_uint32 bucket = (d >> 8) == 0 ? 0 : 64 - __builtin_clzll (d >> 8);
+
+  if (bucket >= SARC_METRICS_NB_BUCKETS)
+    bucket = SARC_METRICS_NB_BUCKETS - 1;
+  SARC_metrics_add (&link->calls, 1);
+  SARC_metrics_add (&link->total_time, d);
+  SARC_metrics_max (&link->max_time, d);
+  SARC_metrics_add (&link->histogram[bucket], 1);
+}
+
+/** Trace segment of the application, or NULL if it could not be created */
+extern SARC_TracerHeader *SARC_tracer;
+
+/** Creates the trace segment of an application, with a ring for each of its tasks, before its executables are forked */
+void SARC_tracer_create (const char *application, SARC_uint32 nb_tasks);
+
+/** Starts or stops the recording of the messages of all the executables of the application */
+void SARC_tracer_enable (SARC_boolean8 enabled);
+
+/** Starts a record of a message in the ring of a task (see SARC_tracer_begin) */
+SARC_TracerRecord *SARC_tracer_start (SARC_uint32 task, SARC_int32 oper_id, const void *message, SARC_uint32 size);
+
+/** Commits a record returned by SARC_tracer_begin, once the message is handled */
+void SARC_tracer_commit (SARC_TracerRecord * record, SARC_int32 instance);
+
+/* Returns NULL without any other cost if the recording is disabled */
+static inline SARC_TracerRecord *
+SARC_tracer_begin (SARC_uint32 task, SARC_int32 oper_id, const void *message, SARC_uint32 size)
+{
+  if (SARC_tracer == NULL || __atomic_load_n (&SARC_tracer->enabled, __ATOMIC_RELAXED) == 0)
+    return NULL;
+  return SARC_tracer_start (task, oper_id, message, size);
+}
+
+
+/** Size, in int64, of a map of 'capacity' values of 'value_size' bytes, with its hash index (see sarc_map.c) */
+#define SARC_MAP_INT64_SIZE(capacity, value_size) \
+  (1 + (8 + (capacity)) / 2 + (capacity) * (1 + ((value_size) + 7) / 8) + 2 * (capacity))
+
+/** Copies the items of a list, in their order, at 'buffer' */
+void SARC_table_serialize (const void *address, void *buffer);
 
+/** Copies 'count' items from 'buffer' at the end of a list, which shall have room for them */
+void SARC_table_deserialize (void *address, const void *buffer, SARC_MwSize count);
 
 SARC_Ecode SARC_map_initialize (void *address, SARC_uint32 size,
                                 SARC_uint32 capacity, SARC_uint32 value_size);
@@ -11,6 +11,11 @@ SARC_boolean8 SARC_map_has (const void *address, SARC_int64 key,
 
 /**
  * Context for associative container management.
+ *
+ * A map is an indexed list of (key, value) items, in the order of their
+ * insertion, followed (if the buffer is big enough) by a hash index of the
+ * items: an open-addressing table, with linear probing, of the offsets of
+ * the items in the list (0 for an empty slot).
  */
 typedef struct
 {
@@ -18,6 +23,10 @@ typedef struct
   SARC_MwSize value_size;
   /** Offset of the internal indexed list */
   SARC_MwSize list_offset;
+  /** Offset of the hash index, or 0 if there is none */
+  SARC_MwSize hash_offset;
+  /** Number of slots of the hash index minus 1 (the number is a power of 2) */
+  SARC_MwSize hash_mask;
 } SARC_MapHeader;
 
 /**
@@ -42,6 +51,18 @@ typedef struct
  * Internal helper function
  * ======================================================================== */
 
+static SARC_MwSize
+SARC_table_store_offset (SARC_MwSize capacity)
+{
+  SARC_MwSize _store_offset = 0;
+
+  _store_offset = sizeof (SARC_TableHeader) + capacity * sizeof (SARC_MwSize);
+  _store_offset += 7;
+  _store_offset = _store_offset & (_store_offset ^ 7);
+
+  return _store_offset;
+}
+
 SARC_Ecode
 SARC_table_initialize (void *address, SARC_MwSize size, SARC_MwSize capacity,
                        SARC_MwSize item_size)
@@ -57,10 +78,7 @@ SARC_table_initialize (void *address, SARC_MwSize size, SARC_MwSize capacity,
   /* Determine minimum size of the buffer required to manage such amount of
      items */
 
-  _store_offset = sizeof (SARC_TableHeader) + capacity * sizeof (SARC_MwSize);
-  _store_offset += 7;
-  _store_offset = _store_offset & (_store_offset ^ 7);
-
+  _store_offset = SARC_table_store_offset (capacity);
   _total_size = _store_offset + item_size * capacity;
 
   if (size < _total_size)
@@ -297,6 +315,161 @@ SARC_table_reserve (void *address)
 }
 
 
+/* Items are stored in the order of the index, unless they have been moved
+   (or inserted, or removed): consecutive items are copied together */
+void
+SARC_table_serialize (const void *address, void *buffer)
+{
+  const SARC_TableHeader *const _header = (const SARC_TableHeader *) address;
+  const SARC_MwSize *const _index =
+    (const SARC_MwSize *) ((const SARC_Byte *) address + _header->index_offset);
+  SARC_Byte *_buffer = (SARC_Byte *) buffer;
+  SARC_MwSize _i = 0;
+  SARC_MwSize _run = 0;
+
+  while (_i < _header->count)
+    {
+      _run = 1;
+      while (_i + _run < _header->count
+             && _index[_i + _run] == _index[_i] + _run * _header->item_size)
+        {
+          _run += 1;
+        }
+      memcpy (_buffer, (const SARC_Byte *) address + _index[_i],
+              _run * _header->item_size);
+      _buffer += _run * _header->item_size;
+      _i += _run;
+    }
+}
+
+
+void
+SARC_table_deserialize (void *address, const void *buffer, SARC_MwSize count)
+{
+  SARC_TableHeader *const _header = (SARC_TableHeader *) address;
+  const SARC_MwSize *const _index =
+    (const SARC_MwSize *) ((SARC_Byte *) address + _header->index_offset);
+  const SARC_Byte *_buffer = (const SARC_Byte *) buffer;
+  SARC_MwSize _run = 0;
+  SARC_MwSize _i = 0;
+
+  /* after SARC_table_initialize, the free items follow each other */
+  while (_run < count && _header->count + _run < _header->capacity
+         && _index[_header->count + _run] ==
+         _index[_header->count] + _run * _header->item_size)
+    {
+      _run += 1;
+    }
+  if (_run > 0)
+    {
+      memcpy ((SARC_Byte *) address + _index[_header->count], _buffer,
+              _run * _header->item_size);
+      _header->count += _run;
+    }
+
+  for (_i = _run; _i < count; _i++)
+    {
+      SARC_table_push (address, _buffer + _i * _header->item_size);
+    }
+}
+
+
+/* ===========================================================================
+ * Hash index of maps
+ * ======================================================================== */
+
+static SARC_MwSize
+SARC_map_hash (const SARC_MapHeader * header, SARC_int64 key)
+{
+  SARC_uint64 _h = (SARC_uint64) key;
+
+  _h ^= _h >> 33;
+  _h *= 0xFF51AFD7ED558CCDULL;
+  _h ^= _h >> 33;
+
+  return (SARC_MwSize) _h & header->hash_mask;
+}
+
+
+static SARC_MwSize *
+SARC_map_slots (const void *address)
+{
+  const SARC_MapHeader *_header = (const SARC_MapHeader *) address;
+
+  return (SARC_MwSize *) ((SARC_Byte *) address + _header->hash_offset);
+}
+
+
+/* Returns the slot of the hash index where 'key' is, or the empty slot
+   where it would be inserted */
+static SARC_MwSize
+SARC_map_find_slot (const void *address, SARC_int64 key)
+{
+  const SARC_MapHeader *_header = (const SARC_MapHeader *) address;
+  const SARC_Byte *_list = (const SARC_Byte *) address + _header->list_offset;
+  const SARC_MwSize *_slots = SARC_map_slots (address);
+  SARC_MwSize _slot = SARC_map_hash (_header, key);
+
+  while (_slots[_slot] != 0
+         && memcmp (_list + _slots[_slot], &key, sizeof (SARC_int64)) != 0)
+    {
+      _slot = (_slot + 1) & _header->hash_mask;
+    }
+
+  return _slot;
+}
+
+
+/* Empties a slot of the hash index, moving back the next items of its
+   cluster, so that they stay reachable from their hash */
+static void
+SARC_map_free_slot (void *address, SARC_MwSize slot)
+{
+  const SARC_MapHeader *_header = (const SARC_MapHeader *) address;
+  const SARC_Byte *_list = (const SARC_Byte *) address + _header->list_offset;
+  SARC_MwSize *_slots = SARC_map_slots (address);
+  SARC_MwSize _next = slot;
+  SARC_MwSize _home = 0;
+  SARC_int64 _key = 0;
+
+  for (;;)
+    {
+      _next = (_next + 1) & _header->hash_mask;
+      if (_slots[_next] == 0)
+        {
+          break;
+        }
+      memcpy (&_key, _list + _slots[_next], sizeof (SARC_int64));
+      _home = SARC_map_hash (_header, _key);
+      /* the item may be moved back if 'slot' is between its hash and its slot */
+      if (((_next - _home) & _header->hash_mask) >= ((_next - slot) & _header->hash_mask))
+        {
+          _slots[slot] = _slots[_next];
+          slot = _next;
+        }
+    }
+  _slots[slot] = 0;
+}
+
+
+/* Returns the position in the list of the item at 'offset' */
+static SARC_MwSize
+SARC_map_position (const void *list, SARC_MwSize offset)
+{
+  const SARC_TableHeader *const _header = (const SARC_TableHeader *) list;
+  const SARC_MwSize *const _index =
+    (const SARC_MwSize *) ((const SARC_Byte *) list + _header->index_offset);
+  SARC_MwSize _i = 0;
+
+  while (_i < _header->count && _index[_i] != offset)
+    {
+      _i += 1;
+    }
+
+  return _i;
+}
+
+
 /* ===========================================================================
  * Map functions
  * ======================================================================== */
@@ -310,6 +483,8 @@ SARC_map_initialize (void *address, SARC_MwSize size, SARC_MwSize capacity,
   void *_list = NULL;
   const SARC_MwSize _item_size =
     sizeof (SARC_int64) + 8 * ((value_size + 7) / 8);
+  SARC_MwSize _hash_offset = 0;
+  SARC_MwSize _nb_slots = 1;
 
   if (size < sizeof (SARC_MapHeader))
     {
@@ -320,10 +495,27 @@ SARC_map_initialize (void *address, SARC_MwSize size, SARC_MwSize capacity,
       _header = (SARC_MapHeader *) address;
       _header->value_size = value_size;
       _header->list_offset = sizeof (SARC_MapHeader);
+      _header->hash_offset = 0;
+      _header->hash_mask = 0;
       _list = (SARC_Byte *) address + _header->list_offset;
       _result = SARC_table_initialize (_list,
                                        size - sizeof (SARC_MapHeader),
                                        capacity, _item_size);
+
+      /* The hash index follows the list (which is zeroed up to 'size'), with
+         at least twice as many slots as items, if there is enough space */
+      _hash_offset = _header->list_offset + SARC_table_store_offset (capacity)
+        + _item_size * capacity;
+      while (_nb_slots < 2 * capacity)
+        {
+          _nb_slots *= 2;
+        }
+      if (_result == SARC_SUCCESS && capacity > 0
+          && _hash_offset + _nb_slots * sizeof (SARC_MwSize) <= size)
+        {
+          _header->hash_offset = _hash_offset;
+          _header->hash_mask = _nb_slots - 1;
+        }
     }
 
   return _result;
@@ -336,10 +528,9 @@ SARC_map_add (void *address, SARC_int64 key, const void *value)
   SARC_Ecode _result = SARC_SUCCESS;
   const SARC_MapHeader *_header = (SARC_MapHeader *) address;
   SARC_boolean8 _status = SARC_TRUE;
-  SARC_MwSize _index = 0;
   void *_item = NULL;
 
-  _status = SARC_map_has (address, key, &_index);
+  _status = SARC_map_has (address, key, NULL);
   if (_status == SARC_FALSE)
     {
       _item = SARC_map_set (address, key);
@@ -358,24 +549,45 @@ SARC_map_add (void *address, SARC_int64 key, const void *value)
 }
 
 
+/* Returns the (key, value) item of 'key', or NULL */
+static void *
+SARC_map_find (const void *address, SARC_int64 key)
+{
+  void *_result = NULL;
+  const SARC_MapHeader *_header = (const SARC_MapHeader *) address;
+  const void *_list = (const SARC_Byte *) address + _header->list_offset;
+  SARC_MwSize _slot = 0;
+  SARC_MwSize _index = 0;
+
+  if (_header->hash_offset != 0)
+    {
+      _slot = SARC_map_find_slot (address, key);
+      if (SARC_map_slots (address)[_slot] != 0)
+        {
+          _result = (SARC_Byte *) _list + SARC_map_slots (address)[_slot];
+        }
+    }
+  else if (SARC_map_has (address, key, &_index) != SARC_FALSE)
+    {
+      _result = SARC_table_get (_list, _index);
+    }
+
+  return _result;
+}
+
+
 void *
 SARC_map_set (void *address, SARC_int64 key)
 {
   void *_result = NULL;
   const SARC_MapHeader *_header = (SARC_MapHeader *) address;
   void *_list = (SARC_Byte *) address + _header->list_offset;
-  SARC_boolean8 _status = SARC_TRUE;
-  SARC_MwSize _index = 0;
   void *_item = NULL;
 
-  _status = SARC_map_has (address, key, &_index);
-  if (_status != SARC_FALSE)
+  _item = SARC_map_find (address, key);
+  if (_item != NULL)
     {
-      _item = SARC_table_get (_list, _index);
-      if (_item != NULL)
-        {
-          _result = (SARC_Byte *) _item + sizeof (SARC_int64);
-        }
+      _result = (SARC_Byte *) _item + sizeof (SARC_int64);
     }
   else
     {
@@ -384,6 +596,11 @@ SARC_map_set (void *address, SARC_int64 key)
         {
           memcpy (_item, &key, sizeof (SARC_int64));
           _result = (SARC_Byte *) _item + sizeof (SARC_int64);
+          if (_header->hash_offset != 0)
+            {
+              SARC_map_slots (address)[SARC_map_find_slot (address, key)] =
+                (SARC_MwSize) ((SARC_Byte *) _item - (SARC_Byte *) _list);
+            }
         }
     }
 
@@ -395,16 +612,11 @@ void *
 SARC_map_get (const void *address, SARC_int64 key)
 {
   void *_result = NULL;
-  const SARC_MapHeader *_header = (const SARC_MapHeader *) address;
-  const void *_list = (const SARC_Byte *) address + _header->list_offset;
-  SARC_boolean8 _status = SARC_TRUE;
-  SARC_MwSize _index = 0;
   void *_item = NULL;
 
-  _status = SARC_map_has (address, key, &_index);
-  if (_status != SARC_FALSE)
+  _item = SARC_map_find (address, key);
+  if (_item != NULL)
     {
-      _item = SARC_table_get (_list, _index);
       _result = (SARC_Byte *) _item + sizeof (SARC_int64);
     }
 
@@ -420,10 +632,25 @@ SARC_map_remove (void *address, SARC_int64 key, void *value)
   void *_list = (SARC_Byte *) address + _header->list_offset;
   SARC_boolean8 _status = SARC_TRUE;
   SARC_MwSize _index = 0;
+  SARC_MwSize _slot = 0;
   const void *_item = NULL;
   const void *_value = NULL;
 
-  _status = SARC_map_has (address, key, &_index);
+  if (_header->hash_offset != 0)
+    {
+      _slot = SARC_map_find_slot (address, key);
+      _status = SARC_map_slots (address)[_slot] != 0;
+      if (_status != SARC_FALSE)
+        {
+          _index = SARC_map_position (_list, SARC_map_slots (address)[_slot]);
+          SARC_map_free_slot (address, _slot);
+        }
+    }
+  else
+    {
+      _status = SARC_map_has (address, key, &_index);
+    }
+
   if (_status == SARC_FALSE)
     {
       _result = SARC_FAILURE;
@@ -462,9 +689,24 @@ SARC_map_has (const void *address, SARC_int64 key, SARC_MwSize * position)
   const void *_list = (const SARC_Byte *) address + _header->list_offset;
   const SARC_MwSize _count = SARC_table_count (_list);
   const SARC_int64 *_item = NULL;
+  SARC_MwSize _slot = 0;
   SARC_MwSize _i = 0;
   SARC_int32 _status = 0;
 
+  if (_header->hash_offset != 0)
+    {
+      _slot = SARC_map_find_slot (address, key);
+      if (SARC_map_slots (address)[_slot] != 0)
+        {
+          _result = SARC_TRUE;
+          if (position != NULL)
+            {
+              *position = SARC_map_position (_list, SARC_map_slots (address)[_slot]);
+            }
+        }
+      return _result;
+    }
+
   while (_i < _count && _result == SARC_FALSE)
     {
       _item = SARC_table_get (_list, _i);
@@ -483,7 +725,6 @@ SARC_map_has (const void *address, SARC_int64 key, SARC_MwSize * position)
   return _result;
 }
 
-
 SARC_Ecode
 SARC_map_get_key (const void *address, SARC_MwSize position, SARC_int64 * key)
 {
@@ -0,0 +1,107 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+/* Runtime metrics of an executable, in a named shared-memory segment.
+
+   The segment '/dev/shm/sarc_metrics_<executable>' is made of a header
+   (SARC_MetricsHeader), followed by the counters of each task of the
+   executable (SARC_TaskMetrics), then by the counters of each operation
+   link handled by each task (SARC_LinkMetrics), in the order of the tasks.
+   The names of the tasks and of the links, and the ids of the links, are
+   written in the segment at its creation, so that it can be read by an
+   external tool (MetricsReader) while the application is running, and
+   after its end.
+
+   Each counter is written only by its own task, without any lock nor
+   atomic read-modify-write, and the counters of each task and of each link
+   are aligned on a cache line, so that tasks never share a cache line. */
+
+#define _GNU_SOURCE
+#include "sarc_ldp.h"
+
+#include <sys/mman.h>
+
+/* the counters which follow the header are aligned on a cache line */
+_Static_assert (sizeof (SARC_MetricsHeader) == 64, "size of SARC_MetricsHeader");
+
+/* Copies 'name' in a field of SARC_METRICS_NAME_SIZE characters, truncated if needed */
+static void
+SARC_metrics_set_name (char *field, const char *name)
+{
+  snprintf (field, SARC_METRICS_NAME_SIZE, "%s", name);
+}
+
+void
+SARC_metrics_create (const char *executable, const SARC_MetricsTaskDescription * tasks, SARC_uint32 nb_tasks)
+{
+  char name[64];
+  SARC_uint32 nb_links = 0;
+  SARC_uint64 size;
+  SARC_MetricsHeader *header;
+  SARC_TaskMetrics *task_metrics;
+  SARC_LinkMetrics *link_metrics;
+  int fd;
+
+  for (SARC_uint32 i = 0; i < nb_tasks; i++)
+    nb_links += tasks[i].nb_links;
+  size = sizeof (SARC_MetricsHeader) + nb_tasks * sizeof (SARC_TaskMetrics) + nb_links * sizeof (SARC_LinkMetrics);
+
+  /* the segment of a previous run is replaced (errno is checked after the start of the tasks) */
+  snprintf (name, sizeof (name), "/sarc_metrics_%s", executable);
+  shm_unlink (name);
+  errno = 0;
+  fd = shm_open (name, O_RDWR | O_CREAT | O_EXCL | O_CLOEXEC, 0644);
+  if (fd < 0 || ftruncate (fd, size) < 0)
+    {
+      SARC_log_warning ("metrics of executable %s are disabled: shm_open(%s): %s", executable, name, strerror (errno));
+      if (fd >= 0)
+        close (fd);
+      errno = 0;
+      return;
+    }
+  header = mmap (NULL, size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+  close (fd);
+  if (header == MAP_FAILED)
+    {
+      SARC_log_warning ("metrics of executable %s are disabled: mmap: %s", executable, strerror (errno));
+      errno = 0;
+      return;
+    }
+
+  /* memory is zeroed by ftruncate: all the counters are null */
+  task_metrics = (SARC_TaskMetrics *) (header + 1);
+  link_metrics = (SARC_LinkMetrics *) (task_metrics + nb_tasks);
+  for (SARC_uint32 i = 0; i < nb_tasks; i++)
+    {
+      task_metrics[i].task = tasks[i].task;
+      task_metrics[i].nb_links = tasks[i].nb_links;
+      SARC_metrics_set_name (task_metrics[i].name, tasks[i].name);
+      SARC_task_index[tasks[i].task].metrics = &task_metrics[i];
+      SARC_task_index[tasks[i].task].link_metrics = link_metrics;
+
+      for (SARC_uint32 j = 0; j < tasks[i].nb_links; j++)
+        {
+          link_metrics->oper_id = tasks[i].links[j].oper_id;
+          link_metrics->task = tasks[i].task;
+          SARC_metrics_set_name (link_metrics->name, tasks[i].links[j].name);
+          link_metrics++;
+        }
+    }
+
+  header->version = SARC_METRICS_VERSION;
+  header->nb_tasks = nb_tasks;
+  header->nb_links = nb_links;
+  header->task_size = sizeof (SARC_TaskMetrics);
+  header->link_size = sizeof (SARC_LinkMetrics);
+  header->nb_buckets = SARC_METRICS_NB_BUCKETS;
+  header->pid = getpid ();
+  header->start_time = SARC_get_local_time ();
+  snprintf (header->executable, sizeof (header->executable), "%s", executable);
+  /* the segment is valid for readers once the magic number is written */
+  __atomic_store_n (&header->magic, SARC_METRICS_MAGIC, __ATOMIC_RELEASE);
+}
+
+SARC_uint64
+SARC_metrics_ring_level (const SARC_Ring * ring)
+{
+  return __atomic_load_n (&ring->tail, __ATOMIC_RELAXED) - __atomic_load_n (&ring->head, __ATOMIC_RELAXED);
+}
@@ -0,0 +1,146 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+/* Payloads of large messages, written in shared memory.
+
+   The parameters of events and data which are too big to be sent in
+   messages (see PayloadSizer) are written by the sender in a slot of a
+   region of shared memory dedicated to the link, and only a descriptor of
+   the slot (its index and generation) is sent to the destination tasks,
+   which deserialize the parameters directly from the slot.
+
+   A slot is referenced by each destination task until it has handled the
+   message, and is free again when its last reference is released. The
+   number of slots of a link is computed by the generator from the sizes of
+   the queues of its destination tasks, so that a free slot is always found
+   unless a queue would have overflowed.
+
+   Regions are memfd files mapped before the executables are forked, so
+   that they are shared by all of them. */
+
+#define _GNU_SOURCE
+#include "sarc_ldp.h"
+
+#include <sys/mman.h>
+
+#define SARC_PAYLOAD_ALIGNMENT 64
+
+static SARC_PayloadSlot *
+SARC_payload_slot (SARC_Payloads * payloads, SARC_uint32 index)
+{
+  return (SARC_PayloadSlot *) (payloads->slots + index * payloads->slot_size);
+}
+
+SARC_Payloads *
+SARC_payloads_create (SARC_uint32 oper_id, SARC_uint32 nb_slots, SARC_uint64 max_size)
+{
+  char name[32];
+  SARC_uint64 slot_size = (sizeof (SARC_PayloadSlot) + max_size + SARC_PAYLOAD_ALIGNMENT - 1)
+    & ~((SARC_uint64) SARC_PAYLOAD_ALIGNMENT - 1);
+  SARC_uint64 size = sizeof (SARC_Payloads) + nb_slots * slot_size;
+  SARC_Payloads *payloads;
+  int fd;
+
+  snprintf (name, sizeof (name), "sarc_payloads_%u", oper_id);
+  fd = memfd_create (name, MFD_CLOEXEC);
+  if (fd < 0 || ftruncate (fd, size) < 0)
+    {
+      perror ("memfd_create(payloads)");
+      abort ();
+    }
+  payloads = mmap (NULL, size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+  if (payloads == MAP_FAILED)
+    {
+      perror ("mmap(payloads)");
+      abort ();
+    }
+  /* the mapping keeps the file */
+  close (fd);
+
+  /* memory is zeroed by ftruncate: all the slots are free */
+  payloads->oper_id = oper_id;
+  payloads->nb_slots = nb_slots;
+  payloads->slot_size = slot_size;
+  for (SARC_uint32 i = 0; i < nb_slots; i++)
+    SARC_payload_slot (payloads, i)->index = i;
+  return payloads;
+}
+
+SARC_PayloadSlot *
+SARC_payload_acquire (SARC_Payloads * payloads, SARC_uint32 nb_receivers)
+{
+  SARC_uint32 first = __atomic_load_n (&payloads->next, __ATOMIC_RELAXED);
+
+  for (SARC_uint32 n = 0; n < payloads->nb_slots; n++)
+    {
+      SARC_uint32 index = (first + n) % payloads->nb_slots;
+      SARC_PayloadSlot *slot = SARC_payload_slot (payloads, index);
+      SARC_uint32 free_refs = 0;
+
+      if (__atomic_load_n (&slot->refs, __ATOMIC_RELAXED) == 0
+          && __atomic_compare_exchange_n (&slot->refs, &free_refs, nb_receivers, 0,
+                                          __ATOMIC_ACQUIRE, __ATOMIC_RELAXED))
+        {
+          __atomic_store_n (&slot->generation, slot->generation + 1, __ATOMIC_RELAXED);
+          __atomic_store_n (&payloads->next, (index + 1) % payloads->nb_slots, __ATOMIC_RELAXED);
+          return slot;
+        }
+    }
+  return NULL;
+}
+
+ssize_t
+SARC_payload_send (SARC_Payloads * payloads, SARC_PayloadSlot * slot, SARC_uint32 size, SARC_int32 task)
+{
+  SARC_uint32 descriptor[3] = { payloads->oper_id, slot->index, slot->generation };
+  SARC_uint32 message[3];
+  ssize_t err;
+
+  SARC_serial_copy_or_swap_array_4bytes (message, descriptor, 3);
+  slot->size = size;
+  err = SARC_send_to_task (task, message, sizeof (message));
+  if (err <= 0)
+    {
+      /* the task will not release it */
+      SARC_payload_release (slot);
+    }
+  return err;
+}
+
+SARC_PayloadSlot *
+SARC_payload_receive (SARC_Payloads * payloads, SARC_DeserializationContext * s)
+{
+  SARC_uint32 index = SARC_NONE;
+  SARC_uint32 generation = 0;
+  SARC_PayloadSlot *slot;
+
+  SARC_uint32_deserialize (s, &index);
+  SARC_uint32_deserialize (s, &generation);
+  if (s->error || index >= payloads->nb_slots)
+    {
+      SARC_log_error ("invalid payload descriptor for operation %u", payloads->oper_id);
+      return NULL;
+    }
+
+  slot = SARC_payload_slot (payloads, index);
+  if (__atomic_load_n (&slot->refs, __ATOMIC_ACQUIRE) == 0
+      || __atomic_load_n (&slot->generation, __ATOMIC_RELAXED) != generation)
+    {
+      SARC_log_error ("stale payload descriptor for operation %u (slot %u)", payloads->oper_id, index);
+      return NULL;
+    }
+
+  SARC_serial_start_deserialize (s, slot->data, slot->size);
+  return slot;
+}
+
+void
+SARC_payload_release (SARC_PayloadSlot * slot)
+{
+  __atomic_sub_fetch (&slot->refs, 1, __ATOMIC_RELEASE);
+}
+
+void
+SARC_payload_discard (SARC_PayloadSlot * slot)
+{
+  __atomic_store_n (&slot->refs, 0, __ATOMIC_RELEASE);
+}
@@ -0,0 +1,181 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+/* Rings of messages in shared memory, used instead of sockets by the
+   "ring" transport between threads.
+
+   Each ring has several producers (the threads sending messages) and a
+   single consumer (the thread owning the ring). Producers reserve space
+   for their message by moving 'tail' forward with a compare-and-swap,
+   write the message, then commit it by writing the length of its record.
+   The consumer reads the records in order from 'head', and erases each
+   record before releasing its space, so that a record is never seen as
+   committed before being written.
+
+   When the ring is empty, the consumer sleeps on a futex, which is
+   signaled by producers only when the consumer is actually waiting: in
+   the nominal case, sending or receiving a message needs no system call.
+
+   Rings are allocated in shared anonymous memory before the executables
+   are forked, so that they are shared by all of them. */
+
+#include "sarc_ldp.h"
+
+#include <sys/mman.h>
+#include <sys/syscall.h>
+#include <linux/futex.h>
+
+#define SARC_RING_ALIGNMENT 8
+#define SARC_RING_ALIGN(size) (((size) + SARC_RING_ALIGNMENT - 1) & ~((SARC_uint64) SARC_RING_ALIGNMENT - 1))
+
+/* Value of 'size' for records which only fill the end of the ring */
+#define SARC_RING_PADDING 0xFFFFFFFF
+
+static SARC_RingRecord *
+SARC_ring_record (SARC_Ring * ring, SARC_uint64 position)
+{
+  return (SARC_RingRecord *) (ring->data + (position & ring->mask));
+}
+
+SARC_Ring *
+SARC_ring_create (SARC_uint64 size)
+{
+  SARC_Ring *ring = mmap (NULL, sizeof (SARC_Ring) + size, PROT_READ | PROT_WRITE,
+                          MAP_SHARED | MAP_ANONYMOUS, -1, 0);
+  if (ring == MAP_FAILED)
+    {
+      perror ("mmap(ring)");
+      abort ();
+    }
+  /* memory is zeroed by mmap: no record is committed */
+  assert ((size & (size - 1)) == 0);
+  ring->mask = size - 1;
+  return ring;
+}
+
+ssize_t
+SARC_ring_push (SARC_Ring * ring, const void *message, SARC_uint32 size)
+{
+  SARC_uint64 capacity = ring->mask + 1;
+  SARC_uint64 length = SARC_RING_ALIGN (sizeof (SARC_RingRecord) + size);
+  SARC_uint64 tail = __atomic_load_n (&ring->tail, __ATOMIC_RELAXED);
+  SARC_uint64 padding;
+  SARC_RingRecord *record;
+
+  if (2 * length > capacity)
+    {
+      errno = EMSGSIZE;
+      return -1;
+    }
+
+  /* Reserve space (a record may not wrap around the end of the ring) */
+  do
+    {
+      padding = capacity - (tail & ring->mask);
+      if (padding >= length)
+        padding = 0;
+      if (tail + padding + length - __atomic_load_n (&ring->head, __ATOMIC_ACQUIRE) > capacity)
+        {
+          errno = EAGAIN;
+          return -1;
+        }
+    }
+  while (!__atomic_compare_exchange_n (&ring->tail, &tail, tail + padding + length, 1,
+                                       __ATOMIC_RELAXED, __ATOMIC_RELAXED));
+
+  if (padding != 0)
+    {
+      record = SARC_ring_record (ring, tail);
+      record->size = SARC_RING_PADDING;
+      __atomic_store_n (&record->length, padding, __ATOMIC_RELEASE);
+      tail += padding;
+    }
+
+  /* Write and commit the message */
+  record = SARC_ring_record (ring, tail);
+  record->size = size;
+  memcpy (record + 1, message, size);
+  __atomic_store_n (&record->length, length, __ATOMIC_RELEASE);
+
+  /* Wake up the consumer, if it is waiting */
+  __atomic_thread_fence (__ATOMIC_SEQ_CST);
+  if (__atomic_load_n (&ring->waiting, __ATOMIC_RELAXED))
+    {
+      __atomic_add_fetch (&ring->signal, 1, __ATOMIC_RELEASE);
+      syscall (SYS_futex, &ring->signal, FUTEX_WAKE, 1, NULL, NULL, 0);
+    }
+  return size;
+}
+
+/* Releases the space of the first record of the ring (consumer only) */
+static void
+SARC_ring_release (SARC_Ring * ring, SARC_RingRecord * record)
+{
+  SARC_uint32 length = record->length;
+  memset (record, 0, length);
+  __atomic_store_n (&ring->head, ring->head + length, __ATOMIC_RELEASE);
+}
+
+/* Returns the first committed message of the ring, or NULL (consumer only) */
+static SARC_RingRecord *
+SARC_ring_front (SARC_Ring * ring)
+{
+  for (;;)
+    {
+      SARC_RingRecord *record = SARC_ring_record (ring, ring->head);
+      if (__atomic_load_n (&record->length, __ATOMIC_ACQUIRE) == 0)
+        return NULL;
+      if (record->size != SARC_RING_PADDING)
+        return record;
+      SARC_ring_release (ring, record);
+    }
+}
+
+ssize_t
+SARC_ring_receive (SARC_Ring * ring, void *buffer, SARC_uint32 size, const struct timeval *timeout)
+{
+  SARC_RingRecord *record = SARC_ring_front (ring);
+
+  if (record == NULL)
+    {
+      /* As for SO_RCVTIMEO, a null timeout means no timeout */
+      SARC_boolean8 has_deadline = timeout != NULL && (timeout->tv_sec != 0 || timeout->tv_usec != 0);
+      SARC_int64 deadline = 0;
+      if (has_deadline)
+        deadline = SARC_get_local_time () + timeout->tv_sec * 1000000000LL + timeout->tv_usec * 1000LL;
+
+      while (record == NULL)
+        {
+          struct timespec remaining;
+          SARC_uint32 signal = __atomic_load_n (&ring->signal, __ATOMIC_ACQUIRE);
+
+          __atomic_store_n (&ring->waiting, 1, __ATOMIC_RELAXED);
+          __atomic_thread_fence (__ATOMIC_SEQ_CST);
+          record = SARC_ring_front (ring);
+          if (record == NULL)
+            {
+              if (has_deadline)
+                {
+                  SARC_int64 delta = deadline - SARC_get_local_time ();
+                  if (delta <= 0)
+                    {
+                      __atomic_store_n (&ring->waiting, 0, __ATOMIC_RELAXED);
+                      errno = EAGAIN;
+                      return -1;
+                    }
+                  remaining.tv_sec = delta / 1000000000LL;
+                  remaining.tv_nsec = delta % 1000000000LL;
+                }
+              syscall (SYS_futex, &ring->signal, FUTEX_WAIT, signal, has_deadline ? &remaining : NULL, NULL, 0);
+              record = SARC_ring_front (ring);
+            }
+          __atomic_store_n (&ring->waiting, 0, __ATOMIC_RELAXED);
+        }
+    }
+
+  /* As for a datagram, a message bigger than the buffer is truncated */
+  if (record->size < size)
+    size = record->size;
+  memcpy (buffer, record + 1, size);
+  SARC_ring_release (ring, record);
+  return size;
+}
@@ -4,25 +4,7 @@
 
 #include "sarc_ldp_internal.h"
 
-
-void
-SARC_serial_copy_or_swap_2bytes (void *dest, const void *src)
-{
-  memcpy (dest, src, 2);
-}
-
-void
-SARC_serial_copy_or_swap_4bytes (void *dest, const void *src)
-{
-  memcpy (dest, src, 4);
-}
-
-void
-SARC_serial_copy_or_swap_8bytes (void *dest, const void *src)
-{
-  memcpy (dest, src, 8);
-}
-
+/* The functions serializing values are inline (see sarc_ldp_internal.h) */
 
 void
 SARC_serial_start_serialize (SARC_SerializationContext * s, void *buffer)
@@ -46,34 +28,6 @@ SARC_serial_check_serialize (SARC_SerializationContext * s,
     }
 }
 
-void
-SARC_serial_serialize_1byte (SARC_SerializationContext * s, const void *src)
-{
-  s->buffer[s->pos] = *(const SARC_char8 *) src;
-  s->pos += 1;
-}
-
-void
-SARC_serial_serialize_2bytes (SARC_SerializationContext * s, const void *src)
-{
-  SARC_serial_copy_or_swap_2bytes (s->buffer + s->pos, src);
-  s->pos += 2;
-}
-
-void
-SARC_serial_serialize_4bytes (SARC_SerializationContext * s, const void *src)
-{
-  SARC_serial_copy_or_swap_4bytes (s->buffer + s->pos, src);
-  s->pos += 4;
-}
-
-void
-SARC_serial_serialize_8bytes (SARC_SerializationContext * s, const void *src)
-{
-  SARC_serial_copy_or_swap_8bytes (s->buffer + s->pos, src);
-  s->pos += 8;
-}
-
 void
 SARC_serial_start_deserialize (SARC_DeserializationContext * s,
                                const void *buffer, SARC_MwSize size)
@@ -109,34 +63,6 @@ SARC_serial_check_deserialize (SARC_DeserializationContext * s,
     }
 }
 
-void
-SARC_serial_deserialize_1byte (SARC_DeserializationContext * s, void *dest)
-{
-  *(SARC_char8 *) dest = s->buffer[s->pos];
-  s->pos += 1;
-}
-
-void
-SARC_serial_deserialize_2bytes (SARC_DeserializationContext * s, void *dest)
-{
-  SARC_serial_copy_or_swap_2bytes (dest, s->buffer + s->pos);
-  s->pos += 2;
-}
-
-void
-SARC_serial_deserialize_4bytes (SARC_DeserializationContext * s, void *dest)
-{
-  SARC_serial_copy_or_swap_4bytes (dest, s->buffer + s->pos);
-  s->pos += 4;
-}
-
-void
-SARC_serial_deserialize_8bytes (SARC_DeserializationContext * s, void *dest)
-{
-  SARC_serial_copy_or_swap_8bytes (dest, s->buffer + s->pos);
-  s->pos += 8;
-}
-
 SARC_boolean8
 SARC_boolean8_check (const SARC_boolean8 * value, SARC_char8 * msg)
 {
@@ -1,5 +1,6 @@
 /* Copyright (c) 2025 THALES -- All rights reserved */
 
+#define _GNU_SOURCE
 #include "sarc_ldp.h"
 
 void
@@ -13,19 +14,42 @@ SARC_init_task_index (void)
     }
 }
 
-SARC_uint32
-SARC_task_get_index (void)
+__thread SARC_uint32 SARC_current_task_index = SARC_NO_TASK;
+
+/* Called by the routine of each task (and of each external thread), before anything else */
+void
+SARC_task_set_current (SARC_uint32 _id)
 {
-  SARC_int32 _result = SARC_NO_TASK;
-  SARC_uint32 _id;
-  pthread_t _thread;
-  _thread = pthread_self ();
-  for (_id = 0; _id < SARC_MAX_NB_TASK; ++_id)
+  SARC_current_task_index = _id;
+}
+
+/* Sets the scheduling attributes of a task (policy, priority, CPUs) in 'attr';
+   returns SARC_FALSE if it has none */
+static SARC_boolean8
+SARC_task_set_scheduling (const SARC_Task * task, pthread_attr_t * attr)
+{
+  SARC_boolean8 _result = SARC_FALSE;
+  struct sched_param param;
+  cpu_set_t cpus;
+
+  if (task->policy != SCHED_OTHER)
     {
-      if (SARC_task_index[_id].thread == _thread)
+      memset (&param, 0, sizeof (param));
+      param.sched_priority = task->priority;
+      pthread_attr_setinheritsched (attr, PTHREAD_EXPLICIT_SCHED);
+      pthread_attr_setschedpolicy (attr, task->policy);
+      pthread_attr_setschedparam (attr, &param);
+      _result = SARC_TRUE;
+    }
+  if (task->nb_cpus > 0)
+    {
+      CPU_ZERO (&cpus);
+      for (SARC_uint32 i = 0; i < task->nb_cpus; i++)
         {
-          _result = _id;
+          CPU_SET (task->cpus[i], &cpus);
         }
+      pthread_attr_setaffinity_np (attr, sizeof (cpus), &cpus);
+      _result = SARC_TRUE;
     }
   return _result;
 }
@@ -35,6 +59,11 @@ SARC_task_start (SARC_uint32 _id, void (*routine))
 {
   SARC_int32 _result = SARC_FAILURE;
   pthread_t thread;
+  pthread_attr_t attr;
+  SARC_boolean8 scheduled;
+  int saved_errno = errno;
+  int err;
+
   if (_id >= SARC_MAX_NB_TASK)
     {
       return _result;
@@ -42,15 +71,44 @@ SARC_task_start (SARC_uint32 _id, void (*routine))
 
   if (SARC_task_index[_id].is_started != SARC_TRUE)
     {
-      pthread_create (&thread, NULL, routine, NULL);
-      if (errno)
+      pthread_attr_init (&attr);
+      if (SARC_task_index[_id].stack_size > 0)
+        {
+          err = pthread_attr_setstacksize (&attr, SARC_task_index[_id].stack_size);
+          if (err)
+            {
+              SARC_log_warning ("invalid stack size %zu for task %s: %s; default size used",
+                                SARC_task_index[_id].stack_size, SARC_table_name_of_task[_id], strerror (err));
+            }
+        }
+      scheduled = SARC_task_set_scheduling (&SARC_task_index[_id], &attr);
+
+      err = pthread_create (&thread, &attr, routine, NULL);
+      if (err && scheduled)
+        {
+          /* e.g. EPERM without CAP_SYS_NICE, or EINVAL for a CPU which is not available */
+          SARC_log_warning ("cannot apply the scheduling policy or CPUs of task %s: %s; default scheduling used",
+                            SARC_table_name_of_task[_id], strerror (err));
+          pthread_attr_destroy (&attr);
+          pthread_attr_init (&attr);
+          if (SARC_task_index[_id].stack_size > 0)
+            {
+              pthread_attr_setstacksize (&attr, SARC_task_index[_id].stack_size);
+            }
+          err = pthread_create (&thread, &attr, routine, NULL);
+        }
+      pthread_attr_destroy (&attr);
+      if (err)
         {
+          errno = err;
           perror ("pthread_create");
           abort ();
         }
       SARC_task_index[_id].is_started = SARC_TRUE;
       SARC_task_index[_id].thread = thread;
       _result = SARC_SUCCESS;
+      /* errno is checked after the start of all the tasks (see execMainBody) */
+      errno = saved_errno;
     }
   return _result;
 }
@@ -1,70 +1,254 @@
 /* Copyright (c) 2025 THALES -- All rights reserved */
 
+/* Messages to be processed by a task at a given date: settings of triggers,
+   and timeouts of asynchronous request-responses.
+
+   The pending messages of a task are nodes of a pool, allocated when the
+   task starts with a capacity computed at generation time (and only grown
+   if this capacity is exceeded). They are ordered by date in a binary heap,
+   and indexed by key in a hash table, so that adding a message, removing
+   the first one, or cancelling the messages of a key needs no allocation
+   and no walk of all pending messages.
+
+   The key of a timeout is (operation id of the callback, request id), and
+   the key of a trigger setting is (trigger operation id, SARC_NONE). */
+
 #include "sarc_ldp.h"
 
-void
-SARC_timed_message_add (SARC_timed_message ** head, const void *message,
-                        SARC_uint32 size, SARC_int64 ts)
+static SARC_uint32
+SARC_timed_message_hash (const SARC_TimedMessages * tm, SARC_uint32 oper_id,
+                         SARC_uint32 request_id)
+{
+  SARC_uint32 h = oper_id * 0x9E3779B1U ^ request_id * 0x85EBCA6BU;
+  h ^= h >> 16;
+  return h & (tm->nb_buckets - 1);
+}
+
+/* Date order, then order of addition for messages of the same date */
+static SARC_boolean8
+SARC_timed_message_before (const SARC_TimedMessages * tm, SARC_uint32 a,
+                           SARC_uint32 b)
+{
+  const SARC_timed_message *ma = &tm->nodes[tm->heap[a]];
+  const SARC_timed_message *mb = &tm->nodes[tm->heap[b]];
+  return ma->ts < mb->ts || (ma->ts == mb->ts && ma->sequence < mb->sequence);
+}
+
+static void
+SARC_timed_message_swap (SARC_TimedMessages * tm, SARC_uint32 a, SARC_uint32 b)
+{
+  SARC_uint32 node = tm->heap[a];
+  tm->heap[a] = tm->heap[b];
+  tm->heap[b] = node;
+  tm->nodes[tm->heap[a]].heap_index = a;
+  tm->nodes[tm->heap[b]].heap_index = b;
+}
+
+static void
+SARC_timed_message_sift_up (SARC_TimedMessages * tm, SARC_uint32 i)
+{
+  while (i > 0 && SARC_timed_message_before (tm, i, (i - 1) / 2))
+    {
+      SARC_timed_message_swap (tm, i, (i - 1) / 2);
+      i = (i - 1) / 2;
+    }
+}
+
+static void
+SARC_timed_message_sift_down (SARC_TimedMessages * tm, SARC_uint32 i)
+{
+  for (;;)
+    {
+      SARC_uint32 first = i;
+      SARC_uint32 left = 2 * i + 1;
+      SARC_uint32 right = left + 1;
+      if (left < tm->count && SARC_timed_message_before (tm, left, first))
+        first = left;
+      if (right < tm->count && SARC_timed_message_before (tm, right, first))
+        first = right;
+      if (first == i)
+        return;
+      SARC_timed_message_swap (tm, i, first);
+      i = first;
+    }
+}
+
+/* Allocates the pool, the heap and the hash table for 'capacity' messages,
+   keeping the pending messages (if any) */
+static void
+SARC_timed_messages_allocate (SARC_TimedMessages * tm, SARC_uint32 capacity)
 {
-  SARC_timed_message *new_message =
-    (SARC_timed_message *) malloc (sizeof (SARC_timed_message));
-  if (size > 0)
+  SARC_uint32 nb_buckets = 1;
+  while (nb_buckets < capacity)
+    nb_buckets *= 2;
+
+  tm->nodes = realloc (tm->nodes, capacity * sizeof (SARC_timed_message));
+  tm->heap = realloc (tm->heap, capacity * sizeof (SARC_uint32));
+  tm->buckets = realloc (tm->buckets, nb_buckets * sizeof (SARC_uint32));
+  if (tm->nodes == NULL || tm->heap == NULL || tm->buckets == NULL)
     {
-      new_message->message = malloc (size);
-      memcpy (new_message->message, message, size);
+      perror ("SARC_timed_messages_allocate");
+      abort ();
     }
-  else
+
+  /* new nodes are free */
+  for (SARC_uint32 n = tm->capacity; n < capacity; n++)
     {
-      new_message->message = NULL;
+      tm->nodes[n].heap_index = SARC_NONE;
+      tm->nodes[n].next = n + 1 < capacity ? n + 1 : SARC_NONE;
     }
-  new_message->size = size;
-  new_message->ts = ts;
-  // find insertion point, so that messages are sorted by increasing timestamp
-  while (*head != NULL && ts > (*head)->ts)
+  tm->free = tm->capacity < capacity ? tm->capacity : SARC_NONE;
+  tm->capacity = capacity;
+
+  /* index pending messages again */
+  tm->nb_buckets = nb_buckets;
+  for (SARC_uint32 b = 0; b < nb_buckets; b++)
+    tm->buckets[b] = SARC_NONE;
+  for (SARC_uint32 i = 0; i < tm->count; i++)
     {
-      head = &(*head)->next;
+      SARC_uint32 n = tm->heap[i];
+      SARC_uint32 b = SARC_timed_message_hash (tm, tm->nodes[n].oper_id,
+                                               tm->nodes[n].request_id);
+      tm->nodes[n].next = tm->buckets[b];
+      tm->buckets[b] = n;
     }
-  // new message is before *head; or *head is NULL
-  new_message->next = *head;
-  *head = new_message;
 }
 
+void
+SARC_timed_messages_initialize (SARC_TimedMessages * tm, SARC_uint32 capacity)
+{
+  memset (tm, 0, sizeof (SARC_TimedMessages));
+  SARC_timed_messages_allocate (tm, capacity > 0 ? capacity : 1);
+}
 
-SARC_timed_message *
-SARC_timed_message_delete (SARC_timed_message ** head,
-                           SARC_timed_message * message_to_delete)
+void
+SARC_timed_messages_add (SARC_TimedMessages * tm, const void *message,
+                         SARC_uint32 size, SARC_int64 ts)
 {
-  int found = 0;
-  SARC_timed_message * previous = NULL;
-
-  for(SARC_timed_message* m = *head; m != NULL; m = m->next) {
-      if (m == message_to_delete) {
-          found = 1;
-          break;
-      }
-      previous = m;
-  }
-
-  if (found)
+  SARC_DeserializationContext s;
+  SARC_uint32 oper_id = 0;
+  SARC_uint32 oper_id_message = 0;
+  SARC_uint32 request_id = SARC_NONE;
+  SARC_timed_message *m;
+  SARC_uint32 n, b;
+
+  if (size > SARC_TIMED_MESSAGE_MAX_SIZE)
     {
-      SARC_timed_message * next = message_to_delete->next;
-      if (previous != NULL)
-          previous->next = next;
-      else
-          *head = next;
+      SARC_log_error ("timed message is too big, size=%u", size);
+      return;
+    }
+
+  /* key of the message */
+  SARC_serial_start_deserialize (&s, message, size);
+  SARC_uint32_deserialize (&s, &oper_id);
+  if (oper_id == SARC_OP_REQUEST_REPONSE_TIMEOUT)
+    {
+      SARC_uint32_deserialize (&s, &oper_id_message);
+      SARC_uint32_deserialize (&s, &request_id);
+      oper_id = oper_id_message;
+    }
+
+  if (tm->free == SARC_NONE)
+    {
+      SARC_log_warning ("more than %u timed messages in a task", tm->capacity);
+      SARC_timed_messages_allocate (tm, 2 * tm->capacity);
+    }
+
+  n = tm->free;
+  m = &tm->nodes[n];
+  tm->free = m->next;
+
+  memcpy (m->message, message, size);
+  m->size = size;
+  m->ts = ts;
+  m->sequence = tm->sequence++;
+  m->oper_id = oper_id;
+  m->request_id = request_id;
+
+  b = SARC_timed_message_hash (tm, oper_id, request_id);
+  m->next = tm->buckets[b];
+  tm->buckets[b] = n;
+
+  m->heap_index = tm->count;
+  tm->heap[tm->count++] = n;
+  SARC_timed_message_sift_up (tm, m->heap_index);
+}
+
+/* Removes node 'n' from the heap, the hash table ('link' is the link
+   to 'n' in its bucket), and puts it back in the pool */
+static void
+SARC_timed_message_remove (SARC_TimedMessages * tm, SARC_uint32 * link,
+                           SARC_uint32 n)
+{
+  SARC_timed_message *m = &tm->nodes[n];
+  SARC_uint32 i = m->heap_index;
+
+  *link = m->next;
+
+  tm->count--;
+  if (i != tm->count)
+    {
+      SARC_timed_message_swap (tm, i, tm->count);
+      SARC_timed_message_sift_down (tm, i);
+      SARC_timed_message_sift_up (tm, i);
+    }
+
+  m->heap_index = SARC_NONE;
+  m->next = tm->free;
+  tm->free = n;
+}
+
+SARC_int64
+SARC_timed_messages_next_deadline (const SARC_TimedMessages * tm)
+{
+  return tm->count > 0 ? tm->nodes[tm->heap[0]].ts : 0;
+}
 
-      free (message_to_delete->message);
-      free (message_to_delete);
+SARC_boolean8
+SARC_timed_messages_pop_expired (SARC_TimedMessages * tm, SARC_int64 now,
+                                 void *message, SARC_uint32 * size)
+{
+  if (tm->count == 0 || tm->nodes[tm->heap[0]].ts > now)
+    return SARC_FALSE;
+
+  SARC_uint32 n = tm->heap[0];
+  SARC_timed_message *m = &tm->nodes[n];
+  SARC_uint32 *link = &tm->buckets[SARC_timed_message_hash (tm, m->oper_id, m->request_id)];
+  while (*link != n)
+    link = &tm->nodes[*link].next;
+
+  memcpy (message, m->message, m->size);
+  *size = m->size;
+  SARC_timed_message_remove (tm, link, n);
+  return SARC_TRUE;
+}
 
-      return next;
+SARC_uint32
+SARC_timed_messages_cancel (SARC_TimedMessages * tm, SARC_uint32 oper_id,
+                            SARC_uint32 request_id)
+{
+  SARC_uint32 nb_cancelled = 0;
+  SARC_uint32 *link = &tm->buckets[SARC_timed_message_hash (tm, oper_id, request_id)];
+
+  while (*link != SARC_NONE)
+    {
+      SARC_uint32 n = *link;
+      if (tm->nodes[n].oper_id == oper_id && tm->nodes[n].request_id == request_id)
+        {
+          SARC_timed_message_remove (tm, link, n);
+          nb_cancelled++;
+        }
+      else
+        {
+          link = &tm->nodes[n].next;
+        }
     }
-  else
-      return NULL;
+  return nb_cancelled;
 }
 
 int
-SARC_timed_message_trigger_sendto (SARC_int32 oper_id, SARC_int64 timeout,
-                                   const struct sockaddr_un *addr)
+SARC_timed_message_trigger_send (SARC_int32 oper_id, SARC_int64 timeout,
+                                 SARC_int32 task)
 {
   SARC_SerializationContext s;
   SARC_int32 buffer[4];
@@ -75,8 +259,7 @@ SARC_timed_message_trigger_sendto (SARC_int32 oper_id, SARC_int64 timeout,
   SARC_int64_serialize (&s, &timeout);
   SARC_uint32_serialize (&s, &oper_id);
   /* Send trigger setting */
-  return sendto (SARC_socket_out, s.buffer, s.pos, 0,
-                 (const struct sockaddr *) addr, sizeof (struct sockaddr_un));
+  return SARC_send_to_task (task, s.buffer, s.pos);
 }
 
 SARC_int64
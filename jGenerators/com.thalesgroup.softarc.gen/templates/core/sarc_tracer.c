@@ -0,0 +1,146 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+/* Trace of the messages handled by the tasks, in a named shared-memory segment.
+
+   The segment '/dev/shm/sarc_trace_<application>' is created by the main
+   process before it forks the executables, so that it is shared by all of
+   them. It is made of a header (SARC_TracerHeader), followed by a ring for
+   each task of the application (SARC_TracerRing), of a fixed number of
+   records of a fixed size (SARC_TracerRecord), where the task records the
+   messages it handles, with the first bytes of their parameters. It can be
+   decoded by an external tool (TraceDecoder), with the formalism of the
+   application, while the application is running, and after its end.
+
+   The segment is created at the start of the application, unless the
+   environment variable SARC_TRACE is 0. The recording is disabled, unless
+   SARC_TRACE is set, in which case it is the number of records of each
+   ring; it can be started and stopped at any time (command 'Trace' of the
+   launcher, or TraceDecoder), and costs a single test when it is disabled.
+
+   Each ring is written only by its own task, without any lock: the readers
+   check the sequence number of each record, which is written last. */
+
+#define _GNU_SOURCE
+#include "sarc_ldp.h"
+
+#include <sys/mman.h>
+
+/* the rings which follow the header are aligned on a cache line */
+_Static_assert (sizeof (SARC_TracerHeader) == 64, "size of SARC_TracerHeader");
+_Static_assert (sizeof (SARC_TracerRecord) == 128, "size of SARC_TracerRecord");
+
+#define SARC_TRACER_MAX_RECORDS (1 << 20)
+
+SARC_TracerHeader *SARC_tracer = NULL;
+
+void
+SARC_tracer_create (const char *application, SARC_uint32 nb_tasks)
+{
+  const char *variable = getenv ("SARC_TRACE");
+  SARC_uint32 nb_records = SARC_TRACER_DEFAULT_RECORDS;
+  SARC_uint32 enabled = 0;
+  char name[64];
+  SARC_uint64 ring_size;
+  SARC_uint64 size;
+  SARC_TracerHeader *header;
+  int fd;
+
+  if (variable != NULL && variable[0] != '\0')
+    {
+      long n = strtol (variable, NULL, 0);
+
+      if (n <= 0)
+        return;
+      /* the position of a record in its ring is a mask of its sequence number */
+      for (nb_records = 1; nb_records < n && nb_records < SARC_TRACER_MAX_RECORDS; nb_records <<= 1)
+        ;
+      enabled = 1;
+    }
+  ring_size = sizeof (SARC_TracerRing) + nb_records * sizeof (SARC_TracerRecord);
+  size = sizeof (SARC_TracerHeader) + nb_tasks * ring_size;
+
+  /* the segment of a previous run is replaced (errno is checked after the start of the tasks) */
+  snprintf (name, sizeof (name), "/sarc_trace_%s", application);
+  shm_unlink (name);
+  errno = 0;
+  fd = shm_open (name, O_RDWR | O_CREAT | O_EXCL | O_CLOEXEC, 0644);
+  if (fd < 0 || ftruncate (fd, size) < 0)
+    {
+      SARC_log_warning ("trace of application %s is disabled: shm_open(%s): %s", application, name, strerror (errno));
+      if (fd >= 0)
+        close (fd);
+      errno = 0;
+      return;
+    }
+  header = mmap (NULL, size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+  close (fd);
+  if (header == MAP_FAILED)
+    {
+      SARC_log_warning ("trace of application %s is disabled: mmap: %s", application, strerror (errno));
+      errno = 0;
+      return;
+    }
+
+  /* memory is zeroed by ftruncate: all the rings are empty */
+  for (SARC_uint32 i = 0; i < nb_tasks; i++)
+    SARC_task_index[i].tracer = (SARC_TracerRing *) ((char *) (header + 1) + i * ring_size);
+
+  header->version = SARC_TRACER_VERSION;
+  header->nb_tasks = nb_tasks;
+  header->nb_records = nb_records;
+  header->record_size = sizeof (SARC_TracerRecord);
+  header->payload_size = SARC_TRACER_PAYLOAD_SIZE;
+  header->pid = getpid ();
+  header->enabled = enabled;
+  header->start_time = SARC_get_local_time ();
+  snprintf (header->application, sizeof (header->application), "%s", application);
+  /* the segment is valid for readers once the magic number is written */
+  __atomic_store_n (&header->magic, SARC_TRACER_MAGIC, __ATOMIC_RELEASE);
+  SARC_tracer = header;
+}
+
+void
+SARC_tracer_enable (SARC_boolean8 enabled)
+{
+  if (SARC_tracer == NULL)
+    SARC_log_warning ("there is no trace segment (SARC_TRACE=0, or it could not be created)");
+  else
+    __atomic_store_n (&SARC_tracer->enabled, enabled ? 1 : 0, __ATOMIC_RELAXED);
+}
+
+SARC_TracerRecord *
+SARC_tracer_start (SARC_uint32 task, SARC_int32 oper_id, const void *message, SARC_uint32 size)
+{
+  SARC_TracerRing *ring = SARC_task_index[task].tracer;
+  SARC_uint64 position;
+  SARC_TracerRecord *record;
+  SARC_uint32 length = size > sizeof (SARC_int32) ? size - sizeof (SARC_int32) : 0;
+
+  if (ring == NULL)
+    return NULL;
+
+  /* the record is reserved first, so that a message handled meanwhile (e.g. while the
+     task waits for a synchronous response) takes the next one */
+  position = ring->head;
+  __atomic_store_n (&ring->head, position + 1, __ATOMIC_RELAXED);
+  record = &ring->records[position & (SARC_tracer->nb_records - 1)];
+  __atomic_store_n (&record->seq, ~(position + 1), __ATOMIC_RELAXED);
+  __atomic_thread_fence (__ATOMIC_RELEASE);
+
+  record->time = SARC_get_local_time ();
+  record->task = task;
+  record->oper_id = oper_id;
+  record->instance = -1;
+  record->size = size;
+  memcpy (record->payload, (const SARC_char8 *) message + sizeof (SARC_int32),
+          length < SARC_TRACER_PAYLOAD_SIZE ? length : SARC_TRACER_PAYLOAD_SIZE);
+  return record;
+}
+
+void
+SARC_tracer_commit (SARC_TracerRecord * record, SARC_int32 instance)
+{
+  record->instance = instance;
+  /* the record is valid for readers once its sequence number is written */
+  __atomic_store_n (&record->seq, ~record->seq, __ATOMIC_RELEASE);
+}
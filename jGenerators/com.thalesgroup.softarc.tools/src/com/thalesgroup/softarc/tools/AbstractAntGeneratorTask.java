@@ -6,8 +6,11 @@
  */
 package com.thalesgroup.softarc.tools;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -29,40 +32,36 @@ public abstract class AbstractAntGeneratorTask extends Task {
     public AbstractAntGeneratorTask() {
     }
 
+    /**
+     * @return the name of the generator for the generation server (see {@link GenerationServer}), or null if the generator is
+     *         always executed in the Ant process.
+     */
+    protected String getGeneratorName() {
+        return null;
+    }
+
+    /**
+     * @return the configuration of the generator, sent to the generation server with its name.
+     */
+    protected Map<String, String> getGeneratorProperties() {
+        return new HashMap<String, String>();
+    }
+
     @Override
     public void execute() throws BuildException {
         int retcode;
         try {
-            AbstractGenerator generator = newGenerator();
-
-            generator.getArguments().setBaseDir(getProject().getBaseDir());
-
-            final Task task = this;
-            generator._log.addHandler(new Handler() {
-                @Override
-                public void publish(LogRecord record) {
-                    int v = record.getLevel().intValue();
-                    if (v >= antLogLevel) {
-                        if (v < Level.INFO.intValue())
-                            task.log(record.getMessage(), Project.MSG_DEBUG);
-                        else if (record.getLevel() == Level.INFO)
-                            task.log(record.getMessage(), Project.MSG_INFO);
-                        else if (record.getLevel() == Level.WARNING)
-                            task.log(record.getMessage(), Project.MSG_WARN);
-                        else if (record.getLevel() == Level.SEVERE)
-                            task.log(record.getMessage(), Project.MSG_ERR);
-                    }
-                }
-
-                @Override
-                public void flush() {
-                }
-
-                @Override
-                public void close() throws SecurityException {
-                }
-            });
-            retcode = generator.execute(_antArgs.toArray(new String[_antArgs.size()]));
+            String[] args = _antArgs.toArray(new String[_antArgs.size()]);
+            Integer serverRetcode = executeInServer(args);
+            if (serverRetcode != null) {
+                retcode = serverRetcode;
+            } else {
+                AbstractGenerator generator = newGenerator();
+
+                generator.getArguments().setBaseDir(getProject().getBaseDir());
+                generator._log.addHandler(newLogHandler());
+                retcode = generator.execute(args);
+            }
         } catch (Throwable t) {
             throw new BuildException(t);
         }
@@ -70,6 +69,54 @@ public abstract class AbstractAntGeneratorTask extends Task {
             throw new BuildException();
     }
 
+    /**
+     * Executes the generator in the generation server, if one is running (unless Ant property "softarc.server" is false).
+     * 
+     * @return the return code of the generator, or null if it has not been executed by a server.
+     */
+    private Integer executeInServer(String[] args) throws IOException {
+        String name = getGeneratorName();
+        if (name == null || "false".equals(getProject().getProperty("softarc.server")))
+            return null;
+
+        Integer retcode = GenerationClient.execute(name, getProject().getBaseDir(), getGeneratorProperties(), args,
+                newLogHandler());
+        if (retcode != null)
+            log("Executed by the generation server", Project.MSG_VERBOSE);
+        return retcode;
+    }
+
+    /**
+     * @return a handler which forwards the log records of the generator to the Ant log.
+     */
+    private Handler newLogHandler() {
+        final Task task = this;
+        return new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                int v = record.getLevel().intValue();
+                if (v >= antLogLevel) {
+                    if (v < Level.INFO.intValue())
+                        task.log(record.getMessage(), Project.MSG_DEBUG);
+                    else if (record.getLevel() == Level.INFO)
+                        task.log(record.getMessage(), Project.MSG_INFO);
+                    else if (record.getLevel() == Level.WARNING)
+                        task.log(record.getMessage(), Project.MSG_WARN);
+                    else if (record.getLevel() == Level.SEVERE)
+                        task.log(record.getMessage(), Project.MSG_ERR);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() throws SecurityException {
+            }
+        };
+    }
+
     public void setLevel(String level) {
         if (level.equalsIgnoreCase("off"))
             antLogLevel = Level.OFF.intValue();
@@ -3,15 +3,21 @@
 package com.thalesgroup.softarc.tools;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -21,11 +27,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
+import org.stringtemplate.v4.AutoIndentWriter;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STErrorListener;
 import org.stringtemplate.v4.STGroup;
@@ -44,36 +53,30 @@ public abstract class AbstractGenerator extends AbstractLogger {
     private static final String CHARSET_NAME = "UTF-8";
     private static final Charset CHARSET = Charset.forName(CHARSET_NAME);
 
-    private final class ErrorListerner implements STErrorListener {
+    private static final class ErrorListerner implements STErrorListener {
         @Override
         public void runTimeError(STMessage msg) {
-            _generationErrors.add(msg);
+            _generationErrors.get().add(msg);
         }
 
         @Override
         public void internalError(STMessage msg) {
-            _generationErrors.add(msg);
+            _generationErrors.get().add(msg);
         }
 
         @Override
         public void compileTimeError(STMessage msg) {
-            _generationErrors.add(msg);
+            _generationErrors.get().add(msg);
         }
 
         @Override
         // CHECKSTYLE:OFF
         public void IOError(STMessage msg) {
-            _generationErrors.add(msg);
+            _generationErrors.get().add(msg);
         }
         // CHECKSTYLE:ON
     }
 
-    /**
-     * Map used as input of templates. Id : name of the attribute used in templates. Value : Value
-     * of this attribute for his template instance.
-     */
-    private final Map<String, Object> _tmplAttrs = new HashMap<String, Object>();
-
     /** Used to know wether the generator is launched from a jar or not */
     private String tmpDir = null;
 
@@ -161,12 +164,10 @@ public abstract class AbstractGenerator extends AbstractLogger {
             BufferedReader br = new BufferedReader(new InputStreamReader(stream));
             String strLine = null;
 
+            // templates are decrypted only when used (see decryptTemplateGroup)
             try {
                 while ((strLine = br.readLine()) != null) {
-                    if (!new File(strLine).exists()) {
-                        debug("decrypting template: %s", strLine);
-                        decrypt(strLine, tmpDir);
-                    }
+                    _cryptedTemplates.add(strLine);
                 }
             } catch (Exception e) {
                 e.printStackTrace();
@@ -249,6 +250,7 @@ public abstract class AbstractGenerator extends AbstractLogger {
         int retCode = 1;
 
         try {
+            LoadedFileList.forgetInputs();
             _arguments.clearValues();
             _arguments.parse(_specificGeneratorName, args);
             configureLogging();
@@ -264,12 +266,13 @@ public abstract class AbstractGenerator extends AbstractLogger {
 
             initialize();
             generate();
-            if (_nbGenerationErrors == 0) {
+            if (_nbGenerationErrors.get() == 0) {
                 info("successfully done.");
                 retCode = 0;
             } else {
-                info("generation failed : %d error(s) raised.", _nbGenerationErrors);
+                info("generation failed : %d error(s) raised.", _nbGenerationErrors.get());
             }
+            logReportStatistics();
         }
 
         // first, errors that are the user's responsibility
@@ -289,8 +292,12 @@ public abstract class AbstractGenerator extends AbstractLogger {
         }
 
         flushLogs();
+        closeLogs();
 
         if (tmpDir != null) {
+            TemplateGroupPool.removeAll(tmpDir);
+            _templateGroupLocations.clear();
+            _decryptedTemplates.clear();
             deleteDirectory(new File(tmpDir));
         }
         return retCode;
@@ -319,33 +326,113 @@ public abstract class AbstractGenerator extends AbstractLogger {
      * @param stop right separator
      */
     public void setSeparators(char start, char stop) {
-        _separatorStart = start;
-        _separatorStop = stop;
+        _separators.set(new char[] {start, stop});
     }
 
-    private STGroupFile loadTemplateGroup(String templateGroupName) throws IOException {
+    /**
+     * Gets an instance of a template group, which must be released after use. Template groups are
+     * loaded once, and kept in a pool shared by all the threads and all the generators.
+     */
+    private STGroupFile acquireTemplateGroup(String templateGroupName) throws IOException {
+        char[] separators = _separators.get();
         String filename = _templatesRoot + '/' + templateGroupName + ".stg";
-        String key = filename + "#" + _separatorStart + "#" + _separatorStop;
-        STGroupFile group = templatesCache.get(key);
+        String location = getTemplateGroupLocation(filename);
+        String key = getTemplateGroupKey(filename, separators);
+        boolean uncrypted = _templateGroupUrls.containsKey(filename);
 
+        // Only the first use of a template group by this generator is logged, whatever the thread
+        if (_loadedTemplateGroups.add(key)) {
+            info(uncrypted ? "Loading uncrypted template: %s" : "Loading template: %s", filename);
+        }
+        if (_buildCache != null) {
+            addTemplateGroupInput(templateGroupName);
+        }
+
+        STGroupFile group = TemplateGroupPool.acquire(key);
         if (group == null) {
+            if (uncrypted) {
+                group = new STGroupFile(_templateGroupUrls.get(filename), CHARSET_NAME, separators[0], separators[1]);
+            } else {
+                group = new STGroupFile(location, separators[0], separators[1]);
+            }
+            group.setListener(_strngTmplErrLstnr);
+            RenderingRecorder.register(group);
+        }
+        return group;
+    }
+
+    /** Records a template group as an input of the generation, in the build cache. */
+    private void addTemplateGroupInput(String templateGroupName) throws IOException {
+        _buildCache.addTemplateGroup(getTemplateGroupUrl(_templatesRoot + '/' + templateGroupName + ".stg"));
+    }
+
+    private void releaseTemplateGroup(String templateGroupName, STGroupFile group) throws IOException {
+        String filename = _templatesRoot + '/' + templateGroupName + ".stg";
+        TemplateGroupPool.release(getTemplateGroupKey(filename, _separators.get()), group);
+    }
+
+    /**
+     * @return the key of a template group in the pool: its location, separators and the
+     *     fingerprint of its content when first used by this generator, so that the groups loaded
+     *     before a template file was modified are not reused.
+     */
+    private String getTemplateGroupKey(String filename, char[] separators) throws IOException {
+        String prefix = getTemplateGroupLocation(filename) + "#" + separators[0] + "#" + separators[1] + "#";
+        String key = _templateGroupKeys.get(prefix);
+        if (key == null) {
+            key = prefix + TemplateGroupPool.fingerprint(getTemplateGroupUrl(filename));
+            if (_templateGroupKeys.putIfAbsent(prefix, key) == null) {
+                TemplateGroupPool.removeOtherVersions(prefix, key);
+            }
+            key = _templateGroupKeys.get(prefix);
+        }
+        return key;
+    }
+
+    private URL getTemplateGroupUrl(String filename) throws IOException {
+        String location = getTemplateGroupLocation(filename);
+        URL url = _templateGroupUrls.get(filename);
+        return url != null ? url : new File(location).toURI().toURL();
+    }
+
+    /**
+     * @return the URL of a template group found in the classpath, or else the path of the template
+     *     file (decrypted if necessary).
+     */
+    private String getTemplateGroupLocation(String filename) throws IOException {
+        String location = _templateGroupLocations.get(filename);
+        if (location == null) {
             URL url = getClass().getClassLoader().getResource(filename);
             if (url != null) {
-                info("Loading uncrypted template: %s", filename);
-                group = new STGroupFile(url, CHARSET_NAME, _separatorStart, _separatorStop);
+                _templateGroupUrls.put(filename, url);
+                location = url.toString();
+            } else if (tmpDir != null) {
+                decryptTemplateGroup(filename);
+                location = tmpDir + filename;
             } else {
-                info("Loading template: %s", filename);
-                if (tmpDir != null) {
-                    filename = tmpDir + filename;
-                }
-                group = new STGroupFile(filename, _separatorStart, _separatorStop);
+                location = filename;
             }
-
-            group.setListener(_strngTmplErrLstnr);
-            templatesCache.put(key, group);
+            _templateGroupLocations.put(filename, location);
         }
+        return location;
+    }
 
-        return group;
+    /** Decrypts a template group, and the template groups it imports, if not already done. */
+    private synchronized void decryptTemplateGroup(String filename) throws IOException {
+        if (!_cryptedTemplates.contains(filename) || new File(filename).exists()) return;
+        if (!_decryptedTemplates.add(filename)) return;
+
+        debug("decrypting template: %s", filename);
+        String path;
+        try {
+            path = decrypt(filename, tmpDir);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot decrypt template " + filename, e);
+        }
+        for (String imported : BuildCache.getTemplateImports(Files.readAllBytes(Paths.get(path)))) {
+            Path importedPath = Paths.get(filename).resolveSibling(imported).normalize();
+            decryptTemplateGroup(importedPath.toString().replace(File.separatorChar, '/'));
+        }
     }
 
     private static final String PASSPHRASE = "correct horse battery staple";
@@ -403,16 +490,37 @@ public abstract class AbstractGenerator extends AbstractLogger {
     protected String renderTemplate(
             String templateGroupName, String templateName, Map<String, Object> attributes)
             throws IOException {
-        STGroup group = loadTemplateGroup(templateGroupName);
+        STGroupFile group = acquireTemplateGroup(templateGroupName);
+        try {
+            return prepareTemplate(group, templateGroupName, templateName, attributes).render();
+        } finally {
+            releaseTemplateGroup(templateGroupName, group);
+        }
+    }
+
+    /**
+     * Instantiates a template with data, ready to be rendered.
+     *
+     * @param group the template group, acquired by the current thread until the template is rendered.
+     * @param templateGroupName the name of the template group, i.e. its filename without '.stg'.
+     * @param templateName the name of the template in the specified template group
+     * @param attributes all the association {key, value} used by the template.
+     * @return the template instance.
+     * @throws IOException when the template cannot be instantiated.
+     */
+    private ST prepareTemplate(
+            STGroup group, String templateGroupName, String templateName, Map<String, Object> attributes)
+            throws IOException {
         registerRenderers(group);
 
         // Clear any pending generation fault
-        _generationErrors.clear();
+        List<Object> generationErrors = _generationErrors.get();
+        generationErrors.clear();
 
         // compile the template (syntax errors will be raised here)
         ST template = group.getInstanceOf(templateName);
 
-        for (Object err : _generationErrors) {
+        for (Object err : generationErrors) {
             error((STMessage) err);
         }
 
@@ -455,8 +563,7 @@ public abstract class AbstractGenerator extends AbstractLogger {
 
         if (debugTemplate != null && templateName.startsWith(debugTemplate)) template.inspect();
 
-        // Generate content
-        return template.render();
+        return template;
     }
 
     protected void registerRenderers(STGroup group) {
@@ -497,11 +604,54 @@ public abstract class AbstractGenerator extends AbstractLogger {
             Map<String, Object> attributes)
             throws IOException {
 
-        String newContent = renderTemplate(templateGroupName, templateName, attributes);
+        // With incremental generation, the rendering is skipped if the data it read in the previous
+        // generation did not change
+        if (_buildCache != null) {
+            BuildCache.Rendering previous =
+                    _buildCache.getPreviousRendering(outputFile, templateGroupName, templateName);
+            if (previous != null && RenderingRecorder.replay(previous, attributes)) {
+                addTemplateGroupInput(templateGroupName);
+                _buildCache.addRendering(outputFile, previous);
+                report(outputFile, ReportStatus.SKIPPED);
+                return;
+            }
+        }
 
-        if (!_generationErrors.isEmpty()) {
+        STGroupFile group = acquireTemplateGroup(templateGroupName);
+        long start;
+        GeneratedFileOutputStream out;
+        RenderingRecorder recorder = null;
+        try {
+            ST template = prepareTemplate(group, templateGroupName, templateName, attributes);
+
+            // Generate content directly in the file (as ST.render() does in a String), comparing it
+            // with the existing file on the fly
+            start = System.nanoTime();
+            out = new GeneratedFileOutputStream(outputFile);
+            if (_buildCache != null) {
+                recorder = RenderingRecorder.start(attributes);
+            }
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, CHARSET));
+                template.write(new AutoIndentWriter(writer), Locale.getDefault());
+                writer.flush();
+            } catch (IOException | RuntimeException | Error e) {
+                out.abort();
+                throw e;
+            } finally {
+                if (recorder != null) {
+                    recorder.stop();
+                }
+            }
+        } finally {
+            releaseTemplateGroup(templateGroupName, group);
+        }
+        List<Object> generationErrors = _generationErrors.get();
+
+        if (!generationErrors.isEmpty()) {
+            out.abort();
             // Write errors list to log file
-            for (Object err : _generationErrors) {
+            for (Object err : generationErrors) {
                 if (err instanceof IOException) {
                     throw (IOException) err;
                 } else if (err instanceof STMessage) {
@@ -513,13 +663,16 @@ public abstract class AbstractGenerator extends AbstractLogger {
                             outputFile.toURI().getPath());
                 }
             }
-            _nbGenerationErrors++;
+            _nbGenerationErrors.incrementAndGet();
             report(outputFile, ReportStatus.ERROR);
         } else {
-            report(
-                    outputFile,
-                    Utilities.createFileFromStream(
-                            outputFile, new ByteArrayInputStream(newContent.getBytes(CHARSET))));
+            ReportStatus status = out.commit();
+            BuildCache.Rendering rendering =
+                    recorder == null ? null : recorder.getRendering(templateGroupName, templateName);
+            if (rendering != null) {
+                _buildCache.addRendering(outputFile, rendering);
+            }
+            report(outputFile, status, out.getSize(), System.nanoTime() - start);
         }
     }
 
@@ -537,16 +690,37 @@ public abstract class AbstractGenerator extends AbstractLogger {
             File target, String templateGroupName, String templateName, Object... attributes)
             throws IOException {
         assert (attributes.length % 2) == 0 : "Attributes must be defined as {key,value} pairs";
-        _tmplAttrs.clear();
+        Map<String, Object> tmplAttrs = new HashMap<String, Object>();
         for (int i = 0; i < attributes.length; i += 2) {
-            _tmplAttrs.put((String) attributes[i], attributes[i + 1]);
+            tmplAttrs.put((String) attributes[i], attributes[i + 1]);
+        }
+        createFileFromTemplate(target, templateGroupName, templateName, tmplAttrs);
+    }
+
+    @Override
+    public void loaded(File file, byte[] content) {
+        if (_buildCache != null) {
+            _buildCache.addInput(file, content);
+        }
+    }
+
+    @Override
+    public void report(File file, ReportStatus status, long size, long nanos) {
+        if (_buildCache != null) {
+            _buildCache.addOutput(file, status);
         }
-        createFileFromTemplate(target, templateGroupName, templateName, _tmplAttrs);
-        _tmplAttrs.clear();
+        super.report(file, status, size, nanos);
     }
 
     public void createFileFromStream(File target, InputStream stream) throws IOException {
-        report(target, Utilities.createFileFromStream(target, stream));
+        createFileFromBytes(target, stream.readAllBytes());
+    }
+
+    /** Creates a file with the given content, and reports it with its size and write time. */
+    public void createFileFromBytes(File target, byte[] content) throws IOException {
+        long start = System.nanoTime();
+        ReportStatus status = Utilities.createFileFromBytes(target, content);
+        report(target, status, content.length, System.nanoTime() - start);
     }
 
     /** Report an exception to the execution log. */
@@ -578,21 +752,40 @@ public abstract class AbstractGenerator extends AbstractLogger {
 
     /** String Template Error Listener. */
     protected final STErrorListener _strngTmplErrLstnr;
-    /** List of all the generation errors raised during this execution. */
-    protected final List<Object> _generationErrors = new ArrayList<Object>();
-    /** String Template begin token definition. Default : '<'. */
-    protected char _separatorStart = '<';
-    /** String template end token definition. Default : '>'. */
-    protected char _separatorStop = '>';
+    /**
+     * List of the generation errors raised by the current rendering. Defined per thread, as
+     * several threads may render templates concurrently, and shared by all generators, as template
+     * groups (and thus their error listener) are.
+     */
+    protected static final ThreadLocal<List<Object>> _generationErrors =
+            ThreadLocal.withInitial(() -> new ArrayList<Object>());
+    /**
+     * String Template begin and end token definitions. Default : '<' and '>'. Defined per thread,
+     * as several threads may generate files with different separators.
+     */
+    private final ThreadLocal<char[]> _separators =
+            ThreadLocal.withInitial(() -> new char[] {'<', '>'});
     /** Debugging state. Default : false. */
     protected boolean _debug = false;
     /** template files root path. */
     protected String _templatesRoot;
     /** Number of errors raised during generation process */
-    protected int _nbGenerationErrors = 0;
-
-    /** Loaded templates cache */
-    protected Map<String, STGroupFile> templatesCache = new HashMap<String, STGroupFile>();
+    protected final AtomicInteger _nbGenerationErrors = new AtomicInteger();
+
+    /** If not null, records the templates used and the files generated. */
+    protected BuildCache _buildCache = null;
+
+    /** Location of each template group file used, see getTemplateGroupLocation(). */
+    private final Map<String, String> _templateGroupLocations = new ConcurrentHashMap<String, String>();
+    /** URL of each template group file found in the classpath. */
+    private final Map<String, URL> _templateGroupUrls = new ConcurrentHashMap<String, URL>();
+    /** Keys of the template groups already used by any thread (used for logging only). */
+    private final Set<String> _loadedTemplateGroups = ConcurrentHashMap.newKeySet();
+    /** Key of each template group in the pool, see getTemplateGroupKey(). */
+    private final Map<String, String> _templateGroupKeys = new ConcurrentHashMap<String, String>();
+    /** Template files listed in "templateList", and those already decrypted in tmpDir. */
+    private final Set<String> _cryptedTemplates = ConcurrentHashMap.newKeySet();
+    private final Set<String> _decryptedTemplates = ConcurrentHashMap.newKeySet();
 
     public static final String ARGUMENT_KEY_DEBUG = "debug";
     public static final char ARGUMENT_KEY_SHORT_DEBUG = 'g';
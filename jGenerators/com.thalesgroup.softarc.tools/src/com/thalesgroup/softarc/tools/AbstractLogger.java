@@ -7,9 +7,13 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 public class AbstractLogger {
@@ -37,7 +41,7 @@ public class AbstractLogger {
         _arguments.getAll(ARGUMENT_KEY_LOG_FILE, files);
         for (File log : files)
             try {
-                _log.addHandler(new LogHandler(outputStream(log)));
+                _log.addHandler(opened(new LogHandler(outputStream(log)), log));
             } catch (Exception e) {
                 throw new IOException("Cannot open log file '" + log.toURI().getPath() + "'.");
             }
@@ -45,7 +49,7 @@ public class AbstractLogger {
         _arguments.getAll(ARGUMENT_KEY_ERR_FILE, files);
         for (File log : files)
             try {
-                LogHandler handler = new LogHandler(outputStream(log));
+                LogHandler handler = opened(new LogHandler(outputStream(log)), log);
                 handler.setLevel(Level.WARNING);
                 _log.addHandler(handler);
             } catch (Exception e) {
@@ -61,7 +65,7 @@ public class AbstractLogger {
         _arguments.getAll(ARGUMENT_KEY_REPORT_FILE, files);
         for (File log : files)
             try {
-                _report.addHandler(new ReportHandler(outputStream(log)));
+                _report.addHandler(opened(new ReportHandler(outputStream(log)), log));
             } catch (Exception e) {
                 throw new IOException("Cannot open report file '" + log.toURI().getPath() + "'.");
             }
@@ -69,6 +73,25 @@ public class AbstractLogger {
             _report.addHandler(new ReportHandler(System.out));
     }
 
+    /**
+     * Closes the log and report files opened by {@link #configureLogging()}, so that the files of successive executions in the
+     * same process are not kept open.
+     */
+    protected void closeLogs() {
+        for (Handler h : _openedHandlers) {
+            _log.removeHandler(h);
+            _report.removeHandler(h);
+            h.close();
+        }
+        _openedHandlers.clear();
+    }
+
+    private <H extends Handler> H opened(H handler, File f) {
+        if (!isStandardStream(f))
+            _openedHandlers.add(handler);
+        return handler;
+    }
+
     private OutputStream outputStream(File f) throws FileNotFoundException {
         if (f.getPath().equals("stdout"))
             return System.out;
@@ -77,6 +100,21 @@ public class AbstractLogger {
         return new FileOutputStream(f);
     }
 
+    private static boolean isStandardStream(File f) {
+        return f.getPath().equals("stdout") || f.getPath().equals("stderr");
+    }
+
+    /**
+     * Notifies that an input file has been loaded (e.g. a model file), with its content.
+     * 
+     * @param file
+     *            the file loaded.
+     * @param content
+     *            the content of the file.
+     */
+    public void loaded(File file, byte[] content) {
+    }
+
     /**
      * Report a status of a generated file.
      * 
@@ -87,7 +125,70 @@ public class AbstractLogger {
      */
     @Requirement(ids = { "GenFramework-SRS-REQ-020", "GenFramework-SRS-REQ-136", "GenFramework-SRS-REQ-137" })
     public void report(File file, ReportStatus status) {
-        _report.log(Level.INFO, file.toURI().getPath(), status);
+        report(file, status, -1, 0);
+    }
+
+    /**
+     * Report a status of a generated file, with the size of its content and the time taken to compare it with the existing file
+     * and write it. Both are available to report handlers as the second and third parameters of the log record.
+     * 
+     * @param size
+     *            the size of the generated content in bytes, or -1 if not applicable.
+     * @param nanos
+     *            the time taken to compare and write the file (including rendering, when content is rendered directly in the
+     *            file), in nanoseconds.
+     */
+    public void report(File file, ReportStatus status, long size, long nanos) {
+        LogRecord record = new LogRecord(Level.INFO, file.toURI().getPath());
+        record.setParameters(new Object[] { status, size, nanos });
+        issueReport(record);
+    }
+
+    /**
+     * Logs the statistics of generated files computed by the report handler.
+     */
+    protected void logReportStatistics() {
+        for (Handler h : _report.getHandlers()) {
+            if (h instanceof ReportHandler) {
+                info("%s", ((ReportHandler) h).getStatistics());
+                break;
+            }
+        }
+    }
+
+    private void issueReport(LogRecord record) {
+        List<LogRecord> deferred = _deferredReports.get().peek();
+        if (deferred != null)
+            deferred.add(record);
+        else
+            _report.log(record);
+    }
+
+    /**
+     * Defers the reports issued by the current thread, until {@link #takeDeferredReports()} is called. This allows a part of the
+     * generation to be done concurrently with other parts, while keeping the report in the same order as a sequential
+     * generation. Calls may be nested.
+     */
+    public void deferReports() {
+        _deferredReports.get().push(new ArrayList<LogRecord>());
+    }
+
+    /**
+     * Stops deferring the reports of the current thread (or goes back to the enclosing deferral).
+     * 
+     * @return the reports deferred since the matching call to {@link #deferReports()}, to be passed to
+     *         {@link #issueReports(List)}.
+     */
+    public List<LogRecord> takeDeferredReports() {
+        return _deferredReports.get().pop();
+    }
+
+    /**
+     * Issues reports previously deferred (they are deferred again if the current thread is itself deferring its reports).
+     */
+    public void issueReports(List<LogRecord> deferred) {
+        for (LogRecord record : deferred)
+            issueReport(record);
     }
 
     /**
@@ -134,7 +235,14 @@ public class AbstractLogger {
      * Reporting channel definition. Default : System.out.
      */
     public Logger _report;
+    /**
+     * Reports deferred by the current thread (innermost deferral first), empty if reports are issued immediately.
+     */
+    private final ThreadLocal<Deque<List<LogRecord>>> _deferredReports = ThreadLocal
+            .withInitial(() -> new ArrayDeque<List<LogRecord>>());
     protected LogHandler defaultHandler;
+    /** Handlers created by {@link #configureLogging()}, to be closed by {@link #closeLogs()}. */
+    private final List<Handler> _openedHandlers = new ArrayList<Handler>();
     /**
      * Specific generator name.
      */
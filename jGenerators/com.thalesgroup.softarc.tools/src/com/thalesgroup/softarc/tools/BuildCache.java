@@ -0,0 +1,366 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent record of the inputs and outputs of a generation, used to skip a generation when nothing changed since the
+ * previous one, or else to skip the rendering of the templates whose data did not change.
+ *
+ * <p>
+ * Inputs are identified by their URL and recorded with the hash of their content. Model inputs are the files loaded through
+ * {@link XmlPersistence#load(File, AbstractLogger)} and the workspace configuration. Tool inputs are the template groups (and
+ * the groups they import) and the generator jars or directories. Outputs are the files reported by the generator, recorded
+ * with the hash of their content once the generation is finished (or only checked for existence, for user-modifiable files
+ * that were preserved).
+ *
+ * <p>
+ * A generation is up-to-date if the configuration of the generator is the same, if all inputs have the same content, and if all
+ * outputs still exist with the same content. Since generation is deterministic, the same inputs are then loaded and the same
+ * outputs would be produced.
+ *
+ * <p>
+ * Otherwise, the passes are executed again (identifiers and sizes are computed over the whole model, so that a change in any
+ * model input may modify any data given to the templates). But each output rendered from a template is also recorded with the
+ * parts of the model read by the rendering (see {@link RenderingRecorder}): if the configuration and the tool inputs are the
+ * same, and if the output still has the same content, the rendering of the same template for the same output is skipped when
+ * these parts of the model have the same values.
+ */
+public class BuildCache {
+
+    private static final String HEADER = "# SOFTARC build cache 2";
+    private static final String ABSENT = "absent";
+    private static final String PRESERVED = "preserved";
+    private static final Pattern TEMPLATE_IMPORT = Pattern.compile("^import\\s+\"([^\"]+)\"", Pattern.MULTILINE);
+
+    private final File _file;
+    private String _configuration = "";
+    private final Map<String, String> _inputs = new TreeMap<String, String>();
+    private final Map<String, String> _toolInputs = new TreeMap<String, String>();
+    private final Map<File, ReportStatus> _outputs = new TreeMap<File, ReportStatus>();
+    private final Map<File, Rendering> _renderings = new TreeMap<File, Rendering>();
+    /** Outputs written several times by the generation, whose rendering cannot be skipped. */
+    private final Set<File> _overwrittenOutputs = new HashSet<File>();
+    /** Renderings of the previous generation which may be skipped, if their data did not change. */
+    private final Map<File, Rendering> _previousRenderings = new HashMap<File, Rendering>();
+
+    /**
+     * Record of the rendering of a template into an output file.
+     */
+    static final class Rendering {
+        final String templateGroupName;
+        final String templateName;
+        /** Hash of the fingerprints of the values read by the rendering. */
+        final String hash;
+        /** Steps of the paths read by the rendering, see {@link RenderingRecorder}. */
+        final List<String> path;
+
+        Rendering(String templateGroupName, String templateName, String hash, List<String> path) {
+            this.templateGroupName = templateGroupName;
+            this.templateName = templateName;
+            this.hash = hash;
+            this.path = path;
+        }
+    }
+
+    /**
+     * @param file the file where the cache is persisted (typically in the generation directory)
+     */
+    public BuildCache(File file) {
+        _file = file;
+    }
+
+    /**
+     * Sets the configuration of the generator (options, feature toggles): a generation done with another configuration is
+     * never up-to-date.
+     */
+    public synchronized void setConfiguration(String configuration) {
+        _configuration = configuration.replace('\n', ' ');
+    }
+
+    /**
+     * Records an input file, with its content.
+     */
+    public synchronized void addInput(File file, byte[] content) {
+        _inputs.put(file.toURI().toString(), hash(content));
+    }
+
+    /**
+     * Records an input file or directory, which may not exist (in which case its creation will invalidate the cache).
+     */
+    public synchronized void addInput(File file) throws IOException {
+        String url = file.toURI().toString();
+        _inputs.put(url, hash(url));
+    }
+
+    /**
+     * Records a file or directory of the generator itself (classes, resources).
+     */
+    public synchronized void addToolInput(File file) throws IOException {
+        String url = file.toURI().toString();
+        _toolInputs.put(url, hash(url));
+    }
+
+    /**
+     * Records a template group, and recursively all template groups it imports.
+     */
+    public synchronized void addTemplateGroup(URL url) throws IOException {
+        String key = url.toString();
+        if (_toolInputs.containsKey(key))
+            return;
+
+        byte[] content = read(url);
+        _toolInputs.put(key, content == null ? ABSENT : hash(content));
+        if (content != null) {
+            for (String imported : getTemplateImports(content)) {
+                addTemplateGroup(new URL(url, imported));
+            }
+        }
+    }
+
+    /**
+     * @return the relative paths of the template groups imported by a template group.
+     */
+    static List<String> getTemplateImports(byte[] content) {
+        List<String> imports = new ArrayList<String>();
+        Matcher m = TEMPLATE_IMPORT.matcher(new String(content, StandardCharsets.UTF_8));
+        while (m.find()) {
+            imports.add(m.group(1));
+        }
+        return imports;
+    }
+
+    /**
+     * Records an output file, with the status reported for it.
+     */
+    public synchronized void addOutput(File file, ReportStatus status) {
+        if (_outputs.put(file.getAbsoluteFile(), status) != null)
+            _overwrittenOutputs.add(file.getAbsoluteFile());
+    }
+
+    /**
+     * Records the rendering of a template into an output file (to be called before the output is reported).
+     */
+    synchronized void addRendering(File file, Rendering rendering) {
+        _renderings.put(file.getAbsoluteFile(), rendering);
+    }
+
+    /**
+     * @return the record of the rendering of the given template into an output file in the previous generation, if it can be
+     *         skipped when its data did not change, or null.
+     */
+    synchronized Rendering getPreviousRendering(File file, String templateGroupName, String templateName) {
+        File output = file.getAbsoluteFile();
+        Rendering rendering = _previousRenderings.get(output);
+        if (rendering == null || _outputs.containsKey(output) || !rendering.templateGroupName.equals(templateGroupName)
+                || !rendering.templateName.equals(templateName))
+            return null;
+        return rendering;
+    }
+
+    /**
+     * Compares the record of the previous generation with the current state of its inputs and outputs. If the generation is not
+     * up-to-date, but the configuration and the tool inputs are the same, the renderings of the outputs which still have the
+     * same content may be skipped (see {@link #getPreviousRendering(File, String, String)}).
+     *
+     * @return the outputs of the previous generation if it is up-to-date, null otherwise.
+     */
+    public synchronized List<File> getUpToDateOutputs() throws IOException {
+        if (!_file.isFile())
+            return null;
+
+        boolean sameModel = true;
+        List<File> outputs = new ArrayList<File>();
+        Map<File, Rendering> renderings = new HashMap<File, Rendering>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(_file), StandardCharsets.UTF_8));
+        try {
+            if (!HEADER.equals(reader.readLine()))
+                return null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("configuration ")) {
+                    if (!_configuration.equals(line.substring("configuration ".length())))
+                        return null;
+                    continue;
+                }
+                String[] fields = line.split(" ", 3);
+                if (fields.length != 3)
+                    return null;
+                if (fields[0].equals("input")) {
+                    sameModel = sameModel && fields[1].equals(hash(fields[2]));
+                } else if (fields[0].equals("tool")) {
+                    if (!fields[1].equals(hash(fields[2])))
+                        return null;
+                } else if (fields[0].equals("output")) {
+                    File output = new File(fields[2]);
+                    if (output.isFile() && (fields[1].equals(PRESERVED) || fields[1].equals(hash(output.toURI().toString())))) {
+                        outputs.add(output);
+                    } else {
+                        sameModel = false;
+                    }
+                } else if (fields[0].equals("rendering")) {
+                    String[] steps = fields[2].split(" ");
+                    if (steps.length < 3)
+                        return null;
+                    renderings.put(new File(RenderingRecorder.decode(steps[0])).getAbsoluteFile(),
+                            new Rendering(RenderingRecorder.decode(steps[1]), RenderingRecorder.decode(steps[2]), fields[1],
+                                    Arrays.asList(steps).subList(3, steps.length)));
+                } else {
+                    return null;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (sameModel)
+            return outputs;
+
+        // only the renderings of the outputs found unchanged may be skipped
+        for (File output : outputs) {
+            Rendering rendering = renderings.get(output.getAbsoluteFile());
+            if (rendering != null)
+                _previousRenderings.put(output.getAbsoluteFile(), rendering);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the record of the previous generation (to be done before starting a new one, which may fail).
+     */
+    public void delete() {
+        _file.delete();
+    }
+
+    /**
+     * Writes the record of the generation. To be called only if generation was successful.
+     */
+    public synchronized void save() throws IOException {
+        if (_file.getParentFile() != null)
+            _file.getParentFile().mkdirs();
+
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(_file), StandardCharsets.UTF_8));
+        try {
+            writer.println(HEADER);
+            writer.println("configuration " + _configuration);
+            for (Map.Entry<String, String> input : _toolInputs.entrySet()) {
+                writer.println("tool " + input.getValue() + " " + input.getKey());
+            }
+            for (Map.Entry<String, String> input : _inputs.entrySet()) {
+                writer.println("input " + input.getValue() + " " + input.getKey());
+            }
+            for (Map.Entry<File, ReportStatus> output : _outputs.entrySet()) {
+                File file = output.getKey();
+                if (output.getValue() == ReportStatus.ERROR || !file.isFile())
+                    continue;
+                String hash = output.getValue() == ReportStatus.PRESERVED ? PRESERVED : hash(file.toURI().toString());
+                Rendering rendering = _renderings.get(file);
+                if (rendering != null && output.getValue() != ReportStatus.PRESERVED && !_overwrittenOutputs.contains(file)) {
+                    writer.print("rendering " + rendering.hash + " " + RenderingRecorder.encode(file.getPath()) + " "
+                            + RenderingRecorder.encode(rendering.templateGroupName) + " "
+                            + RenderingRecorder.encode(rendering.templateName));
+                    for (String step : rendering.path) {
+                        writer.print(" " + step);
+                    }
+                    writer.println();
+                }
+                writer.println("output " + hash + " " + file.getPath());
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return the hash of the content at the given URL (see {@link #listDirectory(File, String, StringBuilder)} for a
+     *         directory), or "absent".
+     */
+    static String hash(String url) throws IOException {
+        if (url.startsWith("file:")) {
+            File file = new File(URI.create(url));
+            if (file.isDirectory())
+                return hash(listDirectory(file, "", new StringBuilder()).toString().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] content = read(new URL(url));
+        return content == null ? ABSENT : hash(content);
+    }
+
+    /**
+     * A directory (e.g. the classes and templates of the generator) is represented by the names, sizes and dates of all the
+     * files it contains, which is much cheaper than reading all of them.
+     */
+    private static StringBuilder listDirectory(File dir, String prefix, StringBuilder sb) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    listDirectory(f, prefix + f.getName() + "/", sb);
+                } else {
+                    sb.append(prefix).append(f.getName()).append(' ').append(f.length()).append(' ').append(f.lastModified())
+                            .append('\n');
+                }
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * @return the content at the given URL, or null if it does not exist.
+     */
+    static byte[] read(URL url) throws IOException {
+        InputStream stream;
+        try {
+            stream = url.openStream();
+        } catch (IOException e) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                content.write(buffer, 0, n);
+            }
+            return content.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+
+    static String hash(byte[] content) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Output stream for the content of a generated file, which is compared with the existing file while it is written.
+ *
+ * <p>
+ * As long as the content is identical to the beginning of the existing file, nothing is written. From the first difference,
+ * the content is written to a temporary file (after the identical beginning, copied from the existing file), which replaces the
+ * target file on {@link #commit()}. The whole content is never held in memory.
+ */
+public class GeneratedFileOutputStream extends OutputStream {
+
+    private final File _target;
+    private final boolean _existed;
+    /** Existing file, read as long as the content is identical to it; null from the first difference. */
+    private InputStream _existing;
+    private final byte[] _buffer = new byte[Utilities.COMPARISON_BLOCK_SIZE];
+    private Path _tempPath;
+    /** Temporary file, opened from the first difference. */
+    private OutputStream _temp;
+    private long _size = 0;
+
+    public GeneratedFileOutputStream(File target) throws IOException {
+        _target = target;
+        _existed = target.isFile();
+        if (_existed) {
+            _existing = Files.newInputStream(target.toPath());
+        } else {
+            openTemporaryFile(0);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        _size += len;
+        while (_existing != null && len > 0) {
+            int n = Math.min(len, _buffer.length);
+            int read = _existing.readNBytes(_buffer, 0, n);
+            if (read == n && Arrays.equals(_buffer, 0, n, b, off, off + n)) {
+                off += n;
+                len -= n;
+            } else {
+                // copy the identical beginning, which ends at the current position of the output
+                openTemporaryFile(_size - len);
+            }
+        }
+        if (_temp != null && len > 0) {
+            _temp.write(b, off, len);
+        }
+    }
+
+    /**
+     * @return the number of bytes written so far.
+     */
+    public long getSize() {
+        return _size;
+    }
+
+    /**
+     * Terminates the file: replaces the target file if its content has changed.
+     *
+     * @return CREATED, UPDATED or IDENTICAL
+     */
+    public ReportStatus commit() throws IOException {
+        if (_existing != null) {
+            if (_existing.read() == -1) {
+                abort();
+                return ReportStatus.IDENTICAL;
+            }
+            // the existing file is longer
+            openTemporaryFile(_size);
+        }
+        try {
+            _temp.close();
+            _temp = null;
+            Utilities.replaceFile(_tempPath, _target.toPath());
+        } finally {
+            abort();
+        }
+        return _existed ? ReportStatus.UPDATED : ReportStatus.CREATED;
+    }
+
+    /**
+     * Leaves the target file unchanged (e.g. after a generation error), and releases all resources.
+     */
+    public void abort() throws IOException {
+        if (_existing != null) {
+            _existing.close();
+            _existing = null;
+        }
+        if (_temp != null) {
+            _temp.close();
+            _temp = null;
+        }
+        if (_tempPath != null) {
+            Files.deleteIfExists(_tempPath);
+            _tempPath = null;
+        }
+    }
+
+    /**
+     * Does nothing, as writers built on this stream close it: {@link #commit()} or {@link #abort()} must be called explicitly.
+     */
+    @Override
+    public void close() throws IOException {
+        // nothing to do: commit() or abort() must be called explicitly
+    }
+
+    private void openTemporaryFile(long identicalLength) throws IOException {
+        if (_existing != null) {
+            _existing.close();
+            _existing = null;
+        }
+        _tempPath = Utilities.newTemporaryFile(_target);
+        _temp = new BufferedOutputStream(
+                Files.newOutputStream(_tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                Utilities.COMPARISON_BLOCK_SIZE);
+
+        if (identicalLength > 0) {
+            InputStream in = Files.newInputStream(_target.toPath());
+            try {
+                long remaining = identicalLength;
+                while (remaining > 0) {
+                    int n = in.read(_buffer, 0, (int) Math.min(remaining, _buffer.length));
+                    if (n < 0)
+                        throw new IOException("File modified during generation: " + _target);
+                    _temp.write(_buffer, 0, n);
+                    remaining -= n;
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Client of the {@link GenerationServer}, if one is running for the current user.
+ */
+public class GenerationClient {
+
+    /** Time allowed to connect to the server. */
+    private static final int CONNECTION_TIMEOUT = 2000;
+
+    private final Socket _socket;
+    private final DataInputStream _in;
+    private final DataOutputStream _out;
+
+    private GenerationClient(Socket socket) throws IOException {
+        _socket = socket;
+        _in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        _out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Executes a generator in the generation server.
+     *
+     * @param name the name of the generator (see {@link GenerationServer.GeneratorFactory})
+     * @param baseDir the directory relative paths in arguments are relative to
+     * @param properties the configuration of the generator
+     * @param args the command line arguments of the generator
+     * @param log the handler which receives the log records of the generator, or null if logs are written as by a generator
+     *            executed in the current process (on the standard error, unless log files are given)
+     * @return the return code of the generator, or null if no server is running or if it cannot execute this generator.
+     * @throws IOException when the connection with the server is lost during the generation
+     */
+    public static Integer execute(String name, File baseDir, Map<String, String> properties, String[] args, Handler log)
+            throws IOException {
+        GenerationClient client = connect(GenerationServer.COMMAND_RUN);
+        if (client == null)
+            return null;
+
+        try {
+            DataOutputStream out = client._out;
+            GenerationServer.writeString(out, name);
+            GenerationServer.writeString(out, GenerationServer.getCodeLocation());
+            GenerationServer.writeString(out, baseDir.getAbsolutePath());
+            out.writeBoolean(log != null);
+            GenerationServer.writeMap(out, properties);
+            GenerationServer.writeMap(out, System.getenv());
+            out.writeInt(args.length);
+            for (String arg : args) {
+                GenerationServer.writeString(out, arg);
+            }
+            out.flush();
+
+            return client.readResponse(log);
+        } finally {
+            client._socket.close();
+        }
+    }
+
+    /**
+     * Prints the status of the generation server on the standard output.
+     *
+     * @return false if no server is running.
+     */
+    public static boolean status() throws IOException {
+        return simpleCommand(GenerationServer.COMMAND_STATUS);
+    }
+
+    /**
+     * Stops the generation server, after the end of the current generation.
+     *
+     * @return false if no server is running.
+     */
+    public static boolean stop() throws IOException {
+        return simpleCommand(GenerationServer.COMMAND_STOP);
+    }
+
+    private static boolean simpleCommand(String command) throws IOException {
+        GenerationClient client = connect(command);
+        if (client == null)
+            return false;
+        try {
+            client._out.flush();
+            return client.readResponse(null) != null;
+        } finally {
+            client._socket.close();
+        }
+    }
+
+    /**
+     * @return a client connected to the server, with the given command sent, or null if no server is running.
+     */
+    private static GenerationClient connect(String command) throws IOException {
+        File portFile = GenerationServer.getPortFile();
+        if (!portFile.isFile())
+            return null;
+
+        String[] description = new String(Files.readAllBytes(portFile.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+        if (description.length != 2 || description[1].length() != 2 * GenerationServer.TOKEN_SIZE)
+            return null;
+        byte[] token = new byte[GenerationServer.TOKEN_SIZE];
+        try {
+            for (int i = 0; i < token.length; i++) {
+                token[i] = (byte) Integer.parseInt(description[1].substring(2 * i, 2 * i + 2), 16);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(description[0])),
+                    CONNECTION_TIMEOUT);
+        } catch (IOException | NumberFormatException e) {
+            // server not running any more
+            socket.close();
+            return null;
+        }
+
+        GenerationClient client = new GenerationClient(socket);
+        GenerationServer.writeString(client._out, GenerationServer.PROTOCOL);
+        client._out.write(token);
+        GenerationServer.writeString(client._out, command);
+        return client;
+    }
+
+    /**
+     * Reads the frames sent by the server until the end of the command.
+     *
+     * @return the return code of the command, or null if the server refused to execute it.
+     */
+    private Integer readResponse(Handler log) throws IOException {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        try {
+            while (true) {
+                int frameType = _in.readByte();
+                switch (frameType) {
+                case GenerationServer.FRAME_LOG:
+                    Level level = Level.parse(String.valueOf(_in.readInt()));
+                    String message = GenerationServer.readString(_in, Integer.MAX_VALUE);
+                    if (log != null)
+                        log.publish(new LogRecord(level, message));
+                    break;
+                case GenerationServer.FRAME_OUT:
+                case GenerationServer.FRAME_ERR:
+                    byte[] bytes = new byte[_in.readInt()];
+                    _in.readFully(bytes);
+                    PrintStream stream = frameType == GenerationServer.FRAME_OUT ? stdout : stderr;
+                    stream.write(bytes);
+                    stream.flush();
+                    break;
+                case GenerationServer.FRAME_REFUSED:
+                    stderr.println("Generation server not used: " + GenerationServer.readString(_in, Integer.MAX_VALUE));
+                    return null;
+                case GenerationServer.FRAME_EXIT:
+                    return _in.readInt();
+                default:
+                    throw new IOException("Unexpected response from the generation server");
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Connection to the generation server lost", e);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Resident generation service: executes generators on behalf of clients (Ant tasks, command line, see
+ * {@link GenerationClient}), in a process that keeps warm everything that is loaded once per JVM: classes, JAXB contexts and
+ * XSD schemas (see {@link XmlPersistence}), models (see {@link LoadedFileList}, which checks each model against its file
+ * whenever it is loaded again), and template groups.
+ *
+ * <p>
+ * The server listens on a port of the loopback interface, written with a random token in {@link #getPortFile()}: only a client
+ * able to read this file can use the server. The server stops, refusing the request, if the code of the generators has changed
+ * since it was loaded (the client then executes the generator itself). Generations are executed one at a time, as generators share static state. A
+ * generation uses the base directory and the environment variables of the client, and its logs and reports are sent back to the
+ * client.
+ */
+public class GenerationServer {
+
+    /** Creates the generators executed by the server. */
+    public interface GeneratorFactory {
+        /**
+         * @param name name of the generator, as given by the client
+         * @param properties configuration of the generator, as given by the client
+         * @return a new generator, or null if the name is unknown
+         */
+        AbstractGenerator newGenerator(String name, Map<String, String> properties) throws Exception;
+    }
+
+    static final String PROTOCOL = "SOFTARC-GENERATION-2";
+    /** Size of the token sent by clients, in bytes. */
+    static final int TOKEN_SIZE = 16;
+    /** Maximum size of a string in a request, in bytes. */
+    static final int MAX_STRING_SIZE = 64 * 1024;
+    /** Maximum number of entries of a map or array in a request. */
+    static final int MAX_ENTRIES = 64 * 1024;
+    static final String COMMAND_RUN = "run";
+    static final String COMMAND_STATUS = "status";
+    static final String COMMAND_STOP = "stop";
+
+    /** Frame sent to the client: a log record (level and message). */
+    static final int FRAME_LOG = 'L';
+    /** Frame sent to the client: bytes to be written on the standard output. */
+    static final int FRAME_OUT = 'O';
+    /** Frame sent to the client: bytes to be written on the standard error. */
+    static final int FRAME_ERR = 'E';
+    /** Frame sent to the client: the command cannot be executed by the server (with the reason). */
+    static final int FRAME_REFUSED = 'R';
+    /** Last frame sent to the client: the command is finished (with its return code). */
+    static final int FRAME_EXIT = 'X';
+
+    /** Time allowed to a client to send its request. */
+    private static final int REQUEST_TIMEOUT = 10000;
+
+    private final GeneratorFactory _factory;
+    private final ServerSocket _socket;
+    private final byte[] _token = new byte[TOKEN_SIZE];
+    /** Fingerprint of each location of the generators' code, when it was first used by the server. */
+    private final Map<String, String> _codeFingerprints = new HashMap<String, String>();
+    private final long _startTime = System.currentTimeMillis();
+    /** Lock held during each generation. */
+    private final Object _generationLock = new Object();
+    private int _nbGenerations = 0;
+
+    public GenerationServer(GeneratorFactory factory) throws IOException {
+        _factory = factory;
+        _socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        new SecureRandom().nextBytes(_token);
+        isCodeUnchanged(AbstractGenerator.class);
+    }
+
+    /**
+     * @return the file describing the running server (port and token), readable only by the user who started it.
+     */
+    public static File getPortFile() {
+        return new File(System.getProperty("user.home"), ".softarc-generation-server");
+    }
+
+    /**
+     * @return the location of the generators' code, which must be the same for the server and its clients.
+     */
+    static String getCodeLocation() {
+        return String.valueOf(AbstractGenerator.class.getProtectionDomain().getCodeSource().getLocation());
+    }
+
+    /**
+     * Serves clients until a stop command is received.
+     */
+    public void serve() throws IOException {
+        File portFile = getPortFile();
+        StringBuilder sb = new StringBuilder();
+        for (byte b : _token) {
+            sb.append(String.format("%02x", b));
+        }
+        String description = _socket.getLocalPort() + " " + sb;
+        writePortFile(portFile, description);
+        try {
+            while (true) {
+                final Socket client;
+                try {
+                    client = _socket.accept();
+                } catch (SocketException e) {
+                    // closed by a stop command
+                    break;
+                }
+                Thread thread = new Thread(() -> handle(client), "GenerationServer-" + client.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } finally {
+            // another server may have been started since
+            if (portFile.isFile() && description.equals(new String(Files.readAllBytes(portFile.toPath()), StandardCharsets.UTF_8)))
+                portFile.delete();
+        }
+    }
+
+    private static void writePortFile(File portFile, String description) throws IOException {
+        Path path = portFile.toPath();
+        Files.deleteIfExists(path);
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(path);
+        }
+        Files.write(path, description.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(Socket client) {
+        try (Socket socket = client) {
+            socket.setSoTimeout(REQUEST_TIMEOUT);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (!PROTOCOL.equals(readString(in)))
+                return;
+            byte[] token = new byte[TOKEN_SIZE];
+            in.readFully(token);
+            if (!MessageDigest.isEqual(_token, token))
+                return;
+
+            String command = readString(in);
+            if (command.equals(COMMAND_RUN)) {
+                run(in, out);
+            } else if (command.equals(COMMAND_STATUS)) {
+                synchronized (_generationLock) {
+                    writeString(out, FRAME_OUT,
+                            String.format("SOFTARC generation server on port %d, started %s, %d generation(s) done, code in %s%n",
+                                    _socket.getLocalPort(), new Date(_startTime), _nbGenerations, getCodeLocation()));
+                }
+                writeExit(out, 0);
+            } else if (command.equals(COMMAND_STOP)) {
+                // wait for the end of the current generation, and answer before the server terminates
+                synchronized (_generationLock) {
+                    writeExit(out, 0);
+                    _socket.close();
+                }
+            } else {
+                writeString(out, FRAME_REFUSED, "unknown command: " + command);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // connection lost: the client reports the error
+        }
+    }
+
+    private void run(DataInputStream in, DataOutputStream out) throws IOException {
+        String name = readString(in);
+        String codeLocation = readString(in);
+        File baseDir = new File(readString(in));
+        boolean forwardLogRecords = in.readBoolean();
+        Map<String, String> properties = readMap(in);
+        Map<String, String> environment = readMap(in);
+        String[] args = new String[readSize(in)];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readString(in);
+        }
+
+        if (!codeLocation.equals(getCodeLocation())) {
+            writeString(out, FRAME_REFUSED, "the server executes the generators of " + getCodeLocation());
+            return;
+        }
+
+        synchronized (_generationLock) {
+            if (!isCodeUnchanged(AbstractGenerator.class)) {
+                refuseChangedCode(out);
+                return;
+            }
+            AbstractGenerator generator;
+            try {
+                generator = _factory.newGenerator(name, properties);
+            } catch (Exception e) {
+                writeString(out, FRAME_REFUSED, "cannot create generator " + name + ": " + e);
+                return;
+            }
+            if (generator == null) {
+                writeString(out, FRAME_REFUSED, "unknown generator: " + name);
+                return;
+            }
+            if (!isCodeUnchanged(generator.getClass())) {
+                refuseChangedCode(out);
+                return;
+            }
+            int retCode = generate(generator, baseDir, forwardLogRecords, environment, args, out);
+            _nbGenerations++;
+            writeExit(out, retCode);
+        }
+    }
+
+    /**
+     * Compares the location of the code of a class with its fingerprint when first used by the server (names, sizes and dates of
+     * the files of a directory, or content of a jar, see {@link BuildCache}).
+     *
+     * @return false if the code has changed since: classes already loaded by the server would be mixed with new ones.
+     */
+    private boolean isCodeUnchanged(Class<?> c) throws IOException {
+        String location = String.valueOf(c.getProtectionDomain().getCodeSource().getLocation());
+        String fingerprint = BuildCache.hash(location);
+        String initial = _codeFingerprints.putIfAbsent(location, fingerprint);
+        return initial == null || initial.equals(fingerprint);
+    }
+
+    /**
+     * Refuses a request because the code of the generators has changed, and stops the server, so that a new one can be started
+     * with the new code.
+     */
+    private void refuseChangedCode(DataOutputStream out) throws IOException {
+        writeString(out, FRAME_REFUSED, "the code of the generators has changed since the server was started, server stopped");
+        // answer before the server terminates
+        out.flush();
+        _socket.close();
+    }
+
+    /**
+     * Executes a generator as it would be in the client process: logs that would be written on the standard error (when no log
+     * file is given) and reports that would be written on the standard output are sent to the client.
+     */
+    private int generate(AbstractGenerator generator, File baseDir, boolean forwardLogRecords, Map<String, String> environment,
+            String[] args, DataOutputStream out) {
+        generator.getArguments().setBaseDir(baseDir);
+
+        generator._log.removeHandler(generator.defaultHandler);
+        generator.defaultHandler = new LogHandler(new FrameOutputStream(out, FRAME_ERR));
+        generator._log.addHandler(generator.defaultHandler);
+        Handler forwarder = forwardLogRecords ? new LogRecordForwarder(out) : null;
+        if (forwarder != null)
+            generator._log.addHandler(forwarder);
+
+        // the report logger is shared by all generators with the same name
+        for (Handler h : generator._report.getHandlers()) {
+            generator._report.removeHandler(h);
+        }
+        ReportHandler reportHandler = new ReportHandler(new FrameOutputStream(out, FRAME_OUT));
+        generator._report.addHandler(reportHandler);
+
+        Utilities.environment = environment;
+        try {
+            return generator.execute(args);
+        } finally {
+            Utilities.environment = null;
+            generator._log.removeHandler(generator.defaultHandler);
+            if (forwarder != null)
+                generator._log.removeHandler(forwarder);
+            generator._report.removeHandler(reportHandler);
+        }
+    }
+
+    /**
+     * Sends the bytes written to the stream in frames of the given type.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream _out;
+        private final int _frameType;
+
+        FrameOutputStream(DataOutputStream out, int frameType) {
+            _out = out;
+            _frameType = frameType;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (_out) {
+                _out.writeByte(_frameType);
+                _out.writeInt(len);
+                _out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (_out) {
+                _out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Sends log records to the client, which publishes them to its own handler.
+     */
+    private static final class LogRecordForwarder extends Handler {
+        private final DataOutputStream _out;
+
+        LogRecordForwarder(DataOutputStream out) {
+            _out = out;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            try {
+                synchronized (_out) {
+                    _out.writeByte(FRAME_LOG);
+                    _out.writeInt(record.getLevel().intValue());
+                    writeString(_out, record.getMessage());
+                    _out.flush();
+                }
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Encoding of requests and responses
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeString(DataOutputStream out, int frameType, String s) throws IOException {
+        synchronized (out) {
+            out.writeByte(frameType);
+            writeString(out, s);
+        }
+    }
+
+    static void writeExit(DataOutputStream out, int retCode) throws IOException {
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(retCode);
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads a string of a request, whose size is limited to {@link #MAX_STRING_SIZE}.
+     */
+    static String readString(DataInputStream in) throws IOException {
+        return readString(in, MAX_STRING_SIZE);
+    }
+
+    static String readString(DataInputStream in, int maxSize) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > maxSize)
+            throw new IOException("Invalid string size: " + size);
+        byte[] bytes = new byte[size];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the number of entries of a map or an array of a request, which is limited to {@link #MAX_ENTRIES}.
+     */
+    static int readSize(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > MAX_ENTRIES)
+            throw new IOException("Invalid number of entries: " + size);
+        return size;
+    }
+
+    static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            writeString(out, e.getKey());
+            writeString(out, e.getValue());
+        }
+    }
+
+    static Map<String, String> readMap(DataInputStream in) throws IOException {
+        Map<String, String> map = new HashMap<String, String>();
+        int size = readSize(in);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readString(in));
+        }
+        return map;
+    }
+}
@@ -3,19 +3,21 @@
 package com.thalesgroup.softarc.tools;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages a cache of models, each model being associated to a file; to avoid reloading several times the same file.
  *
  * One model = one file.
+ *
+ * Files may be loaded concurrently by several threads: files are read without holding any lock, and a model is updated under
+ * its own lock.
  * 
  * @param <E> class corresponding to the information parsed from the file (e.g. JAXB-generated class,...) 
  */
@@ -25,11 +27,14 @@ public class LoadedFileList<E extends Object> {
      * Represents a model already loaded in memory
      */
     class LoadedModel {
-        E model;
+        volatile E model;
         long timestamp;
         long length;
         byte[] bytes;
         boolean hasBeenLoaded;
+        boolean hasBeenCreated;
+        /** The model has been parsed in advance, and not loaded yet (see {@link XmlPersistence#preload(File)}). */
+        boolean hasBeenPreloaded;
 
         LoadedModel(File file) {
             timestamp = file.lastModified();
@@ -50,24 +55,32 @@ public class LoadedFileList<E extends Object> {
      */
     public LoadedModel get(File file) throws IOException, FileNotFoundException {
         final String path = file.getCanonicalPath();
-        LoadedModel m = _loadedFiles.get(path);
 
         // load bytes
-        byte[] data = new byte[(int) file.length()];
-        FileInputStream s = new FileInputStream(file);
-        s.read(data);
-        s.close();
+        if (!file.isFile())
+            throw new FileNotFoundException(file.getPath());
+        long timestamp = file.lastModified();
+        byte[] data = Files.readAllBytes(file.toPath());
 
+        LoadedModel m = _loadedFiles.get(path);
         if (m == null) {
-            m = new LoadedModel(file);
-            m.bytes = data;
-            m.hasBeenLoaded = true;
-            _loadedFiles.put(path, m);
-        } else
-        // if model in cache is not up-to-date, forget it, and keep the new bytes in memory
-        if (!m.isUpToDate(file, data)) {
-            m.model = null;
-            m.bytes = data;
+            LoadedModel loaded = new LoadedModel(file);
+            loaded.bytes = data;
+            m = _loadedFiles.putIfAbsent(path, loaded);
+            if (m == null)
+                m = loaded;
+        }
+        synchronized (m) {
+            // if model in cache is not up-to-date, forget it, and keep the new bytes in memory
+            if (!m.isUpToDate(file, data)) {
+                m.model = null;
+                m.bytes = data;
+                m.timestamp = timestamp;
+                m.length = data.length;
+            }
+            // a file created by the current generation may be loaded, and then created again
+            if (!m.hasBeenCreated)
+                m.hasBeenLoaded = true;
         }
         return m;
     }
@@ -77,9 +90,11 @@ public class LoadedFileList<E extends Object> {
         LoadedModel m = _loadedFiles.get(path);
 
         if (m != null) {
-            if (m.hasBeenLoaded)
-                throw new IOException("You cannot overwrite input model file: '" + file.toURI().getPath() + "'.\n"
-                        + "Please specify another output.");
+            synchronized (m) {
+                if (m.hasBeenLoaded)
+                    throw new IOException("You cannot overwrite input model file: '" + file.toURI().getPath() + "'.\n"
+                            + "Please specify another output.");
+            }
         }
 
         FileOutputStream fs = new FileOutputStream(file);
@@ -89,13 +104,14 @@ public class LoadedFileList<E extends Object> {
         m = new LoadedModel(file);
         m.bytes = data;
         m.model = model;
+        m.hasBeenCreated = true;
         _loadedFiles.put(path, m);
     }
 
     /**
      * Set of canonical file paths
      */
-    private final Map<String, LoadedModel> _loadedFiles = new HashMap<String, LoadedModel>();
+    private final ConcurrentHashMap<String, LoadedModel> _loadedFiles = new ConcurrentHashMap<String, LoadedModel>();
 
     private static ArrayList<LoadedFileList<?>> instances = new ArrayList<LoadedFileList<?>>();
 
@@ -109,4 +125,23 @@ public class LoadedFileList<E extends Object> {
         }
     }
 
+    /**
+     * Forgets which files have been loaded or created, but keeps the models in cache (they are checked again when loaded). To be
+     * called before each generation, when several generations are done by the same process.
+     */
+    public static void forgetInputs() {
+        for (LoadedFileList<?> l : instances) {
+            l.forgetLoadedAndCreated();
+        }
+    }
+
+    private void forgetLoadedAndCreated() {
+        for (LoadedModel m : _loadedFiles.values()) {
+            synchronized (m) {
+                m.hasBeenLoaded = false;
+                m.hasBeenCreated = false;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,246 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader of the runtime metrics of an executable of an LDP application, generated with the meta 'metrics' of the deployment.
+ *
+ * <p>
+ * The metrics are read in the shared-memory segment '/dev/shm/sarc_metrics_&lt;executable&gt;' (see sarc_metrics.c), which
+ * describes the tasks of the executable, and the operation links handled by each of them, with their ids as allocated by the
+ * generator (OperationLinks) and the names of their instances and operations. The counters of each task and of each link are
+ * printed periodically, with their rates since the previous print, and the percentiles of the durations of the handling of each
+ * link since the start of the executable.
+ *
+ * <pre>
+ * java -cp $SOFTARC_HOME/jGenerators/bin com.thalesgroup.softarc.tools.MetricsReader &lt;executable&gt; [&lt;period in s&gt;]
+ * </pre>
+ *
+ * A period of 0 prints the metrics only once. The segment is kept after the end of the application, until its next start.
+ */
+public class MetricsReader {
+
+    private static final int MAGIC = 0x53415243;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int NAME_OFFSET = 8;
+    private static final int NAME_SIZE = 56;
+    private static final int COUNTERS_OFFSET = 64;
+
+    // Counters of a task (SARC_TaskMetrics), in words after COUNTERS_OFFSET
+    private static final int LOOPS = 0;
+    private static final int RECEIVED = 1;
+    private static final int DISPATCHED = 2;
+    private static final int BYTES = 3;
+    private static final int QUEUE_HIGH_WATER = 4;
+    private static final int TIMED_BACKLOG = 5;
+    private static final int TIMED_HIGH_WATER = 6;
+    private static final int NB_TASK_COUNTERS = 7;
+
+    // Counters of a link (SARC_LinkMetrics), in words after COUNTERS_OFFSET, followed by the histogram
+    private static final int CALLS = 0;
+    private static final int TOTAL_TIME = 1;
+    private static final int MAX_TIME = 2;
+    private static final int HISTOGRAM = 3;
+
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+
+    private final ByteBuffer _segment;
+    private final String _executable;
+    private final int _pid;
+    private final int _nbTasks;
+    private final int _nbLinks;
+    private final int _taskSize;
+    private final int _linkSize;
+    private final int _nbBuckets;
+    private final String[] _taskNames;
+    private final int[] _taskLinks;
+    private final String[] _linkNames;
+    private final int[] _linkIds;
+
+    private long[][] _previousTasks;
+    private long[][] _previousLinks;
+    private long _previousTime;
+
+    /**
+     * Maps the metrics segment of an executable.
+     *
+     * @param file the segment (in /dev/shm)
+     * @throws IOException if the file cannot be mapped, or is not a metrics segment of a supported version
+     */
+    public MetricsReader(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            _segment = buffer.order(ByteOrder.nativeOrder());
+        }
+        if (_segment.capacity() < HEADER_SIZE || _segment.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a metrics segment, or it is not initialized yet");
+        }
+        if (_segment.getInt(4) != VERSION) {
+            throw new IOException(file + ": unsupported version " + _segment.getInt(4));
+        }
+        _nbTasks = _segment.getInt(8);
+        _nbLinks = _segment.getInt(12);
+        _taskSize = _segment.getInt(16);
+        _linkSize = _segment.getInt(20);
+        _nbBuckets = _segment.getInt(24);
+        _pid = _segment.getInt(28);
+        _executable = getName(40, 24);
+
+        _taskNames = new String[_nbTasks];
+        _taskLinks = new int[_nbTasks];
+        for (int i = 0; i < _nbTasks; i++) {
+            _taskLinks[i] = _segment.getInt(taskOffset(i) + 4);
+            _taskNames[i] = getName(taskOffset(i) + NAME_OFFSET, NAME_SIZE);
+        }
+        _linkNames = new String[_nbLinks];
+        _linkIds = new int[_nbLinks];
+        for (int i = 0; i < _nbLinks; i++) {
+            _linkIds[i] = _segment.getInt(linkOffset(i));
+            _linkNames[i] = getName(linkOffset(i) + NAME_OFFSET, NAME_SIZE);
+        }
+    }
+
+    private int taskOffset(int task) {
+        return HEADER_SIZE + task * _taskSize;
+    }
+
+    private int linkOffset(int link) {
+        return HEADER_SIZE + _nbTasks * _taskSize + link * _linkSize;
+    }
+
+    private String getName(int offset, int size) {
+        int length = 0;
+        while (length < size && _segment.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = _segment.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long[] getCounters(int offset, int count) {
+        long[] counters = new long[count];
+        for (int i = 0; i < count; i++) {
+            counters[i] = _segment.getLong(offset + COUNTERS_OFFSET + 8 * i);
+        }
+        return counters;
+    }
+
+    /**
+     * Prints the current values of the metrics, and their rates since the previous call.
+     */
+    public void print(PrintStream out) {
+        long time = System.nanoTime();
+        long[][] tasks = new long[_nbTasks][];
+        long[][] links = new long[_nbLinks][];
+        for (int i = 0; i < _nbTasks; i++) {
+            tasks[i] = getCounters(taskOffset(i), NB_TASK_COUNTERS);
+        }
+        for (int i = 0; i < _nbLinks; i++) {
+            links[i] = getCounters(linkOffset(i), HISTOGRAM + _nbBuckets);
+        }
+        double elapsed = _previousTasks == null ? 0 : (time - _previousTime) / 1e9;
+
+        out.printf("executable %s (pid %d)%n", _executable, _pid);
+        out.printf("  %-40s %10s %10s %10s %12s %10s %12s %10s %12s%n", "task", "loops", "received", "dispatched", "bytes",
+                "received/s", "bytes/s", "queue max", "timed (max)");
+        printLegend(out);
+        int link = 0;
+        for (int i = 0; i < _nbTasks; i++) {
+            long[] previous = _previousTasks == null ? null : _previousTasks[i];
+            out.printf("  %-40s %10d %10d %10d %12d %10s %12s %10d %12s%n", _taskNames[i], tasks[i][LOOPS], tasks[i][RECEIVED],
+                    tasks[i][DISPATCHED], tasks[i][BYTES], rate(tasks[i], previous, RECEIVED, elapsed),
+                    rate(tasks[i], previous, BYTES, elapsed), tasks[i][QUEUE_HIGH_WATER],
+                    tasks[i][TIMED_BACKLOG] + " (" + tasks[i][TIMED_HIGH_WATER] + ")");
+
+            for (int j = 0; j < _taskLinks[i]; j++, link++) {
+                long[] counters = links[link];
+                long calls = counters[CALLS];
+                out.printf("    %-38s %10d %10s %9s %9s %9s %9s %9s%n", _linkNames[link] + " [" + _linkIds[link] + "]", calls,
+                        rate(counters, _previousLinks == null ? null : _previousLinks[link], CALLS, elapsed),
+                        calls == 0 ? "-" : duration(counters[TOTAL_TIME] / calls), percentile(counters, PERCENTILES[0]),
+                        percentile(counters, PERCENTILES[1]), percentile(counters, PERCENTILES[2]),
+                        calls == 0 ? "-" : duration(counters[MAX_TIME]));
+            }
+        }
+        out.println();
+
+        _previousTasks = tasks;
+        _previousLinks = links;
+        _previousTime = time;
+    }
+
+    private static String rate(long[] counters, long[] previous, int index, double elapsed) {
+        if (previous == null || elapsed <= 0) {
+            return "-";
+        }
+        return String.format("%.1f", (counters[index] - previous[index]) / elapsed);
+    }
+
+    /**
+     * @return the upper bound of the bucket of the histogram of a link where the given fraction of its calls is reached (the
+     *         bucket i counts the durations under 2^(i+8) ns)
+     */
+    private String percentile(long[] counters, double fraction) {
+        long calls = counters[CALLS];
+        if (calls == 0) {
+            return "-";
+        }
+        long cumulated = 0;
+        for (int i = 0; i < _nbBuckets; i++) {
+            cumulated += counters[HISTOGRAM + i];
+            if (cumulated >= Math.ceil(fraction * calls)) {
+                return duration(i == _nbBuckets - 1 ? counters[MAX_TIME] : Math.min(256L << i, counters[MAX_TIME]));
+            }
+        }
+        return duration(counters[MAX_TIME]);
+    }
+
+    private static String duration(long ns) {
+        if (ns < 1000) {
+            return ns + "ns";
+        } else if (ns < 1000000) {
+            return String.format("%.1fus", ns / 1e3);
+        } else if (ns < 1000000000) {
+            return String.format("%.1fms", ns / 1e6);
+        }
+        return String.format("%.2fs", ns / 1e9);
+    }
+
+    private static void printLegend(PrintStream out) {
+        out.printf("    %-38s %10s %10s %9s %9s %9s %9s %9s%n", "link [id]", "calls", "calls/s", "mean", "p50", "p90", "p99",
+                "max");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: MetricsReader <executable> [<period in s>]");
+            System.exit(2);
+        }
+        File file = new File(args[0]);
+        if (!file.isFile()) {
+            file = new File("/dev/shm/sarc_metrics_" + args[0]);
+        }
+        double period = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+
+        MetricsReader reader = new MetricsReader(file);
+        reader.print(System.out);
+        while (period > 0) {
+            Thread.sleep((long) (period * 1000));
+            reader.print(System.out);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Array;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.stringtemplate.v4.Interpreter;
+import org.stringtemplate.v4.ST;
+import org.stringtemplate.v4.STGroup;
+import org.stringtemplate.v4.misc.MapModelAdaptor;
+import org.stringtemplate.v4.misc.ObjectModelAdaptor;
+import org.stringtemplate.v4.misc.STNoSuchPropertyException;
+
+/**
+ * Records the parts of the model read by the rendering of a template, so that the rendering can be skipped in the next
+ * generation if they have the same values (see {@link BuildCache}).
+ *
+ * <p>
+ * All the properties read by templates go through the model adaptors of their group (see {@link #register(STGroup)}), which
+ * record them as paths from the attributes of the template: ":name" for an attribute, "i.name" for a property of the value
+ * of step i (or the value of the key "name" of a map), "i[k]" for the k-th element of a collection, array or map (keys) of
+ * step i. A value reached again by another path
+ * is not recorded twice, but the identity of both values is required ("step=i"). The fingerprints of the values read (value of
+ * scalars and enumerations, size of collections, class and name of other objects) are combined in a single hash.
+ *
+ * <p>
+ * A property read on an object which was not reached from the attributes (e.g. a value computed by a template) makes the
+ * rendering unsafe to skip: no record is then made.
+ */
+final class RenderingRecorder {
+
+    private static final ThreadLocal<RenderingRecorder> _current = new ThreadLocal<RenderingRecorder>();
+
+    /** Model adaptors used to replay the records, one per thread as ObjectModelAdaptor is not thread-safe. */
+    private static final ThreadLocal<ObjectModelAdaptor> _replayAdaptor =
+            ThreadLocal.withInitial(() -> new ObjectModelAdaptor());
+    private static final ThreadLocal<MapModelAdaptor> _replayMapAdaptor =
+            ThreadLocal.withInitial(() -> new MapModelAdaptor());
+
+    private final IdentityHashMap<Object, Integer> _steps = new IdentityHashMap<Object, Integer>();
+    private final List<String> _path = new ArrayList<String>();
+    private final StringBuilder _fingerprints = new StringBuilder();
+    private boolean _unsafe = false;
+
+    /**
+     * Model adaptor of a template group for objects, which behaves as the default one and records the properties read when a
+     * recorder is active.
+     */
+    private static final class RecordingModelAdaptor extends ObjectModelAdaptor {
+        @Override
+        public Object getProperty(Interpreter interp, ST self, Object o, Object property, String propertyName)
+                throws STNoSuchPropertyException {
+            Object value = super.getProperty(interp, self, o, property, propertyName);
+            RenderingRecorder recorder = _current.get();
+            if (recorder != null) {
+                recorder.property(o, propertyName, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Model adaptor of a template group for maps, which behaves as the default one and records the values read when a
+     * recorder is active. A value read with a key which is not a string cannot be replayed.
+     */
+    private static final class RecordingMapModelAdaptor extends MapModelAdaptor {
+        @Override
+        public Object getProperty(Interpreter interp, ST self, Object o, Object property, String propertyName)
+                throws STNoSuchPropertyException {
+            Object value = super.getProperty(interp, self, o, property, propertyName);
+            RenderingRecorder recorder = _current.get();
+            if (recorder != null) {
+                if (property instanceof String) {
+                    recorder.property(o, propertyName, value);
+                } else {
+                    recorder._unsafe = true;
+                }
+            }
+            return value;
+        }
+    }
+
+    private RenderingRecorder() {
+    }
+
+    /**
+     * Installs the recording model adaptors in a template group which has just been loaded, in place of the default ones for
+     * objects and maps.
+     */
+    static void register(STGroup group) {
+        group.registerModelAdaptor(Object.class, new RecordingModelAdaptor());
+        group.registerModelAdaptor(Map.class, new RecordingMapModelAdaptor());
+    }
+
+    /**
+     * Starts recording the properties read by the current thread, from the given attributes of a template.
+     */
+    static RenderingRecorder start(Map<String, Object> attributes) {
+        RenderingRecorder recorder = new RenderingRecorder();
+        for (String name : new TreeSet<String>(attributes.keySet())) {
+            recorder.add(":" + encode(name), attributes.get(name));
+        }
+        _current.set(recorder);
+        return recorder;
+    }
+
+    /**
+     * Stops recording.
+     */
+    void stop() {
+        _current.remove();
+    }
+
+    /**
+     * @return the record of the rendering, or null if it cannot be skipped in the next generation.
+     */
+    BuildCache.Rendering getRendering(String templateGroupName, String templateName) {
+        if (_unsafe)
+            return null;
+        return new BuildCache.Rendering(templateGroupName, templateName, hash(_fingerprints), _path);
+    }
+
+    private void property(Object o, String propertyName, Object value) {
+        if (_unsafe)
+            return;
+        Integer step = _steps.get(o);
+        if (step == null) {
+            _unsafe = true;
+            return;
+        }
+        add(step + "." + encode(propertyName), value);
+    }
+
+    private void add(String step, Object value) {
+        int index = _path.size();
+        if (isObject(value)) {
+            Integer known = _steps.putIfAbsent(value, index);
+            if (known != null) {
+                _path.add(step + "=" + known);
+                return;
+            }
+        }
+        _path.add(step);
+        String fingerprint = fingerprint(value);
+        if (fingerprint == null) {
+            _unsafe = true;
+            return;
+        }
+        _fingerprints.append(fingerprint).append('\n');
+        int k = 0;
+        for (Object element : elements(value)) {
+            add(index + "[" + k++ + "]", element);
+        }
+    }
+
+    /**
+     * Reads the recorded paths from the given attributes, and compares the values read with the recorded ones.
+     *
+     * @return true if the rendering of the template with these attributes would be the same as the recorded one.
+     */
+    static boolean replay(BuildCache.Rendering rendering, Map<String, Object> attributes) {
+        ObjectModelAdaptor adaptor = _replayAdaptor.get();
+        MapModelAdaptor mapAdaptor = _replayMapAdaptor.get();
+        List<String> path = rendering.path;
+        Object[] values = new Object[path.size()];
+        StringBuilder fingerprints = new StringBuilder();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                String step = path.get(i);
+                int alias = step.indexOf('=');
+                String access = alias < 0 ? step : step.substring(0, alias);
+                Object value;
+                int dot = access.indexOf('.');
+                int bracket = access.indexOf('[');
+                if (access.startsWith(":")) {
+                    value = attributes.get(decode(access.substring(1)));
+                } else if (dot > 0) {
+                    Object o = values[Integer.parseInt(access.substring(0, dot))];
+                    if (o == null)
+                        return false;
+                    String propertyName = decode(access.substring(dot + 1));
+                    if (o instanceof Map) {
+                        value = mapAdaptor.getProperty(null, null, o, propertyName, propertyName);
+                    } else {
+                        value = adaptor.getProperty(null, null, o, propertyName, propertyName);
+                    }
+                } else {
+                    Object o = values[Integer.parseInt(access.substring(0, bracket))];
+                    int k = Integer.parseInt(access.substring(bracket + 1, access.length() - 1));
+                    value = element(o, k);
+                }
+                values[i] = value;
+                if (alias >= 0) {
+                    if (value != values[Integer.parseInt(step.substring(alias + 1))])
+                        return false;
+                } else {
+                    String fingerprint = fingerprint(value);
+                    if (fingerprint == null)
+                        return false;
+                    fingerprints.append(fingerprint).append('\n');
+                }
+            }
+        } catch (RuntimeException e) {
+            // the model has changed so much that a recorded path cannot be read
+            return false;
+        }
+        return rendering.hash.equals(hash(fingerprints));
+    }
+
+    /**
+     * @return true for values which have an identity (objects of the model, collections), false for scalars.
+     */
+    private static boolean isObject(Object value) {
+        return value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Character);
+    }
+
+    /**
+     * @return the fingerprint of a value, or null if its content cannot be recorded.
+     */
+    private static String fingerprint(Object value) {
+        if (value == null)
+            return "null";
+        if (value instanceof String)
+            return "s" + ((String) value).length() + ":" + value;
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character)
+            return value.getClass().getSimpleName() + ":" + value;
+        if (value instanceof Enum)
+            return "e" + value.getClass().getName() + ":" + ((Enum<?>) value).name();
+        if (value instanceof Collection)
+            return "c" + ((Collection<?>) value).size();
+        if (value instanceof Map)
+            return "m" + ((Map<?, ?>) value).size();
+        if (value.getClass().isArray())
+            return "a" + Array.getLength(value);
+        if (value instanceof Iterator || value instanceof ST)
+            return null;
+        // an object may be printed by a template: its name is part of its fingerprint, unless it is an identity (which is
+        // different in each generation, and thus cannot be expected in the generated files)
+        String name = value.toString();
+        String identity = value.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(value));
+        return "o" + value.getClass().getName() + ":" + (name.equals(identity) ? "" : name);
+    }
+
+    /**
+     * @return the elements iterated by a template over a value (the keys of a map), if any.
+     */
+    private static Iterable<?> elements(Object value) {
+        if (value instanceof Collection)
+            return (Collection<?>) value;
+        if (value instanceof Map)
+            return ((Map<?, ?>) value).keySet();
+        if (value != null && value.getClass().isArray()) {
+            List<Object> elements = new ArrayList<Object>();
+            for (int k = 0; k < Array.getLength(value); k++) {
+                elements.add(Array.get(value, k));
+            }
+            return elements;
+        }
+        return new ArrayList<Object>();
+    }
+
+    private static Object element(Object value, int k) {
+        if (value instanceof List)
+            return ((List<?>) value).get(k);
+        if (value != null && value.getClass().isArray())
+            return Array.get(value, k);
+        Iterator<?> it = elements(value).iterator();
+        for (int i = 0; i < k; i++) {
+            it.next();
+        }
+        return it.next();
+    }
+
+    private static String hash(StringBuilder fingerprints) {
+        return BuildCache.hash(fingerprints.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String encode(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new Error(e);
+        }
+    }
+
+    static String decode(String name) {
+        try {
+            return URLDecoder.decode(name, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new Error(e);
+        }
+    }
+}
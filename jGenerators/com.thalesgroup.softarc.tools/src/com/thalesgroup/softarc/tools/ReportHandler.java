@@ -10,11 +10,35 @@ import java.util.logging.StreamHandler;
 
 class ReportHandler extends StreamHandler {
 
+    /**
+     * Counters of the files reported with their size and the time taken to compare and write them (see
+     * {@link AbstractLogger#report(java.io.File, ReportStatus, long, long)}).
+     */
+    private long _nbFiles = 0;
+    private long _nbBytes = 0;
+    private long _nanos = 0;
+
     ReportHandler(OutputStream s) {
         super(s, new reportFormatter());
         setLevel(Level.ALL);
     }
 
+    @Override
+    public synchronized void publish(LogRecord record) {
+        super.publish(record);
+        Object[] parameters = record.getParameters();
+        if (parameters != null && parameters.length == 3 && (Long) parameters[1] >= 0) {
+            _nbFiles++;
+            _nbBytes += (Long) parameters[1];
+            _nanos += (Long) parameters[2];
+        }
+    }
+
+    synchronized String getStatistics() {
+        return String.format("%d file(s) generated: %d bytes produced and compared or written in %d ms", _nbFiles, _nbBytes,
+                _nanos / 1000000);
+    }
+
     static class reportFormatter extends Formatter {
         @Override
         public String format(LogRecord record) {
@@ -0,0 +1,92 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import org.stringtemplate.v4.STGroupFile;
+
+/**
+ * Process-wide pool of loaded template groups, shared by all the generators executed in the same JVM (e.g. all the generation
+ * tasks of an Ant build).
+ *
+ * <p>
+ * Loading a template group (parsing and compiling its templates and the groups it imports) is the main part of the startup
+ * cost of a generator. A loaded group is kept in memory and reused, but it is not thread-safe (templates and imported groups are
+ * loaded lazily, and rendering fills caches of the group): it is acquired by a thread before instantiating and rendering a
+ * template, and released afterwards. A group is thus loaded once per thread using it concurrently, and not once per thread nor
+ * once per generator.
+ *
+ * <p>
+ * The key of a group includes the fingerprint of its content and of the groups it imports, computed by each generator when it
+ * first uses the group: a template file modified between two generations (e.g. in a generation server) is loaded again, and the
+ * instances loaded from its previous content are forgotten.
+ */
+final class TemplateGroupPool {
+
+    private static final ConcurrentHashMap<String, Deque<STGroupFile>> _groups =
+            new ConcurrentHashMap<String, Deque<STGroupFile>>();
+
+    private TemplateGroupPool() {
+    }
+
+    /**
+     * @param key identifies the template group (location and separators)
+     * @return a loaded instance of the template group, which is not used by any other thread until it is released, or null if
+     *         no instance is available (the group must then be loaded by the caller).
+     */
+    static STGroupFile acquire(String key) {
+        Deque<STGroupFile> groups = _groups.get(key);
+        return groups == null ? null : groups.pollFirst();
+    }
+
+    /**
+     * Makes an instance of a template group available for reuse (the most recently used instance is reused first).
+     */
+    static void release(String key, STGroupFile group) {
+        _groups.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<STGroupFile>()).addFirst(group);
+    }
+
+    /**
+     * Forgets the instances of a template group loaded from another content (key with the same prefix, but another fingerprint).
+     */
+    static void removeOtherVersions(String keyPrefix, String key) {
+        _groups.keySet().removeIf(k -> k.startsWith(keyPrefix) && !k.equals(key));
+    }
+
+    /**
+     * @return the fingerprint of the content of a template group and of the groups it imports.
+     */
+    static String fingerprint(URL url) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        fingerprint(url, sb, new HashSet<String>());
+        return BuildCache.hash(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void fingerprint(URL url, StringBuilder sb, Set<String> visited) throws IOException {
+        if (!visited.add(url.toString()))
+            return;
+        byte[] content = BuildCache.read(url);
+        sb.append(url).append(' ').append(content == null ? "absent" : BuildCache.hash(content)).append('\n');
+        if (content != null) {
+            for (String imported : BuildCache.getTemplateImports(content)) {
+                fingerprint(new URL(url, imported), sb, visited);
+            }
+        }
+    }
+
+    /**
+     * Forgets the template groups whose key starts with the given prefix (e.g. groups loaded from a temporary directory which
+     * is about to be deleted).
+     */
+    static void removeAll(String keyPrefix) {
+        _groups.keySet().removeIf(key -> key.startsWith(keyPrefix));
+    }
+}
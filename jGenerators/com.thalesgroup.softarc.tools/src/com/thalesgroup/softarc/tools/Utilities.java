@@ -2,17 +2,21 @@
 
 package com.thalesgroup.softarc.tools;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -62,79 +66,105 @@ public final class Utilities {
      * @throws IOException
      */
     public static ReportStatus createFileFromStream(File target, InputStream stream) throws IOException {
+        return createFileFromBytes(target, stream.readAllBytes());
+    }
 
+    /**
+     * Writes the content to the target file.
+     * 
+     * <p>
+     * If the file already exists, its size is compared first, then its contents block by block, and if identical, the file is
+     * not touched and IDENTICAL is returned. Otherwise, the content is written to a temporary file in the same directory, which
+     * then replaces the target file: the target file is never seen partially written.
+     * 
+     * @param target
+     *            The file to write to.
+     * @param content
+     *            The new content of the file.
+     * @return CREATED, UPDATED or IDENTICAL
+     * @throws IOException
+     */
+    public static ReportStatus createFileFromBytes(File target, byte[] content) throws IOException {
+        Path path = target.toPath();
         ReportStatus rc = ReportStatus.CREATED;
-        boolean generate = true;
-        InputStream inputstream = stream;
 
         if (target.exists()) {
-
+            if (hasContent(path, content))
+                return ReportStatus.IDENTICAL;
             rc = ReportStatus.UPDATED;
+        }
 
-            // Create a seekable stream in this the given one doesn't support reset()
-            if (!stream.markSupported()) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                int cin;
-                while ((cin = stream.read()) != -1) {
-                    baos.write(cin);
-                }
-                baos.close();
-                inputstream = new ByteArrayInputStream(baos.toByteArray());
-            }
-            inputstream.mark(Integer.MAX_VALUE);
-
-            // Compare the existing file with the content of the stream to create file from
-            FileInputStream in = new FileInputStream(target);
-            BufferedInputStream bout = new BufferedInputStream(in);
-            boolean keepGoing = true;
-
-            while (keepGoing) {
-                int cin = inputstream.read();
-                int cout = bout.read();
-                // A character differs => update forced!
-                if (cin != cout) {
-                    keepGoing = false;
-                }
-                // All characters are equal so far, and we reached the end
-                // of both streams => no need to overwrite
-                else if (cin == -1) {
-                    keepGoing = false;
-                    generate = false;
-                }
+        Path temp = newTemporaryFile(target);
+        try {
+            OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try {
+                out.write(content);
+            } finally {
+                out.close();
             }
-            in.close();
-            bout.close();
-            inputstream.reset();
+            replaceFile(temp, path);
+        } finally {
+            Files.deleteIfExists(temp);
         }
 
-        if (generate) {
+        return rc;
+    }
 
-            if (target.getParentFile() != null)
-                target.getParentFile().mkdirs();
+    /**
+     * @return the path of a new temporary file, in the same directory as the target file (which is created if needed).
+     */
+    static Path newTemporaryFile(File target) {
+        if (target.getParentFile() != null)
+            target.getParentFile().mkdirs();
+        return target.toPath().resolveSibling(
+                "." + target.getName() + "." + Thread.currentThread().getId() + "-" + System.nanoTime() + ".tmp");
+    }
 
-            FileOutputStream out = new FileOutputStream(target);
-            byte[] buffer = new byte[1024];
-            // copy the whole file
-            while (true) {
-                int i = inputstream.read(buffer);
-                if (i == -1)
-                    break;
-                out.write(buffer, 0, i);
+    /**
+     * Replaces the target file by the temporary file, atomically if the file system allows it. The permissions of the target
+     * file, if it exists, are kept.
+     */
+    static void replaceFile(Path temp, Path target) throws IOException {
+        if (Files.exists(target)) {
+            try {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            } catch (UnsupportedOperationException e) {
+                // not a POSIX file system
             }
-            out.close();
-
-        } else {
-            rc = ReportStatus.IDENTICAL;
         }
-
-        // Close input stream in case it is an instance that we've created locally
-        if (stream != inputstream) {
-            inputstream.close();
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
         }
+    }
 
-        return rc;
+    /**
+     * @return true if the existing file has exactly the given content.
+     */
+    private static boolean hasContent(Path path, byte[] content) throws IOException {
+        if (Files.size(path) != content.length)
+            return false;
+
+        InputStream in = Files.newInputStream(path);
+        try {
+            byte[] buffer = new byte[COMPARISON_BLOCK_SIZE];
+            int offset = 0;
+            while (offset < content.length) {
+                int n = in.readNBytes(buffer, 0, Math.min(buffer.length, content.length - offset));
+                if (n <= 0 || !Arrays.equals(buffer, 0, n, content, offset, offset + n))
+                    return false;
+                offset += n;
+            }
+            // the file may have grown since its size was read
+            return in.read() == -1;
+        } finally {
+            in.close();
+        }
     }
 
+    static final int COMPARISON_BLOCK_SIZE = 64 * 1024;
+
     public static String readStreamAsString(InputStream f) throws IOException {
         int c;
         InputStreamReader reader = new InputStreamReader(f);
@@ -197,7 +227,7 @@ public final class Utilities {
         Matcher matcher = compiled_VARIABLE_PATTERN.matcher(path);
         while (matcher.find()) {
             String variableName = matcher.group(1);
-            String env = System.getenv().get(variableName);
+            String env = getenv(variableName);
 
             /* There is no actual "PROJECT_ROOT" environment variable, as it is defined in the makefiles. */
             if (variableName.equals("PROJECT_ROOT")) {
@@ -217,6 +247,20 @@ public final class Utilities {
         return path;
     }
 
+    /**
+     * Environment of the current generation, when it is not the environment of the current process (e.g. for a generation done
+     * by a {@link GenerationServer} on behalf of a client), or null.
+     */
+    public static volatile Map<String, String> environment = null;
+
+    /**
+     * @return the value of an environment variable for the current generation, or null if it is not defined.
+     */
+    public static String getenv(String name) {
+        Map<String, String> env = environment;
+        return env != null ? env.get(name) : System.getenv(name);
+    }
+
     static private final String VARIABLE_PATTERN = "\\$[\\(|{]([A-Za-z0-9_]+)[\\)|}]";
     static private Pattern compiled_VARIABLE_PATTERN;
 }
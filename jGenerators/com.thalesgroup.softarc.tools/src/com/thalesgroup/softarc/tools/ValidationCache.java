@@ -0,0 +1,140 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent record of the model files that have been successfully validated against their XSD schema, used to skip the
+ * validation of files that did not change since (see {@link XmlPersistence#validationCache}).
+ *
+ * <p>
+ * Each file is recorded with the hash of its content and of its schema (including the schemas it includes or imports): a file
+ * is validated again as soon as it is modified, or as soon as its schema is modified. Only valid files are recorded, so that
+ * invalid files are always validated and their errors always reported.
+ *
+ * <p>
+ * The same cache can be shared by several processes (e.g. the validation targets of Ant and the generators), the last saved
+ * one wins: a lost record only costs a new validation.
+ */
+public class ValidationCache {
+
+    private static final String HEADER = "# SOFTARC validation cache";
+    private static final Pattern SCHEMA_LOCATION = Pattern.compile("schemaLocation\\s*=\\s*\"([^\"]+)\"");
+
+    /** Hashes of the schemas, computed once for the whole process. */
+    private static final Map<String, String> SCHEMA_HASHES = new ConcurrentHashMap<String, String>();
+
+    private final File _file;
+    /** Validated file (URL) -&gt; hash of its content and of its schema */
+    private final Map<String, String> _validated = new TreeMap<String, String>();
+    private boolean _modified = false;
+
+    /**
+     * @param file the file where the cache is persisted (typically in the integration directory); its records are read, if it
+     *            exists.
+     */
+    public ValidationCache(File file) throws IOException {
+        _file = file;
+        if (!file.isFile())
+            return;
+
+        BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+        try {
+            if (!HEADER.equals(reader.readLine()))
+                return;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ", 2);
+                if (fields.length == 2)
+                    _validated.put(fields[1], fields[0]);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return true if the file has already been validated against the schema, with the same content.
+     */
+    public synchronized boolean isValidated(File file, byte[] content, URL schema) throws IOException {
+        return hash(content, schema).equals(_validated.get(file.toURI().toString()));
+    }
+
+    /**
+     * Records a file which has been successfully validated against the schema.
+     */
+    public synchronized void addValidated(File file, byte[] content, URL schema) throws IOException {
+        String hash = hash(content, schema);
+        if (!hash.equals(_validated.put(file.toURI().toString(), hash)))
+            _modified = true;
+    }
+
+    /**
+     * Writes the cache, if new files have been validated.
+     */
+    public synchronized void save() throws IOException {
+        if (!_modified)
+            return;
+
+        Path temp = Utilities.newTemporaryFile(_file);
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(Files.newOutputStream(temp), StandardCharsets.UTF_8));
+        try {
+            writer.println(HEADER);
+            for (Map.Entry<String, String> e : _validated.entrySet()) {
+                writer.println(e.getValue() + " " + e.getKey());
+            }
+        } finally {
+            writer.close();
+        }
+        Utilities.replaceFile(temp, _file.toPath());
+        _modified = false;
+    }
+
+    private static String hash(byte[] content, URL schema) throws IOException {
+        return BuildCache.hash(content) + "-" + hashSchema(schema).substring(0, 16);
+    }
+
+    private static String hashSchema(URL schema) throws IOException {
+        String key = schema.toString();
+        String hash = SCHEMA_HASHES.get(key);
+        if (hash == null) {
+            StringBuilder sb = new StringBuilder();
+            addSchema(schema, new HashSet<String>(), sb);
+            hash = BuildCache.hash(sb.toString().getBytes(StandardCharsets.UTF_8));
+            SCHEMA_HASHES.put(key, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Adds the hash of a schema, and recursively of all the schemas it includes or imports.
+     */
+    private static void addSchema(URL schema, Set<String> done, StringBuilder sb) throws IOException {
+        if (!done.add(schema.toString()))
+            return;
+        byte[] content = BuildCache.read(schema);
+        if (content == null)
+            return;
+        sb.append(BuildCache.hash(content)).append('\n');
+        Matcher m = SCHEMA_LOCATION.matcher(new String(content, StandardCharsets.UTF_8));
+        while (m.find()) {
+            addSchema(new URL(schema, m.group(1)), done, sb);
+        }
+    }
+}
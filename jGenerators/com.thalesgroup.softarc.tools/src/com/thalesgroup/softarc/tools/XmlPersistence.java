@@ -14,29 +14,47 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.PropertyException;
 import jakarta.xml.bind.UnmarshalException;
 import jakarta.xml.bind.Unmarshaller;
 import jakarta.xml.bind.ValidationEvent;
 import jakarta.xml.bind.ValidationEventHandler;
 import jakarta.xml.bind.ValidationEventLocator;
+import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 
 /**
  * Allows to load and save XML files corresponding to a given XSD schema.
  *
+ * <p>JAXB contexts and compiled schemas are cached for the whole process, and shared by all
+ * instances. Unmarshallers and marshallers are not thread-safe: each thread uses its own ones, so
+ * that files can be loaded concurrently.
+ *
+ * <p>Files already validated with the same content are not validated again, if a {@link
+ * ValidationCache} is given.
+ *
  * @param <E> JAXB-generated class corresponding to the parsed XML information
  */
 public class XmlPersistence<E extends Object> implements ValidationEventHandler {
 
     public static boolean validateXsd = true;
 
+    /**
+     * If not null, files recorded in this cache are loaded without validation, and files
+     * successfully validated are recorded in it.
+     */
+    public static ValidationCache validationCache = null;
+
     /**
      * @param contextPath fully qualified name of the package containing JAXB-generated classes
      * @param validationSchema URI of schema for automatic validation on load(), or null if no
@@ -52,10 +70,7 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
 
         String contextPath = c.getPackage().getName();
         try {
-            JAXBContext ctx =
-                    JAXBContext.newInstance(contextPath, XmlPersistence.class.getClassLoader());
-            _loader = ctx.createUnmarshaller();
-            _saver = ctx.createMarshaller();
+            _context = getContext(contextPath);
 
             // uncomment the following lines to debug XSD schema loading:
             // if (validationSchema != null)
@@ -65,21 +80,73 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
             // contextPath);
 
             if (validationSchema != null && validateXsd) {
-                Schema schema = SF.newSchema(validationSchema);
-                _loader.setSchema(schema);
-                _saver.setSchema(schema);
+                _schema = getSchema(validationSchema);
+                _schemaUrl = validationSchema;
             }
-
-            _loader.setEventHandler(this);
-            _saver.setEventHandler(this);
-
-            if (outputSchemaURI != null)
-                _saver.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, outputSchemaURI);
         } catch (JAXBException e1) {
             e1.printStackTrace();
         } catch (SAXException e) {
             e.printStackTrace();
         }
+        _noNamespaceSchemaLocation = outputSchemaURI;
+    }
+
+    /**
+     * @return the JAXB context of a package, created once for the whole process.
+     */
+    private static JAXBContext getContext(String contextPath) throws JAXBException {
+        JAXBContext context = CONTEXTS.get(contextPath);
+        if (context == null) {
+            synchronized (CONTEXTS) {
+                context = CONTEXTS.get(contextPath);
+                if (context == null) {
+                    context = JAXBContext.newInstance(contextPath, XmlPersistence.class.getClassLoader());
+                    CONTEXTS.put(contextPath, context);
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * @return the compiled XSD schema, compiled once for the whole process (a Schema is
+     *     thread-safe, unlike the SchemaFactory).
+     */
+    private static Schema getSchema(URL validationSchema) throws SAXException {
+        String key = validationSchema.toString();
+        Schema schema = SCHEMAS.get(key);
+        if (schema == null) {
+            synchronized (SCHEMAS) {
+                schema = SCHEMAS.get(key);
+                if (schema == null) {
+                    schema = SF.newSchema(validationSchema);
+                    SCHEMAS.put(key, schema);
+                }
+            }
+        }
+        return schema;
+    }
+
+    private Unmarshaller newUnmarshaller(Schema schema) {
+        try {
+            Unmarshaller loader = _context.createUnmarshaller();
+            loader.setSchema(schema);
+            loader.setEventHandler(this);
+            return loader;
+        } catch (JAXBException e) {
+            throw new InconsistentModelError(e);
+        }
+    }
+
+    private Marshaller newMarshaller() {
+        try {
+            Marshaller saver = _context.createMarshaller();
+            saver.setSchema(_schema);
+            saver.setEventHandler(this);
+            return saver;
+        } catch (JAXBException e) {
+            throw new InconsistentModelError(e);
+        }
     }
 
     /**
@@ -100,8 +167,8 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
     @Override
     public boolean handleEvent(ValidationEvent event) {
         final ValidationEventLocator locator = event.getLocator();
-        _errors.add(
-                _file.toURI().getPath()
+        _errors.get().add(
+                _file.get().toURI().getPath()
                         + ':'
                         + locator.getLineNumber()
                         + ':'
@@ -129,9 +196,16 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
         // In order to catch casting problems, one shall not use "(E) obj"
         // syntax in template code, but "Class<E>.cast(obj)" instead.
 
+        _file.set(inputFile);
+        List<String> errors = _errors.get();
         try {
-            _errors.clear();
-            final Object res = _loader.unmarshal(new ByteArrayInputStream(bytes));
+            errors.clear();
+            ValidationCache cache = validationCache;
+            boolean validated = _schema != null && cache != null && cache.isValidated(inputFile, bytes, _schemaUrl);
+            Unmarshaller loader = validated ? _unvalidatedLoader.get() : _loader.get();
+            final Object res = loader.unmarshal(new ByteArrayInputStream(bytes));
+            if (_schema != null && cache != null && !validated)
+                cache.addValidated(inputFile, bytes, _schemaUrl);
             if (res instanceof JAXBElement<?>) {
                 Object obj = ((JAXBElement<Object>) res).getValue();
                 model = _desttype.cast(obj);
@@ -140,11 +214,11 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
             }
         } catch (UnmarshalException j) {
             String message = "Syntax error in model file " + inputFile.toURI().getPath();
-            for (String we : _errors) {
+            for (String we : errors) {
                 message += '\n' + we;
             }
             throw new InconsistentModelError(message);
-        } catch (JAXBException e) {
+        } catch (JAXBException | IOException e) {
             throw new InconsistentModelError(e);
         } catch (ClassCastException e) {
             throw new InconsistentModelError(
@@ -156,36 +230,120 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
 
     @Requirement(ids = {"GenFramework-SRS-REQ-143"})
     public E load(File inputFile, AbstractLogger generator) throws IOException {
-        _file = inputFile;
+        _file.set(inputFile);
         LoadedFileList<E>.LoadedModel cache = loadedFileList.get(inputFile);
-        // if already loaded, use it without reloading
-        if (cache.model == null) {
+        if (generator != null) generator.loaded(inputFile, cache.bytes);
+        // a file loaded concurrently by several threads is parsed only once, so that they all get
+        // the same model
+        synchronized (cache) {
+            // if already loaded, use it without reloading
+            if (cache.model == null) {
+
+                if (generator != null)
+                    generator.info("Loading model %s : %s", _filetype, inputFile.getCanonicalPath());
+
+                cache.model = this.loadFromFile(inputFile, cache.bytes);
+            } else if (cache.hasBeenPreloaded) {
+                // traced as if it was parsed now, so that logs do not depend on the order of preloading
+                if (generator != null)
+                    generator.info("Loading model %s : %s", _filetype, inputFile.getCanonicalPath());
+            }
+            cache.hasBeenPreloaded = false;
+            // else
+            // if (generator != null)
+            // generator.info("Reusing (from cache) %s : %s", _filetype,
+            // inputFile.getCanonicalPath());
 
-            if (generator != null)
-                generator.info("Loading model %s : %s", _filetype, inputFile.getCanonicalPath());
+            return cache.model;
+        }
+    }
 
-            cache.model = this.loadFromFile(inputFile, cache.bytes);
+    /**
+     * Validates a file against the schema, without loading it.
+     *
+     * @param cache if not null, the file is validated only if it is not recorded in this cache, and
+     *     it is recorded in it if it is valid.
+     * @return false if the file has not been validated because it is recorded in the cache.
+     * @throws InconsistentModelError when the file is not valid, with the list of errors
+     */
+    public boolean validate(File inputFile, ValidationCache cache) throws IOException {
+        if (_schema == null) return false;
+        byte[] bytes = java.nio.file.Files.readAllBytes(inputFile.toPath());
+        if (cache != null && cache.isValidated(inputFile, bytes, _schemaUrl)) return false;
+
+        final List<String> errors = new LinkedList<String>();
+        final String path = inputFile.toURI().getPath();
+        Validator validator = _schema.newValidator();
+        validator.setErrorHandler(
+                new ErrorHandler() {
+                    @Override
+                    public void warning(SAXParseException e) {}
+
+                    @Override
+                    public void error(SAXParseException e) {
+                        errors.add(path + ':' + e.getLineNumber() + ':' + e.getColumnNumber() + ':' + e.getMessage());
+                    }
+
+                    @Override
+                    public void fatalError(SAXParseException e) {
+                        error(e);
+                    }
+                });
+        try {
+            validator.validate(new StreamSource(new ByteArrayInputStream(bytes), inputFile.toURI().toString()));
+        } catch (SAXException e) {
+            // fatal error, already recorded
+            if (errors.isEmpty()) errors.add(path + ':' + e.getMessage());
+        }
+        if (!errors.isEmpty()) {
+            String message = "Syntax error in model file " + path;
+            for (String we : errors) {
+                message += '\n' + we;
+            }
+            throw new InconsistentModelError(message);
         }
-        // else
-        // if (generator != null)
-        // generator.info("Reusing (from cache) %s : %s", _filetype,
-        // inputFile.getCanonicalPath());
+        if (cache != null) cache.addValidated(inputFile, bytes, _schemaUrl);
+        return true;
+    }
 
-        return cache.model;
+    /**
+     * Parses a file in advance, possibly in another thread than the one which will load it, so that
+     * its model is found in cache by {@link #load(File, AbstractLogger)}. Errors are ignored here:
+     * the file is then parsed again when it is loaded, and errors are reported as usual.
+     *
+     * @return the parsed model, or null if the file cannot be loaded.
+     */
+    public E preload(File inputFile) {
+        try {
+            LoadedFileList<E>.LoadedModel cache = loadedFileList.get(inputFile);
+            synchronized (cache) {
+                if (cache.model == null) {
+                    cache.model = this.loadFromFile(inputFile, cache.bytes);
+                    cache.hasBeenPreloaded = true;
+                }
+                return cache.model;
+            }
+        } catch (IOException | RuntimeException | InconsistentModelError e) {
+            return null;
+        }
     }
 
     @Requirement(ids = {"GenFramework-SRS-REQ-143"})
     public void save(JAXBElement<E> jaxbElement, OutputStream s) throws IOException {
+        List<String> errors = _errors.get();
         try {
-            _errors.clear();
-            _saver.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            _saver.marshal(jaxbElement, s);
+            errors.clear();
+            Marshaller saver = _saver.get();
+            saver.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            if (_noNamespaceSchemaLocation != null)
+                saver.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, _noNamespaceSchemaLocation);
+            saver.marshal(jaxbElement, s);
         } catch (JAXBException j) {
             if (j.getCause() instanceof java.io.FileNotFoundException) {
                 throw new InconsistentModelError(j.getCause());
             } else {
                 StringBuffer message = new StringBuffer();
-                for (String we : _errors) {
+                for (String we : errors) {
                     if (message.length() == 0)
                         message.append('\n');
                     message.append(we);
@@ -199,7 +357,7 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
     public void save(JAXBElement<E> jaxbElement, File outputFile) throws IOException {
         if (outputFile.getParentFile() != null)
             outputFile.getParentFile().mkdirs();
-        _file = outputFile;
+        _file.set(outputFile);
         ByteArrayOutputStream s = new ByteArrayOutputStream();
         save(jaxbElement, s);
         loadedFileList.create(outputFile, s.toByteArray(), jaxbElement.getValue());
@@ -210,29 +368,38 @@ public class XmlPersistence<E extends Object> implements ValidationEventHandler
      *     output, on save(). Or null if not wanted.
      */
     public void setNoNamespaceSchemaLocation(String outputSchemaURI) {
-        try {
-            _saver.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, outputSchemaURI);
-        } catch (PropertyException e) {
-        }
+        _noNamespaceSchemaLocation = outputSchemaURI;
     }
 
-    /** */
-    private Unmarshaller _loader;
+    /** JAXB context, shared by all instances for the same package. */
+    private JAXBContext _context;
+    /** Schema used for validation, or null. */
+    private Schema _schema;
+    private URL _schemaUrl;
+    private volatile String _noNamespaceSchemaLocation;
+
+    /** Unmarshaller and marshaller of each thread. */
+    private final ThreadLocal<Unmarshaller> _loader = ThreadLocal.withInitial(() -> newUnmarshaller(_schema));
+    /** Unmarshaller of each thread for files already validated. */
+    private final ThreadLocal<Unmarshaller> _unvalidatedLoader = ThreadLocal.withInitial(() -> newUnmarshaller(null));
+    private final ThreadLocal<Marshaller> _saver = ThreadLocal.withInitial(this::newMarshaller);
 
     private LoadedFileList<E> loadedFileList = new LoadedFileList<E>();
 
-    /** */
-    private Marshaller _saver = null;
-    /** */
-    private final List<String> _errors = new LinkedList<String>();
-    /** */
-    private File _file;
+    /** Errors raised by the current load or save of each thread. */
+    private final ThreadLocal<List<String>> _errors =
+            ThreadLocal.withInitial(() -> new LinkedList<String>());
+    /** File being loaded or saved by each thread. */
+    private final ThreadLocal<File> _file = new ThreadLocal<File>();
 
     /** Kind file that will be loaded by this object */
     private final String _filetype;
 
     private final Class<E> _desttype;
 
+    private static final Map<String, JAXBContext> CONTEXTS = new ConcurrentHashMap<String, JAXBContext>();
+    private static final Map<String, Schema> SCHEMAS = new ConcurrentHashMap<String, Schema>();
+    /** Used only while holding the lock on SCHEMAS. */
     private static final SchemaFactory SF =
             SchemaFactory.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI);
 } // class XmlPersistence
@@ -0,0 +1,221 @@
+/* Copyright (c) 2025 THALES -- All rights reserved */
+
+package com.thalesgroup.softarc.tools.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader of a JSON document, as written by {@link JsonWriter}.
+ *
+ * The document is read as a tree of objects (LinkedHashMap, in the order of their fields), lists (ArrayList), strings, numbers
+ * (Long if they are integers, Double otherwise), booleans and nulls.
+ */
+public class JsonReader {
+
+    private final Reader in;
+    private int c;
+    private int line = 1;
+
+    public JsonReader(Reader input) throws IOException {
+        in = input;
+        next();
+    }
+
+    @SuppressWarnings("serial")
+    public static class SyntaxError extends IOException {
+        public SyntaxError(String msg) {
+            super(msg);
+        }
+    }
+
+    private void error(String fmt, Object... args) throws SyntaxError {
+        throw new SyntaxError(String.format("line %d: ", line) + String.format(fmt, args));
+    }
+
+    private void next() throws IOException {
+        c = in.read();
+        if (c == '\n') {
+            line++;
+        }
+    }
+
+    private void skipWhiteSpace() throws IOException {
+        while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            next();
+        }
+    }
+
+    private void expect(char ec) throws IOException {
+        skipWhiteSpace();
+        if (c != ec) {
+            error("expecting '%c' and found %s", ec, c < 0 ? "end of input" : "'" + (char) c + "'");
+        }
+        next();
+    }
+
+    /**
+     * Reads the whole document.
+     */
+    public Object read() throws IOException {
+        Object value = readValue();
+        skipWhiteSpace();
+        if (c >= 0) {
+            error("extra characters found after the value");
+        }
+        return value;
+    }
+
+    private Object readValue() throws IOException {
+        skipWhiteSpace();
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readList();
+        case '"':
+            return readString();
+        case 't':
+            readWord("true");
+            return Boolean.TRUE;
+        case 'f':
+            readWord("false");
+            return Boolean.FALSE;
+        case 'n':
+            readWord("null");
+            return null;
+        default:
+            return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        next();
+        skipWhiteSpace();
+        if (c == '}') {
+            next();
+            return object;
+        }
+        while (true) {
+            skipWhiteSpace();
+            if (c != '"') {
+                error("expecting the name of a field");
+            }
+            String name = readString();
+            expect(':');
+            object.put(name, readValue());
+            skipWhiteSpace();
+            if (c != ',') {
+                break;
+            }
+            next();
+        }
+        expect('}');
+        return object;
+    }
+
+    private List<Object> readList() throws IOException {
+        List<Object> list = new ArrayList<>();
+        next();
+        skipWhiteSpace();
+        if (c == ']') {
+            next();
+            return list;
+        }
+        while (true) {
+            list.add(readValue());
+            skipWhiteSpace();
+            if (c != ',') {
+                break;
+            }
+            next();
+        }
+        expect(']');
+        return list;
+    }
+
+    private String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        next();
+        while (c != '"') {
+            if (c < 0) {
+                error("unexpected end of input in a string");
+            }
+            if (c == '\\') {
+                next();
+                switch (c) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    char[] hex = new char[4];
+                    for (int i = 0; i < 4; i++) {
+                        next();
+                        hex[i] = (char) c;
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(new String(hex), 16));
+                    } catch (NumberFormatException e) {
+                        error("invalid escape sequence \\u%s", new String(hex));
+                    }
+                    break;
+                default:
+                    sb.append((char) c);
+                }
+            } else {
+                sb.append((char) c);
+            }
+            next();
+        }
+        next();
+        return sb.toString();
+    }
+
+    private void readWord(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (c != word.charAt(i)) {
+                error("expecting '%s'", word);
+            }
+            next();
+        }
+    }
+
+    private Object readNumber() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        boolean integer = true;
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+            if (c == '.' || c == 'e' || c == 'E') {
+                integer = false;
+            }
+            sb.append((char) c);
+            next();
+        }
+        String s = sb.toString();
+        if (s.isEmpty()) {
+            error("unexpected %s", c < 0 ? "end of input" : "character '" + (char) c + "'");
+        }
+        try {
+            return integer ? (Object) Long.valueOf(s) : (Object) Double.valueOf(s);
+        } catch (NumberFormatException e) {
+            error("invalid number '%s'", s);
+            return null;
+        }
+    }
+}